@@ -1,23 +1,48 @@
 package Commands;
 
+import java.io.IOException;
+
 import FileManagement.FileService;
-import Inventory.InventoryService;
+import FileManagement.InventoryJournal;
+import Inventory.IInventoryService;
 
 public class ExitCommand implements ICommand {
-    private InventoryService inventoryService;
+    private IInventoryService inventoryService;
     private FileService fileService;
+    private InventoryJournal journal;
+
+    public ExitCommand(IInventoryService inventoryService, FileService fileService) {
+        this(inventoryService, fileService, null);
+    }
 
-    public ExitCommand(InventoryService inventoryService, FileService fileService) {
+    // With a journal only the changes since its last commit are written on exit
+    public ExitCommand(IInventoryService inventoryService, FileService fileService, InventoryJournal journal) {
         this.inventoryService = inventoryService;
         this.fileService = fileService;
+        this.journal = journal;
     }
 
     @Override
     public void execute() {
-        fileService.writeItemsToFile(inventoryService.getAllItems(), "inventory.dat");
+        if (!closeJournal()) {
+            fileService.writeItemsToFile(inventoryService.getAllItems(), "inventory.dat");
+        }
         System.out.println("Exiting Dungeon Inventory Manager. Goodbye!");
         System.exit(0);
     }
-}
-
 
+    private boolean closeJournal() {
+        if (journal == null) {
+            return false;
+        }
+        try {
+            // The console has no background saver, so compact here if the journal has grown large
+            journal.save();
+            journal.close();
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error closing inventory journal: " + e.getMessage());
+            return false;
+        }
+    }
+}
@@ -1,44 +1,26 @@
 package Commands;
 
-import Inventory.InventoryService;
-import Items.*;
-import java.io.BufferedWriter;
-import java.io.FileWriter;
+import FileManagement.ExportFormat;
+import FileManagement.InventoryExporter;
+import Inventory.IInventoryService;
 import java.io.IOException;
-import java.util.List;
+import java.nio.file.Paths;
 
 public class ExportInventoryCommand implements ICommand {
-    private InventoryService is;
+    private IInventoryService is;
 
     private final String TXT_FILENAME = "items.txt";
 
-    public ExportInventoryCommand(InventoryService is){
+    public ExportInventoryCommand(IInventoryService is){
         this.is = is;
     }
 
-    public void prepareFileForWrite() {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(TXT_FILENAME, false))) {
-            writer.write("");
-        } catch (IOException e) {
-            System.out.println("Error preparing file for writing: " + e.getMessage());
-        }
-    }
-
     @Override
     public void execute() {
-        prepareFileForWrite();
-        List<Item> items = is.getAllItems();
-        for (Item item : items) {
-            writeItemToFile(item);
-        }
-        System.out.println("Items copied to:" + TXT_FILENAME);
-    }
-
-    private void writeItemToFile(Item item) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(TXT_FILENAME, true))) {   
-            writer.write("--- " + item.getClass().getSimpleName() + " ---\n"); 
-            item.writeToStream(writer); 
-            writer.newLine();
+        try {
+            // One pass over the inventory through a single buffered file
+            InventoryExporter.export(is, Paths.get(TXT_FILENAME), ExportFormat.TEXT, fraction -> { });
+            System.out.println("Items copied to:" + TXT_FILENAME);
         } catch (IOException e) {
             System.out.println("Error writing to file: " + e.getMessage());
         }
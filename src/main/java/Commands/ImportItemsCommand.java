@@ -0,0 +1,51 @@
+package Commands;
+
+import FileManagement.ExportFormat;
+import FileManagement.ImportResult;
+import FileManagement.InventoryImporter;
+import InputValidation.IInputHandler;
+import InputValidation.StringValidator;
+import Inventory.IInventoryService;
+import Items.IItemFactory;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+public class ImportItemsCommand implements ICommand {
+    private IInventoryService is;
+    private IInputHandler inputHandler;
+    private IItemFactory itemFactory;
+
+    private final int MAX_ERRORS_SHOWN = 20;
+
+    public ImportItemsCommand(IInventoryService is, IInputHandler inputHandler, IItemFactory itemFactory) {
+        this.is = is;
+        this.inputHandler = inputHandler;
+        this.itemFactory = itemFactory;
+    }
+
+    @Override
+    public void execute() {
+        String fileName = inputHandler.getStringInput("Enter the .csv or .jsonl file to import:", new StringValidator());
+        Path path = Paths.get(fileName.trim());
+        ExportFormat format = InventoryImporter.formatFor(path);
+        if (format == null) {
+            System.out.println("Only .csv and .jsonl files can be imported.");
+            return;
+        }
+        try {
+            ImportResult result = InventoryImporter.importItems(path, format, itemFactory, fraction -> { });
+            is.addAllItems(result.getItems());
+            int rejected = result.getErrors().size();
+            System.out.println((result.getRowCount() - rejected) + " of " + result.getRowCount() + " rows imported (" + result.getItems().size() + " items).");
+            for (int i = 0; i < Math.min(rejected, MAX_ERRORS_SHOWN); i++) {
+                System.out.println("  " + result.getErrors().get(i));
+            }
+            if (rejected > MAX_ERRORS_SHOWN) {
+                System.out.println("  ... and " + (rejected - MAX_ERRORS_SHOWN) + " more rejected rows");
+            }
+        } catch (IOException e) {
+            System.out.println("Error reading file: " + e.getMessage());
+        }
+    }
+}
@@ -15,7 +15,16 @@ public class RemoveItemCommand implements ICommand {
 
     @Override
     public void execute() {
-        String itemName = inputHandler.getStringInput("Enter the name of the item to remove:", new StringValidator());
+        String itemName = inputHandler.getStringInput("Enter the name of the item to remove (or #id for a single item):", new StringValidator());
+        // "#<id>" addresses exactly one item (or stack) instead of everything sharing the name
+        if (itemName.startsWith("#")) {
+            try {
+                inventoryService.removeItemById(Long.parseLong(itemName.substring(1).trim()), 1);
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid item id: " + itemName);
+            }
+            return;
+        }
         inventoryService.removeItem(itemName);
     }
 }
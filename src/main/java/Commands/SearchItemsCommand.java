@@ -2,6 +2,7 @@ package Commands;
 
 import java.util.List;
 import Inventory.IInventoryService;
+import Inventory.ItemQuery;
 import Items.*;
 import InputValidation.*;
 import javafx.scene.layout.GridPane;
@@ -17,12 +18,18 @@ public class SearchItemsCommand implements ICommand {
     private IInputHandler inputHandler;
 
     private final boolean IS_GUI = true; // Flag to determine if GUI is used
+    private boolean advanced; // Ask for type, price, weight, damage die and armor class filters as well as the name
 
     public SearchItemsCommand(IInventoryService inventoryService, IInputHandler inputHandler) {
         this.inventoryService = inventoryService;
         this.inputHandler = inputHandler;
     }
 
+    public SearchItemsCommand(IInventoryService inventoryService, IInputHandler inputHandler, boolean advanced) {
+        this(inventoryService, inputHandler);
+        this.advanced = advanced;
+    }
+
     public SearchItemsCommand(IInventoryService inventoryService) {
         this.inventoryService = inventoryService;
         this.inputHandler = new GUIInputHandler();
@@ -31,7 +38,7 @@ public class SearchItemsCommand implements ICommand {
     @Override
     public void execute() {
         String searchTerm = inputHandler.getStringInput("Enter item name to search:", validator);
-        List<Item> foundItems = inventoryService.searchItem(searchTerm);
+        List<Item> foundItems = advanced ? inventoryService.query(buildQuery(searchTerm)) : inventoryService.searchItem(searchTerm);
         
         if (!IS_GUI) {
             if (foundItems.isEmpty()) {
@@ -49,6 +56,38 @@ public class SearchItemsCommand implements ICommand {
         }
     }
 
+    private ItemQuery buildQuery(String searchTerm) {
+        ItemQuery query = new ItemQuery();
+        if (!searchTerm.trim().equals("*")) {
+            query.nameContains(searchTerm.trim());
+        }
+        String type = inputHandler.getStringInput("Enter item type (Weapon, Armor, Regular or * for any):", validator);
+        if (type.equalsIgnoreCase("Weapon")) {
+            query.ofType(Weapon.class);
+            int die = inputHandler.getIntegerInput("Enter damage die sides (e.g. 8 for d8, 0 for any):", new NumberValidator(0, 100));
+            if (die > 0) {
+                query.damageDie(die);
+            }
+        } else if (type.equalsIgnoreCase("Armor")) {
+            query.ofType(Armor.class);
+            int armorClass = inputHandler.getIntegerInput("Enter minimum armor class (0 for any):", new NumberValidator(0, 30));
+            if (armorClass > 0) {
+                query.minArmorClass(armorClass);
+            }
+        } else if (type.equalsIgnoreCase("Regular")) {
+            query.ofType(RegularItem.class);
+        }
+        double maxPrice = inputHandler.getDoubleInput("Enter maximum price (0 for any):", new DoubleValidator(0, Double.MAX_VALUE));
+        if (maxPrice > 0) {
+            query.priceBetween(0, maxPrice);
+        }
+        double maxWeight = inputHandler.getDoubleInput("Enter maximum weight (0 for any):", new DoubleValidator(0, Double.MAX_VALUE));
+        if (maxWeight > 0) {
+            query.weightBetween(0, maxWeight);
+        }
+        return query;
+    }
+
     private void showError(String message) {
         GridPane grid = new GridPane();
         grid.setStyle("-fx-background-color: #afa2a2ff;"); 
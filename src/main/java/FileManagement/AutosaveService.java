@@ -0,0 +1,205 @@
+package FileManagement;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import Inventory.IInventoryListener;
+import Inventory.IInventoryService;
+import Inventory.InventoryEvent;
+import Items.Item;
+
+// Saves the inventory in the background once it has been quiet for QUIET_PERIOD_MS, so a burst of changes
+// costs one write and the UI thread never waits on the disk. With a journal a save commits it and, once it has
+// grown large, compacts it into a new snapshot; without one the whole inventory is written. Either way the
+// file is replaced atomically (see InventoryFileFormat.write).
+// The inventory is only read on ownerThread (e.g. Platform::runLater), which also delivers its changes.
+public class AutosaveService implements IInventoryListener, AutoCloseable {
+    private static final long QUIET_PERIOD_MS = 2000;
+
+    private final Path inventoryFile;
+    private final IInventoryService inventory;
+    private final InventoryJournal journal;
+    private final Executor ownerThread;
+    private final ISaveListener listener;
+    private final ScheduledExecutorService saver;
+    // All guarded by this
+    private boolean dirty;
+    private boolean closed;
+    private ScheduledFuture<?> scheduled;
+    private Future<?> writing;
+
+    private AutosaveService(String inventoryFile, IInventoryService inventory, InventoryJournal journal, Executor ownerThread, ISaveListener listener) {
+        this.inventoryFile = Paths.get(inventoryFile);
+        this.inventory = inventory;
+        this.journal = journal;
+        this.ownerThread = ownerThread;
+        this.listener = listener;
+        this.saver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "inventory-autosave");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Starts saving the inventory's changes; journal may be null, in which case every save writes the whole inventory
+    public static AutosaveService start(String inventoryFile, IInventoryService inventory, InventoryJournal journal, Executor ownerThread, ISaveListener listener) {
+        AutosaveService autosave = new AutosaveService(inventoryFile, inventory, journal, ownerThread, listener);
+        inventory.addInventoryListener(autosave);
+        return autosave;
+    }
+
+    @Override
+    public void onInventoryChanged(InventoryEvent event) {
+        synchronized (this) {
+            dirty = true;
+        }
+        schedule(QUIET_PERIOD_MS);
+    }
+
+    public synchronized boolean isDirty() {
+        return dirty;
+    }
+
+    // Saves as soon as possible instead of after the quiet period
+    public void saveNow() {
+        synchronized (this) {
+            dirty = true;
+        }
+        schedule(0);
+    }
+
+    // Flushes whatever is still unsaved and waits for a save already in progress, but nothing more.
+    // Call on the owner thread.
+    @Override
+    public void close() throws IOException {
+        Future<?> inFlight;
+        boolean unsaved;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+            inFlight = writing;
+            unsaved = dirty;
+            dirty = false;
+        }
+        inventory.removeInventoryListener(this);
+        saver.shutdown();
+        await(inFlight);
+        if (unsaved) {
+            if (journal != null) {
+                journal.commit();
+            } else {
+                InventoryFileFormat.write(inventory.getAllItems(), inventoryFile);
+            }
+        }
+    }
+
+    // Re-arms the debounce timer; the newest change decides when the quiet period ends
+    private synchronized void schedule(long delayMs) {
+        if (closed) {
+            return;
+        }
+        if (scheduled != null) {
+            scheduled.cancel(false);
+        }
+        scheduled = saver.schedule(this::quietPeriodOver, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    // On the saver thread. A journal commit needs nothing from the inventory; a snapshot is captured on the
+    // owner thread and then written back here.
+    private void quietPeriodOver() {
+        synchronized (this) {
+            if (closed || !dirty) {
+                return;
+            }
+            if (writing != null && !writing.isDone()) {
+                // The running save reschedules once it finishes
+                return;
+            }
+            if (journal != null) {
+                // The commit below covers every change so far; without a journal the capture clears the flag
+                dirty = false;
+            }
+        }
+        listener.onSaveProgress(0);
+        try {
+            if (journal != null) {
+                journal.commit();
+                if (!journal.needsCompaction()) {
+                    listener.onSaveCompleted(null);
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            failed(e);
+            return;
+        }
+        ownerThread.execute(this::captureSnapshot);
+    }
+
+    // On the owner thread: take the immutable item list, then hand the write back to the saver
+    private void captureSnapshot() {
+        List<Item> items = inventory.getAllItems();
+        long mark = journal != null ? journal.mark() : 0;
+        synchronized (this) {
+            if (closed) {
+                // close() saved on its own
+                return;
+            }
+            dirty = false;
+            writing = saver.submit(() -> writeSnapshot(items, mark));
+        }
+    }
+
+    private void writeSnapshot(List<Item> items, long mark) {
+        try {
+            if (journal != null) {
+                journal.compact(items, mark, listener::onSaveProgress);
+            } else {
+                InventoryFileFormat.write(items, inventoryFile, listener::onSaveProgress);
+            }
+            listener.onSaveCompleted(null);
+        } catch (IOException e) {
+            failed(e);
+            return;
+        }
+        synchronized (this) {
+            if (dirty) {
+                schedule(QUIET_PERIOD_MS);
+            }
+        }
+    }
+
+    private void failed(IOException error) {
+        synchronized (this) {
+            // Keep the changes marked unsaved so the next change or close tries again
+            dirty = true;
+        }
+        listener.onSaveCompleted(error);
+    }
+
+    private static void await(Future<?> inFlight) throws IOException {
+        if (inFlight == null) {
+            return;
+        }
+        try {
+            inFlight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IOException("Background save failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package FileManagement;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import Items.Armor;
+import Items.Item;
+import Items.Weapon;
+
+// Built-in export layouts. CSV and JSON Lines carry one stack per line with the same fields, so either can
+// be read back in.
+public enum ExportFormat implements IExportFormat {
+    // The original human-readable layout: a "--- Type ---" banner, Item.writeToStream, then the quantity
+    TEXT("txt") {
+        @Override
+        public void writeHeader(BufferedWriter writer) {
+        }
+
+        @Override
+        public void writeStack(BufferedWriter writer, Item item, int quantity) throws IOException {
+            writer.write("--- " + item.getClass().getSimpleName() + " ---\n");
+            item.writeToStream(writer);
+            if (quantity > 1) {
+                writer.write("Quantity: " + quantity + "\n");
+            }
+            writer.newLine();
+        }
+    },
+    // RFC 4180: fields holding commas, quotes or line breaks are quoted, with quotes doubled
+    CSV("csv") {
+        @Override
+        public void writeHeader(BufferedWriter writer) throws IOException {
+            writer.write(String.join(",", COLUMNS));
+            writer.write("\n");
+        }
+
+        @Override
+        public void writeStack(BufferedWriter writer, Item item, int quantity) throws IOException {
+            writer.write(typeName(item));
+            writer.write(',');
+            writer.write(Long.toString(item.getId()));
+            writer.write(',');
+            writeCsvField(writer, item.getName());
+            writer.write(',');
+            writeCsvField(writer, item.getDescription());
+            writer.write(',');
+            writer.write(Double.toString(item.getPrice()));
+            writer.write(',');
+            writer.write(Double.toString(item.getWeight()));
+            writer.write(',');
+            if (item instanceof Weapon) {
+                writeCsvField(writer, ((Weapon) item).getDamageRoll());
+            }
+            writer.write(',');
+            if (item instanceof Armor) {
+                writer.write(Integer.toString(((Armor) item).getDefense()));
+            }
+            writer.write(',');
+            writer.write(Integer.toString(quantity));
+            writer.write("\n");
+        }
+    },
+    // One JSON object per line; damage and armorClass only appear on the item types that have them
+    JSONL("jsonl") {
+        @Override
+        public void writeHeader(BufferedWriter writer) {
+        }
+
+        @Override
+        public void writeStack(BufferedWriter writer, Item item, int quantity) throws IOException {
+            writer.write("{\"type\":");
+            writeJsonString(writer, typeName(item));
+            writer.write(",\"id\":" + item.getId());
+            writer.write(",\"name\":");
+            writeJsonString(writer, item.getName());
+            writer.write(",\"description\":");
+            writeJsonString(writer, item.getDescription());
+            writer.write(",\"price\":" + item.getPrice());
+            writer.write(",\"weight\":" + item.getWeight());
+            if (item instanceof Weapon) {
+                writer.write(",\"damage\":");
+                writeJsonString(writer, ((Weapon) item).getDamageRoll());
+            }
+            if (item instanceof Armor) {
+                writer.write(",\"armorClass\":" + ((Armor) item).getDefense());
+            }
+            writer.write(",\"quantity\":" + quantity + "}\n");
+        }
+    };
+
+    // CSV header, also the JSON Lines field names
+    public static final String[] COLUMNS = {"type", "id", "name", "description", "price", "weight", "damage", "armorClass", "quantity"};
+
+    private final String extension;
+
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    @Override
+    public String getExtension() {
+        return extension;
+    }
+
+    // "Weapon", "Armor" or "Regular", as ItemFactory expects
+    private static String typeName(Item item) {
+        return item instanceof Weapon ? "Weapon" : item instanceof Armor ? "Armor" : "Regular";
+    }
+
+    private static void writeCsvField(BufferedWriter writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private static void writeJsonString(BufferedWriter writer, String value) throws IOException {
+        if (value == null) {
+            writer.write("null");
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        writer.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        writer.write(c);
+                    }
+            }
+        }
+        writer.write('"');
+    }
+}
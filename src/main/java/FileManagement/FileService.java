@@ -2,6 +2,8 @@ package FileManagement;
 
 import Items.Item;
 import java.io.*;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -9,10 +11,11 @@ public class FileService implements IFileService {
 
     private static final String filename = "inventory.dat";
 
+    // Compressed or plain as InventoryFileFormat.COMPRESS_PROPERTY says, like every other save path
     @Override
     public void writeItemsToFile(List<Item> items, String filename) {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filename))) {
-            oos.writeObject(items);
+        try {
+            InventoryFileFormat.write(items, Paths.get(filename));
             System.out.println("Inventory saved to " + filename);
         } catch (IOException e) {
             System.err.println("Error saving inventory: " + e.getMessage());
@@ -22,15 +25,54 @@ public class FileService implements IFileService {
     @Override
     public List<Item> readItemsFromFile(String filename) {
         List<Item> items = new ArrayList<>();
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(filename))) {
-            items = (List<Item>) ois.readObject();
+        Path path = Paths.get(filename);
+        if (!path.toFile().exists()) {
+            System.out.println("No existing inventory found. Starting with an empty inventory.");
+            return items;
+        }
+        try {
+            // Files saved before the binary format are still Java-serialized lists
+            items = InventoryFileFormat.isBinaryFile(path) ? InventoryFileFormat.read(path) : readLegacyFile(filename);
             System.out.println("Inventory loaded from " + filename);
         } catch (FileNotFoundException e) {
             System.out.println("No existing inventory found. Starting with an empty inventory.");
         } catch (IOException | ClassNotFoundException e) {
             System.err.println("Error loading inventory: " + e.getMessage());
+            keepDamagedFile(path);
         }
         return items;
     }
-}
 
+    @Override
+    public List<Item> mapItemsFromFile(String filename) {
+        Path path = Paths.get(filename);
+        try {
+            if (path.toFile().exists() && InventoryFileFormat.isBinaryFile(path)) {
+                List<Item> items = InventoryFileFormat.map(path);
+                System.out.println("Inventory loaded from " + filename);
+                return items;
+            }
+        } catch (IOException e) {
+            System.err.println("Error loading inventory: " + e.getMessage());
+            keepDamagedFile(path);
+            return new ArrayList<>();
+        }
+        // Missing and legacy files have nothing to map
+        return readItemsFromFile(filename);
+    }
+
+    // The caller starts from an empty inventory, which the next save would write over the unreadable file
+    private void keepDamagedFile(Path path) {
+        Path backup = InventoryFileFormat.preserveDamagedFile(path);
+        if (backup != null) {
+            System.err.println("The unreadable inventory was copied to " + backup);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Item> readLegacyFile(String filename) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(filename))) {
+            return (List<Item>) ois.readObject();
+        }
+    }
+}
\ No newline at end of file
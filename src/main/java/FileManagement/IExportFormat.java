@@ -0,0 +1,15 @@
+package FileManagement;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import Items.Item;
+
+public interface IExportFormat {
+    // Extension for exported files, without the dot
+    String getExtension();
+
+    // Written once before the first stack; may write nothing
+    void writeHeader(BufferedWriter writer) throws IOException;
+
+    void writeStack(BufferedWriter writer, Item item, int quantity) throws IOException;
+}
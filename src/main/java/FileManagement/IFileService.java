@@ -6,5 +6,7 @@ import Items.Item;
 public interface IFileService {
     void writeItemsToFile(List<Item> items, String filename);
     List<Item> readItemsFromFile(String filename);
+    // Like readItemsFromFile, but may leave cold fields such as descriptions to be decoded on first access
+    List<Item> mapItemsFromFile(String filename);
 }
 
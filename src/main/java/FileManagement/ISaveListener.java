@@ -0,0 +1,11 @@
+package FileManagement;
+
+import java.io.IOException;
+
+public interface ISaveListener {
+    // Called on the saving thread; UI listeners should hand the update over to their own thread
+    void onSaveProgress(double fraction);
+
+    // error is null when the save succeeded
+    void onSaveCompleted(IOException error);
+}
@@ -0,0 +1,31 @@
+package FileManagement;
+
+import java.util.List;
+import Items.Item;
+
+// Outcome of an import: the items built from valid rows (a row with quantity n appears n times, as one
+// instance) and one message per rejected row
+public class ImportResult {
+    private final List<Item> items;
+    private final List<String> errors;
+    private final int rows;
+
+    public ImportResult(List<Item> items, List<String> errors, int rows) {
+        this.items = items;
+        this.errors = errors;
+        this.rows = rows;
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    // Data rows read, valid or not
+    public int getRowCount() {
+        return rows;
+    }
+}
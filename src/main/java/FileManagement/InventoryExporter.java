@@ -0,0 +1,115 @@
+package FileManagement;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.DoubleConsumer;
+import Inventory.IInventoryService;
+import Inventory.InventoryCount;
+import Inventory.InventoryPage;
+import Inventory.InventorySortKey;
+
+// Writes an inventory in one pass through a single buffered channel, one stack at a time, in any IExportFormat.
+// Progress is the fraction of items written so far, reported every PROGRESS_INTERVAL stacks and at the end.
+public class InventoryExporter {
+    // Stacks fetched per page, so large inventories are never copied in full
+    private static final int PAGE_SIZE = 256;
+    private static final int PROGRESS_INTERVAL = 256;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final ExecutorService BACKGROUND = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "inventory-export");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private InventoryExporter() {
+    }
+
+    // Pages through the inventory on the calling thread; returns the number of stacks written
+    public static int export(IInventoryService inventory, Path path, IExportFormat format, DoubleConsumer progress) throws IOException {
+        int total = inventory.getStats().getTotalCount();
+        try (ExportSink sink = new ExportSink(path, format, total, progress)) {
+            String cursor = null;
+            do {
+                InventoryPage page = inventory.getPage(InventorySortKey.INSERTION_ORDER, cursor, PAGE_SIZE);
+                for (InventoryCount stack : page.getStacks()) {
+                    sink.write(stack);
+                }
+                cursor = page.getNextCursor();
+            } while (cursor != null);
+            return sink.finish();
+        }
+    }
+
+    // Writes stacks on a background thread. The list must not change meanwhile; getItemStacks() snapshots qualify.
+    public static CompletableFuture<Integer> exportInBackground(List<InventoryCount> stacks, Path path, IExportFormat format, DoubleConsumer progress) {
+        return CompletableFuture.supplyAsync(() -> {
+            int total = 0;
+            for (InventoryCount stack : stacks) {
+                total += stack.getCount();
+            }
+            try (ExportSink sink = new ExportSink(path, format, total, progress)) {
+                for (InventoryCount stack : stacks) {
+                    sink.write(stack);
+                }
+                return sink.finish();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, BACKGROUND);
+    }
+
+    // The one open channel and writer, plus progress bookkeeping
+    private static final class ExportSink implements AutoCloseable {
+        private final BufferedWriter writer;
+        private final IExportFormat format;
+        private final int totalItems;
+        private final DoubleConsumer progress;
+        private int stacks;
+        private long items;
+
+        private ExportSink(Path path, IExportFormat format, int totalItems, DoubleConsumer progress) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            this.writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), BUFFER_SIZE);
+            this.format = format;
+            this.totalItems = totalItems;
+            this.progress = progress;
+            try {
+                format.writeHeader(writer);
+            } catch (IOException e) {
+                writer.close();
+                throw e;
+            }
+            progress.accept(0);
+        }
+
+        private void write(InventoryCount stack) throws IOException {
+            format.writeStack(writer, stack.getItem(), stack.getCount());
+            stacks++;
+            items += stack.getCount();
+            if (stacks % PROGRESS_INTERVAL == 0 && totalItems > 0) {
+                progress.accept(Math.min(1.0, (double) items / totalItems));
+            }
+        }
+
+        private int finish() throws IOException {
+            writer.flush();
+            progress.accept(1);
+            return stacks;
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+}
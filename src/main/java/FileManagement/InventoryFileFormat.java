@@ -0,0 +1,1114 @@
+package FileManagement;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.ref.Cleaner;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleConsumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import Items.Armor;
+import Items.Item;
+import Items.ItemTemplate;
+import Items.ItemTemplateCatalog;
+import Items.StoredItems;
+import Items.Weapon;
+
+// Compact binary inventory file, replacing Java serialization:
+//   header    magic "DIMB", int version, int flags (COMPRESSED if the blocks are deflated)
+//   blocks    int magic "DIMK", int payload length (| DEFLATED), int CRC32C of the length field and the payload,
+//             payload; a deflated payload is the int length of the block body followed by its Deflate (zlib) stream
+//   trailer   int magic "DIME", int length, int CRC32C as for a block; payload int block count, long item count
+// Each block body holds up to BLOCK_ENTRIES entries and is self-contained:
+//   strings   int count, then per string: int byte length + UTF-8 bytes (every distinct string stored once)
+//   templates int count, then per template: byte type, int name, int description, double price, double weight,
+//             int damage roll, int defense (strings are indexes into the string table, -1 for none)
+//   items     int count, then per item: byte header (type tag in the low bits, plus flags for price/weight stored
+//             in hundredths), id as the zigzag varint delta from the previous item's id, then varints for
+//             template + 1, name + 1, description + 1, price and weight (varint hundredths or raw double),
+//             damage roll + 1 (weapons only), zigzag defense (armor only) and quantity
+// Reference 0 (i.e. -1 + 1) on a templated item means "as in the template"; 0 on a plain item means none.
+// Consecutive repeats of one instance (a stack) are written once with their quantity.
+// Loading checks every block's checksum first (CRC32C is hardware-accelerated, so this costs little next to the
+// decoding) and then decodes the intact ones. A damaged or missing block only loses its own items: the reader
+// skips ahead to the next block magic, and the damaged file is copied aside before anything can overwrite it.
+// Version 1 files (header then a single unchecked body) and "DIMZ" files (magic, then the Deflate stream of a
+// version 1 file) are still read.
+public class InventoryFileFormat {
+    public static final int MAGIC = 0x44494D42; // "DIMB"
+    public static final int COMPRESSED_MAGIC = 0x44494D5A; // "DIMZ", version 1 only
+    public static final int VERSION = 2;
+    // -Ddim.compress=true|false picks the mode of files written without an explicit one; unset keeps the mode of
+    // the file being replaced (plain for new files)
+    public static final String COMPRESS_PROPERTY = "dim.compress";
+
+    private static final int BLOCK_MAGIC = 0x44494D4B; // "DIMK"
+    private static final int END_MAGIC = 0x44494D45; // "DIME"
+    private static final int COMPRESSED = 0x01;
+    private static final int DEFLATED = 0x40000000;
+    private static final int FILE_HEADER_SIZE = 12;
+    private static final int BLOCK_HEADER_SIZE = 12;
+    private static final int BLOCK_ENTRIES = 4096;
+    private static final int SCAN_WINDOW = 64 * 1024;
+    private static final byte REGULAR = 0;
+    private static final byte WEAPON = 1;
+    private static final byte ARMOR = 2;
+    private static final int TYPE_MASK = 0x03;
+    private static final int PRICE_IN_HUNDREDTHS = 0x04;
+    private static final int WEIGHT_IN_HUNDREDTHS = 0x08;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Fastest level: on this data it keeps most of the size reduction of the default level at a fraction of the cost
+    private static final int COMPRESSION_LEVEL = Deflater.BEST_SPEED;
+    // Files mapped by map() whose items may still decode descriptions from them, by absolute path
+    private static final Map<Path, List<WeakReference<Mapping>>> mappings = new HashMap<>();
+    private static final Cleaner cleaner = Cleaner.create();
+
+    private InventoryFileFormat() {
+    }
+
+    // True if the file starts with either binary magic; anything else is left to the legacy reader
+    public static boolean isBinaryFile(Path path) throws IOException {
+        ByteBuffer header = readFileHeader(path);
+        int magic = header.getInt(0);
+        return magic == MAGIC || magic == COMPRESSED_MAGIC;
+    }
+
+    // False for plain and missing files
+    public static boolean isCompressedFile(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return false;
+        }
+        ByteBuffer header = readFileHeader(path);
+        return header.getInt(0) == COMPRESSED_MAGIC
+                || (header.getInt(0) == MAGIC && header.getInt(4) >= 2 && (header.getInt(8) & COMPRESSED) != 0);
+    }
+
+    // Copies a file that could not be read in full next to it (<name>.damaged, then .damaged.1, ...) and returns the
+    // copy, so the next save cannot destroy what is left of it; null if the copy failed too. Loading the same
+    // damaged file again reuses its copy.
+    public static Path preserveDamagedFile(Path path) {
+        try {
+            Path backup = path.resolveSibling(path.getFileName() + ".damaged");
+            for (int i = 1; Files.exists(backup); i++) {
+                if (Files.mismatch(path, backup) == -1) {
+                    return backup;
+                }
+                backup = path.resolveSibling(path.getFileName() + ".damaged." + i);
+            }
+            Files.copy(path, backup);
+            return backup;
+        } catch (IOException e) {
+            System.err.println("Could not back up damaged file " + path + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // The first FILE_HEADER_SIZE bytes, zero-padded if the file is shorter
+    private static ByteBuffer readFileHeader(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    break;
+                }
+            }
+            return header;
+        }
+    }
+
+    // Writes to a temp file and renames it over path, so a crash mid-write keeps the old file. Windows refuses to
+    // replace a file that is still mapped, so mappings of path are released first: descriptions their items have
+    // not read yet are decoded onto the heap (once per mapped load) and the file is unmapped.
+    public static void write(List<Item> items, Path path) throws IOException {
+        write(items, path, fraction -> { });
+    }
+
+    // Compressed or not as COMPRESS_PROPERTY says
+    public static void write(List<Item> items, Path path, DoubleConsumer progress) throws IOException {
+        String mode = System.getProperty(COMPRESS_PROPERTY);
+        write(items, path, progress, mode != null ? Boolean.parseBoolean(mode) : isCompressedFile(path));
+    }
+
+    // progress receives the fraction of items written, from 0 to 1, on the writing thread
+    public static void write(List<Item> items, Path path, DoubleConsumer progress, boolean compressed) throws IOException {
+        progress.accept(0);
+        // Collapse runs of the same instance into (item, quantity)
+        List<Item> distinct = new ArrayList<>();
+        List<Integer> quantities = new ArrayList<>();
+        for (Item item : items) {
+            int last = distinct.size() - 1;
+            if (last >= 0 && distinct.get(last) == item) {
+                quantities.set(last, quantities.get(last) + 1);
+                continue;
+            }
+            distinct.add(item);
+            quantities.add(1);
+        }
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        Deflater deflater = compressed ? new Deflater(COMPRESSION_LEVEL) : null;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(compressed ? COMPRESSED : 0).flip();
+            writeFully(channel, header);
+
+            BlockWriter body = new BlockWriter();
+            BlockWriter deflated = compressed ? new BlockWriter() : null;
+            int blocks = 0;
+            for (int start = 0; start < distinct.size(); start += BLOCK_ENTRIES) {
+                int end = Math.min(start + BLOCK_ENTRIES, distinct.size());
+                body.clear();
+                writeBlockBody(body, distinct, quantities, start, end);
+                writeBlock(channel, BLOCK_MAGIC, body.finish(), deflater, deflated);
+                blocks++;
+                progress.accept((double) end / distinct.size());
+            }
+            body.clear();
+            body.putInt(blocks);
+            body.putLong(items.size());
+            writeBlock(channel, END_MAGIC, body.finish(), null, null);
+            channel.force(true);
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+        releaseMappings(path);
+        try {
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        progress.accept(1);
+    }
+
+    // Entries [start, end) with their own string and template tables, so the block decodes without the others
+    private static void writeBlockBody(BlockWriter out, List<Item> distinct, List<Integer> quantities, int start, int end) {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        Map<ItemTemplate, Integer> templates = new IdentityHashMap<>();
+        List<ItemTemplate> templateOrder = new ArrayList<>();
+        for (int i = start; i < end; i++) {
+            Item item = distinct.get(i);
+            ItemTemplate template = item.getTemplate();
+            if (template != null && !templates.containsKey(template)) {
+                templates.put(template, templateOrder.size());
+                templateOrder.add(template);
+                intern(strings, template.getName());
+                intern(strings, template.getDescription());
+                intern(strings, template.getDamageRoll());
+            }
+            intern(strings, item.getName());
+            intern(strings, item.getDescription());
+            if (item instanceof Weapon) {
+                intern(strings, ((Weapon) item).getDamageRoll());
+            }
+        }
+
+        out.putInt(strings.size());
+        for (String value : strings.keySet()) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.putInt(bytes.length);
+            out.putBytes(bytes);
+        }
+
+        out.putInt(templateOrder.size());
+        for (ItemTemplate template : templateOrder) {
+            out.putByte(typeTag(template.getItemType()));
+            out.putInt(ref(strings, template.getName()));
+            out.putInt(ref(strings, template.getDescription()));
+            out.putDouble(template.getPrice());
+            out.putDouble(template.getWeight());
+            out.putInt(ref(strings, template.getDamageRoll()));
+            out.putInt(template.getDefense());
+        }
+
+        out.putInt(end - start);
+        long previousId = 0;
+        for (int i = start; i < end; i++) {
+            Item item = distinct.get(i);
+            ItemTemplate template = item.getTemplate();
+            byte type = typeTag(item);
+            boolean priceInHundredths = isHundredths(item.getPrice());
+            boolean weightInHundredths = isHundredths(item.getWeight());
+            out.putByte((byte) (type | (priceInHundredths ? PRICE_IN_HUNDREDTHS : 0) | (weightInHundredths ? WEIGHT_IN_HUNDREDTHS : 0)));
+            out.putVarLong(zigzag(item.getId() - previousId));
+            previousId = item.getId();
+            out.putVarLong(template == null ? 0 : templates.get(template) + 1);
+            out.putVarLong(template != null && template.getName().equals(item.getName()) ? 0 : ref(strings, item.getName()) + 1);
+            out.putVarLong(template != null && template.getDescription().equals(item.getDescription()) ? 0 : ref(strings, item.getDescription()) + 1);
+            putAmount(out, item.getPrice(), priceInHundredths);
+            putAmount(out, item.getWeight(), weightInHundredths);
+            if (type == WEAPON) {
+                out.putVarLong(template == null ? ref(strings, ((Weapon) item).getDamageRoll()) + 1 : 0);
+            } else if (type == ARMOR) {
+                out.putVarLong(zigzag(((Armor) item).getDefense()));
+            }
+            out.putVarLong(quantities.get(i));
+        }
+    }
+
+    // deflater and deflated (its output buffer) are null for a block stored as is
+    private static void writeBlock(FileChannel channel, int magic, ByteBuffer body, Deflater deflater, BlockWriter deflated) throws IOException {
+        ByteBuffer payload = body;
+        int flags = 0;
+        if (deflater != null) {
+            deflated.clear();
+            deflated.putInt(body.remaining());
+            deflater.reset();
+            deflater.setInput(body);
+            deflater.finish();
+            while (!deflater.finished()) {
+                deflated.deflate(deflater);
+            }
+            payload = deflated.finish();
+            flags = DEFLATED;
+        }
+        ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+        header.putInt(magic).putInt(payload.remaining() | flags).putInt(checksum(header, payload)).flip();
+        writeFully(channel, header);
+        writeFully(channel, payload);
+    }
+
+    // CRC32C of the block's length field (bytes 4-7 of header) and payload, leaving both buffers' positions alone
+    private static int checksum(ByteBuffer header, ByteBuffer payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(header.duplicate().position(4).limit(8));
+        crc.update(payload.duplicate());
+        return (int) crc.getValue();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    // Reads every block from the channel, checking each before decoding it
+    public static List<Item> read(Path path) throws IOException {
+        ByteBuffer header = readFileHeader(path);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (header.getInt(0) == COMPRESSED_MAGIC) {
+                channel.position(4);
+                Inflater inflater = new Inflater();
+                try {
+                    InflaterInputStream inflated = new InflaterInputStream(Channels.newInputStream(channel), inflater, BUFFER_SIZE);
+                    return readVersion1(new ChannelReader(Channels.newChannel(inflated)), null, null, path);
+                } finally {
+                    inflater.end();
+                }
+            }
+            if (header.getInt(0) == MAGIC && header.getInt(4) == 1) {
+                return readVersion1(new ChannelReader(channel), null, null, path);
+            }
+            return readBlocks(new ChannelBlocks(channel), null, path);
+        }
+    }
+
+    // Memory-maps the file and decodes only what the inventory indexes need up front: ids, names, types, numeric
+    // fields and the template table. Item descriptions stay in the mapping and are decoded on first
+    // getDescription(), which saves decoding and allocating a String per description. Every byte is still read
+    // once: block checksums cover the descriptions too, so that a damaged description is caught at load time
+    // rather than on first use. Loading stays linear in the file size, just at checksum speed for the descriptions.
+    // Compressed files are inflated block by block instead, with nothing left to decode later.
+    public static List<Item> map(Path path) throws IOException {
+        ByteBuffer header = readFileHeader(path);
+        if (header.getInt(0) == COMPRESSED_MAGIC) {
+            return read(path);
+        }
+        // Mapped into arenas rather than as plain MappedByteBuffers, so the file is unmapped on demand instead of
+        // whenever a buffer happens to be garbage collected. Checksums and inflation need buffer addresses, which
+        // are only handed out for confined mappings, so loading reads a confined mapping that is unmapped as soon
+        // as it is done; deferred descriptions are decoded on any thread from a second, shared mapping.
+        Mapping mapping = new Mapping(Arena.ofShared());
+        List<Item> items;
+        try (Arena loading = Arena.ofConfined(); FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), loading).asByteBuffer();
+            // The shared mapping outlives the channel; writers replace the file rather than truncating it under us
+            mapping.map(channel);
+            items = header.getInt(0) == MAGIC && header.getInt(4) == 1
+                    ? readVersion1(new BufferReader(mapped), mapped, mapping, path)
+                    : readBlocks(new MappedBlocks(mapped), mapping, path);
+        } catch (IOException | RuntimeException e) {
+            mapping.release();
+            throw e;
+        }
+        mapping.register(path);
+        return items;
+    }
+
+    // Called before path is replaced; items loaded from it keep working, now from heap copies
+    private static void releaseMappings(Path path) {
+        List<WeakReference<Mapping>> released;
+        synchronized (mappings) {
+            released = mappings.remove(path.toAbsolutePath().normalize());
+        }
+        if (released != null) {
+            for (WeakReference<Mapping> reference : released) {
+                Mapping mapping = reference.get();
+                if (mapping != null) {
+                    mapping.release();
+                }
+            }
+        }
+    }
+
+    // mapped is the buffer that in reads from when mapping (and mapping its owner), both null when reading from a channel
+    private static List<Item> readVersion1(Input in, ByteBuffer mapped, Mapping mapping, Path path) throws IOException {
+        if (in.getInt() != MAGIC) {
+            throw new IOException("Not a binary inventory file: " + path);
+        }
+        int version = in.getInt();
+        if (version != 1) {
+            throw new IOException("Unsupported inventory file version " + version + ": " + path);
+        }
+        List<Item> items = new ArrayList<>();
+        readBody(in, mapped, 0, mapping, new HashMap<>(), items);
+        return items;
+    }
+
+    // Verifies all checksums first, then decodes the intact blocks. Damage never fails the load: what survived is
+    // returned, the file is copied aside, and the damage is reported. mapping is null unless descriptions may be
+    // left in the mapped file.
+    private static List<Item> readBlocks(Blocks file, Mapping mapping, Path path) throws IOException {
+        ByteBuffer header = file.slice(0, (int) Math.min(FILE_HEADER_SIZE, file.size()));
+        if (header.remaining() < FILE_HEADER_SIZE || header.getInt(0) != MAGIC) {
+            throw new IOException("Not a binary inventory file: " + path);
+        }
+        int version = header.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported inventory file version " + version + ": " + path);
+        }
+
+        List<ByteBuffer> intact = new ArrayList<>();
+        List<Long> offsets = new ArrayList<>();
+        List<Boolean> deflated = new ArrayList<>();
+        int damagedRegions = 0;
+        int expectedBlocks = -1;
+        long expectedItems = -1;
+        boolean inDamage = false;
+        long position = FILE_HEADER_SIZE;
+        while (position < file.size()) {
+            ByteBuffer payload = intactBlock(file, position);
+            if (payload == null) {
+                // Resynchronise on the next block magic; only the damaged stretch is scanned
+                if (!inDamage) {
+                    damagedRegions++;
+                    inDamage = true;
+                }
+                position = nextCandidate(file, position + 1);
+                if (position < 0) {
+                    break;
+                }
+                continue;
+            }
+            inDamage = false;
+            ByteBuffer blockHeader = file.slice(position, BLOCK_HEADER_SIZE);
+            if (blockHeader.getInt(0) == END_MAGIC) {
+                if (payload.remaining() >= 12) {
+                    expectedBlocks = payload.getInt(0);
+                    expectedItems = payload.getLong(4);
+                }
+                break;
+            }
+            intact.add(payload);
+            offsets.add(position + BLOCK_HEADER_SIZE);
+            deflated.add((blockHeader.getInt(4) & DEFLATED) != 0);
+            position += BLOCK_HEADER_SIZE + payload.remaining();
+        }
+
+        List<Item> items = new ArrayList<>();
+        // The same id always maps back to the same instance, as it was when saved
+        Map<Long, Item> byId = new HashMap<>();
+        int decoded = 0;
+        for (int i = 0; i < intact.size(); i++) {
+            List<Item> blockItems = new ArrayList<>();
+            try {
+                if (deflated.get(i)) {
+                    readBody(new BufferReader(inflate(intact.get(i))), null, 0, null, byId, blockItems);
+                } else {
+                    ByteBuffer body = intact.get(i);
+                    readBody(new BufferReader(body), mapping != null ? body : null, offsets.get(i), mapping, byId, blockItems);
+                }
+                items.addAll(blockItems);
+                decoded++;
+            } catch (IOException | RuntimeException e) {
+                // Checksum matched but the contents do not decode; the block is lost, not the file
+                damagedRegions++;
+            }
+        }
+
+        boolean complete = damagedRegions == 0 && expectedBlocks == decoded && expectedItems == items.size();
+        if (!complete) {
+            Path backup = preserveDamagedFile(path);
+            String expected = expectedBlocks < 0 ? "the end marker is missing" : expectedBlocks + " blocks and " + expectedItems + " items expected";
+            System.err.println("Inventory file " + path + " is damaged (" + damagedRegions + " damaged regions, " + expected + "); recovered "
+                    + decoded + " blocks with " + items.size() + " items" + (backup != null ? ", original kept as " + backup : ""));
+        }
+        return items;
+    }
+
+    // The payload of the block or trailer at position if it is whole and its checksum matches, otherwise null
+    private static ByteBuffer intactBlock(Blocks file, long position) throws IOException {
+        if (position + BLOCK_HEADER_SIZE > file.size()) {
+            return null;
+        }
+        ByteBuffer header = file.slice(position, BLOCK_HEADER_SIZE);
+        int magic = header.getInt(0);
+        int length = header.getInt(4) & ~DEFLATED;
+        if ((magic != BLOCK_MAGIC && magic != END_MAGIC) || length < 0 || position + BLOCK_HEADER_SIZE + length > file.size()) {
+            return null;
+        }
+        ByteBuffer payload = file.slice(position + BLOCK_HEADER_SIZE, length);
+        return checksum(header, payload) == header.getInt(8) ? payload : null;
+    }
+
+    // Offset of the next block or trailer magic at or after from, or -1; a match inside item data is weeded out
+    // by intactBlock
+    private static long nextCandidate(Blocks file, long from) throws IOException {
+        for (long window = from; window + 4 <= file.size(); window += SCAN_WINDOW) {
+            int length = (int) Math.min(SCAN_WINDOW + 3, file.size() - window);
+            ByteBuffer bytes = file.slice(window, length);
+            for (int i = 0; i + 4 <= length; i++) {
+                int value = bytes.getInt(i);
+                if (value == BLOCK_MAGIC || value == END_MAGIC) {
+                    return window + i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static ByteBuffer inflate(ByteBuffer payload) throws IOException {
+        int length = payload.getInt(0);
+        if (length < 0) {
+            throw new IOException("Negative block length " + length);
+        }
+        ByteBuffer body = ByteBuffer.allocate(length);
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(payload.duplicate().position(4));
+            while (body.hasRemaining() && !inflater.finished()) {
+                if (inflater.inflate(body) == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated compressed block");
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt compressed block: " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+        if (body.hasRemaining()) {
+            throw new IOException("Compressed block shorter than its length");
+        }
+        return body.flip();
+    }
+
+    // Decodes one body (a block, or the whole of a version 1 file) into items. mapped is the buffer in reads from
+    // when descriptions may stay undecoded, found at offset in the file and in mapping (which then tracks the
+    // string table); both null to decode everything now.
+    private static void readBody(Input in, ByteBuffer mapped, long offset, Mapping mapping, Map<Long, Item> byId, List<Item> items) throws IOException {
+        StringTable strings;
+        if (mapping != null) {
+            strings = new StringTable(in.getInt(), mapping, mapping.slice(offset, mapped.capacity()));
+            mapping.add(strings);
+        } else {
+            strings = new StringTable(in.getInt(), null, null);
+        }
+        for (int i = 0; i < strings.size(); i++) {
+            int length = in.getInt();
+            if (mapped == null) {
+                strings.set(i, new String(in.getBytes(length), StandardCharsets.UTF_8));
+                continue;
+            }
+            if (length < 0 || length > mapped.remaining()) {
+                throw new IOException("String length out of range: " + length);
+            }
+            strings.locate(i, mapped.position(), length);
+            mapped.position(mapped.position() + length);
+        }
+
+        ItemTemplate[] templates = new ItemTemplate[in.getInt()];
+        for (int i = 0; i < templates.length; i++) {
+            String type = typeName(in.getByte());
+            String name = strings.get(in.getInt());
+            int descriptionRef = in.getInt();
+            // Left in the mapping like item descriptions; most items take theirs from the template
+            boolean deferred = strings.isDeferred(descriptionRef);
+            String description = deferred ? null : strings.get(descriptionRef);
+            double price = in.getDouble();
+            double weight = in.getDouble();
+            String damageRoll = strings.get(in.getInt());
+            int defense = in.getInt();
+            templates[i] = deferred
+                    ? StoredItems.template(type, name, strings.deferred(descriptionRef), price, weight, damageRoll, defense)
+                    : ItemTemplateCatalog.intern(new ItemTemplate(type, name, description, price, weight, damageRoll, defense));
+        }
+
+        int count = in.getInt();
+        long id = 0;
+        for (int i = 0; i < count; i++) {
+            int header = in.getByte();
+            byte type = (byte) (header & TYPE_MASK);
+            id += unzigzag(in.getVarLong());
+            int template = (int) in.getVarLong() - 1;
+            String name = strings.get((int) in.getVarLong() - 1);
+            int descriptionRef = (int) in.getVarLong() - 1;
+            boolean deferred = strings.isDeferred(descriptionRef);
+            String description = deferred ? null : strings.get(descriptionRef);
+            double price = getAmount(in, (header & PRICE_IN_HUNDREDTHS) != 0);
+            double weight = getAmount(in, (header & WEIGHT_IN_HUNDREDTHS) != 0);
+            String damageRoll = type == WEAPON ? strings.get((int) in.getVarLong() - 1) : null;
+            int defense = type == ARMOR ? (int) unzigzag(in.getVarLong()) : 0;
+            long quantity = in.getVarLong();
+            if (template >= templates.length) {
+                throw new IOException("Template reference out of range: " + template);
+            }
+
+            Item item = id != 0 ? byId.get(id) : null;
+            if (item == null) {
+                Supplier<String> deferredDescription = deferred ? strings.deferred(descriptionRef) : null;
+                item = template >= 0
+                        ? StoredItems.fromTemplate(templates[template], id, name, description, deferredDescription, price, weight)
+                        : StoredItems.fromFields(typeName(type), id, name, description, deferredDescription, price, weight, damageRoll, defense);
+                if (id != 0) {
+                    byId.put(id, item);
+                }
+            }
+            for (long q = 0; q < quantity; q++) {
+                items.add(item);
+            }
+        }
+    }
+
+    // Self-contained encoding of a single item (no shared string or template tables), for records such as
+    // journal entries: byte type, long id, then the template if any, name/description overrides, price, weight,
+    // damage roll and defense. Strings are nullable and length-prefixed.
+    static void writeItem(DataOutput out, Item item) throws IOException {
+        ItemTemplate template = item.getTemplate();
+        out.writeByte(typeTag(item));
+        out.writeLong(item.getId());
+        out.writeBoolean(template != null);
+        if (template != null) {
+            out.writeByte(typeTag(template.getItemType()));
+            writeString(out, template.getName());
+            writeString(out, template.getDescription());
+            out.writeDouble(template.getPrice());
+            out.writeDouble(template.getWeight());
+            writeString(out, template.getDamageRoll());
+            out.writeInt(template.getDefense());
+        }
+        writeString(out, template != null && template.getName().equals(item.getName()) ? null : item.getName());
+        writeString(out, template != null && template.getDescription().equals(item.getDescription()) ? null : item.getDescription());
+        out.writeDouble(item.getPrice());
+        out.writeDouble(item.getWeight());
+        writeString(out, item instanceof Weapon && template == null ? ((Weapon) item).getDamageRoll() : null);
+        out.writeInt(item instanceof Armor ? ((Armor) item).getDefense() : 0);
+    }
+
+    static Item readItem(DataInput in) throws IOException {
+        byte type = in.readByte();
+        long id = in.readLong();
+        ItemTemplate template = null;
+        if (in.readBoolean()) {
+            String templateType = typeName(in.readByte());
+            template = ItemTemplateCatalog.intern(new ItemTemplate(templateType, readString(in), readString(in), in.readDouble(), in.readDouble(), readString(in), in.readInt()));
+        }
+        String name = readString(in);
+        String description = readString(in);
+        double price = in.readDouble();
+        double weight = in.readDouble();
+        String damageRoll = readString(in);
+        int defense = in.readInt();
+        return template != null
+                ? StoredItems.fromTemplate(template, id, name, description, null, price, weight)
+                : StoredItems.fromFields(typeName(type), id, name, description, null, price, weight, damageRoll, defense);
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < -1) {
+            throw new IOException("Negative string length " + length);
+        }
+        if (length == -1) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Most prices and weights have at most two decimals, which fit a short varint instead of eight bytes
+    private static boolean isHundredths(double value) {
+        double hundredths = Math.rint(value * 100);
+        return hundredths >= 0 && hundredths < (1L << 53) && hundredths / 100 == value;
+    }
+
+    private static void putAmount(BlockWriter out, double value, boolean inHundredths) {
+        if (inHundredths) {
+            out.putVarLong((long) Math.rint(value * 100));
+        } else {
+            out.putDouble(value);
+        }
+    }
+
+    private static double getAmount(Input in, boolean inHundredths) throws IOException {
+        return inHundredths ? in.getVarLong() / 100.0 : in.getDouble();
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void intern(Map<String, Integer> strings, String value) {
+        if (value != null) {
+            strings.putIfAbsent(value, strings.size());
+        }
+    }
+
+    private static int ref(Map<String, Integer> strings, String value) {
+        return value == null ? -1 : strings.get(value);
+    }
+
+    private static byte typeTag(Item item) {
+        return item instanceof Weapon ? WEAPON : item instanceof Armor ? ARMOR : REGULAR;
+    }
+
+    private static byte typeTag(String itemType) {
+        return itemType.equalsIgnoreCase("Weapon") ? WEAPON : itemType.equalsIgnoreCase("Armor") ? ARMOR : REGULAR;
+    }
+
+    private static String typeName(byte tag) throws IOException {
+        switch (tag) {
+            case WEAPON:
+                return "Weapon";
+            case ARMOR:
+                return "Armor";
+            case REGULAR:
+                return "Regular";
+            default:
+                throw new IOException("Unknown item type tag " + tag);
+        }
+    }
+
+    // Growable heap buffer a block is encoded into before it is checksummed and written
+    private static final class BlockWriter {
+        private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        private void clear() {
+            buffer.clear();
+        }
+
+        // Flips the buffer for reading; clear() before writing again
+        private ByteBuffer finish() {
+            return buffer.flip();
+        }
+
+        private void putByte(byte value) {
+            ensure(1);
+            buffer.put(value);
+        }
+
+        private void putInt(int value) {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        private void putLong(long value) {
+            ensure(8);
+            buffer.putLong(value);
+        }
+
+        private void putDouble(double value) {
+            ensure(8);
+            buffer.putDouble(value);
+        }
+
+        // Unsigned LEB128: seven bits per byte, high bit set on all but the last
+        private void putVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        private void putBytes(byte[] bytes) {
+            ensure(bytes.length);
+            buffer.put(bytes);
+        }
+
+        // Deflates into the free space, growing it first if it is nearly full
+        private void deflate(Deflater deflater) {
+            ensure(BUFFER_SIZE / 4);
+            deflater.deflate(buffer);
+        }
+
+        private void ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+                grown.put(buffer.flip());
+                buffer = grown;
+            }
+        }
+    }
+
+    // A whole version 2 file, read in slices of absolute position and length
+    private interface Blocks {
+        long size() throws IOException;
+
+        ByteBuffer slice(long position, int length) throws IOException;
+    }
+
+    // Slices share the mapping, so checking and decoding a block copies nothing
+    private static final class MappedBlocks implements Blocks {
+        private final ByteBuffer mapped;
+
+        private MappedBlocks(ByteBuffer mapped) {
+            this.mapped = mapped;
+        }
+
+        @Override
+        public long size() {
+            return mapped.capacity();
+        }
+
+        @Override
+        public ByteBuffer slice(long position, int length) {
+            return mapped.slice((int) position, length);
+        }
+    }
+
+    // Slices are positional reads into fresh heap buffers, at most one block at a time
+    private static final class ChannelBlocks implements Blocks {
+        private final FileChannel channel;
+
+        private ChannelBlocks(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return channel.size();
+        }
+
+        @Override
+        public ByteBuffer slice(long position, int length) throws IOException {
+            ByteBuffer bytes = ByteBuffer.allocate(length);
+            while (bytes.hasRemaining()) {
+                if (channel.read(bytes, position + bytes.position()) < 0) {
+                    throw new EOFException("Inventory file ends unexpectedly");
+                }
+            }
+            return bytes.flip();
+        }
+    }
+
+    // String table entries: decoded while reading, or for a mapped file only located and decoded on first use
+    private static final class StringTable {
+        private final String[] decoded;
+        // null for a table decoded while reading, and once detached
+        private ByteBuffer mapped;
+        // Held so the mapping, and with it the arena behind mapped, stays open while any deferred string of this
+        // table is reachable; the cleaner only unmaps once the items decoding from it are gone
+        private Mapping mapping;
+        private final int[] offsets;
+        private final int[] lengths;
+
+        private StringTable(int size, Mapping mapping, ByteBuffer mapped) throws IOException {
+            if (size < 0) {
+                throw new IOException("Negative string count " + size);
+            }
+            this.decoded = new String[size];
+            this.mapping = mapping;
+            this.mapped = mapped;
+            this.offsets = mapped != null ? new int[size] : null;
+            this.lengths = mapped != null ? new int[size] : null;
+        }
+
+        private int size() {
+            return decoded.length;
+        }
+
+        private void set(int ref, String value) {
+            decoded[ref] = value;
+        }
+
+        private void locate(int ref, int offset, int length) {
+            offsets[ref] = offset;
+            lengths[ref] = length;
+        }
+
+        private String get(int ref) throws IOException {
+            check(ref);
+            return ref == -1 ? null : decode(ref);
+        }
+
+        // True if the entry can be left in the mapping until something asks for it
+        private boolean isDeferred(int ref) throws IOException {
+            check(ref);
+            return mapped != null && ref >= 0 && decoded[ref] == null;
+        }
+
+        private Supplier<String> deferred(int ref) {
+            return () -> decode(ref);
+        }
+
+        private String decode(int ref) {
+            String value = decoded[ref];
+            return value != null ? value : decodeMapped(ref);
+        }
+
+        // Locked against detach(), which unmaps the file right after it
+        private synchronized String decodeMapped(int ref) {
+            String value = decoded[ref];
+            if (value == null) {
+                byte[] bytes = new byte[lengths[ref]];
+                mapped.get(offsets[ref], bytes);
+                value = new String(bytes, StandardCharsets.UTF_8);
+                decoded[ref] = value;
+            }
+            return value;
+        }
+
+        // Copies every entry still in the mapping onto the heap and stops reading from the mapping
+        private synchronized void detach() {
+            if (mapped == null) {
+                return;
+            }
+            for (int ref = 0; ref < decoded.length; ref++) {
+                decodeMapped(ref);
+            }
+            mapped = null;
+            mapping = null;
+        }
+
+        private void check(int ref) throws IOException {
+            if (ref < -1 || ref >= decoded.length) {
+                throw new IOException("String reference out of range: " + ref);
+            }
+        }
+    }
+
+    // A file mapped by map(). Its arena stays open while items may still decode descriptions from it, and is closed
+    // by release() before the file is replaced, or by the cleaner once all of those items are garbage collected.
+    private static final class Mapping {
+        private final Arena arena;
+        private final Cleaner.Cleanable unmap;
+        private ByteBuffer shared;
+        // Only added to while the file is being read, before the mapping is registered
+        private final List<StringTable> tables = new ArrayList<>();
+
+        private Mapping(Arena arena) {
+            this.arena = arena;
+            // The action must not reference this Mapping, or it would never become unreachable
+            unmap = cleaner.register(this, arena::close);
+        }
+
+        private void map(FileChannel channel) throws IOException {
+            shared = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena).asByteBuffer();
+        }
+
+        private ByteBuffer slice(long offset, int length) {
+            return shared.slice((int) offset, length);
+        }
+
+        private void add(StringTable table) {
+            tables.add(table);
+        }
+
+        // Nothing left to decode later: unmap right away instead of registering
+        private void register(Path path) {
+            if (tables.isEmpty()) {
+                release();
+                return;
+            }
+            synchronized (mappings) {
+                List<WeakReference<Mapping>> registered = mappings.computeIfAbsent(path.toAbsolutePath().normalize(), key -> new ArrayList<>());
+                registered.removeIf(reference -> reference.get() == null);
+                registered.add(new WeakReference<>(this));
+            }
+        }
+
+        private void release() {
+            for (StringTable table : tables) {
+                table.detach();
+            }
+            unmap.clean();
+        }
+    }
+
+    private interface Input {
+        byte getByte() throws IOException;
+
+        int getInt() throws IOException;
+
+        double getDouble() throws IOException;
+
+        long getVarLong() throws IOException;
+
+        byte[] getBytes(int length) throws IOException;
+    }
+
+    // Reads straight from a (mapped) buffer that already holds the whole file
+    private static final class BufferReader implements Input {
+        private final ByteBuffer buffer;
+
+        private BufferReader(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public byte getByte() throws IOException {
+            ensure(1);
+            return buffer.get();
+        }
+
+        @Override
+        public int getInt() throws IOException {
+            ensure(4);
+            return buffer.getInt();
+        }
+
+        @Override
+        public double getDouble() throws IOException {
+            ensure(8);
+            return buffer.getDouble();
+        }
+
+        @Override
+        public long getVarLong() throws IOException {
+            return readVarLong(this);
+        }
+
+        @Override
+        public byte[] getBytes(int length) throws IOException {
+            if (length < 0) {
+                throw new IOException("Negative string length " + length);
+            }
+            ensure(length);
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return bytes;
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                throw new EOFException("Inventory file ends unexpectedly");
+            }
+        }
+    }
+
+    // Unsigned LEB128, as written by BlockWriter.putVarLong
+    private static long readVarLong(Input in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte next = in.getByte();
+            value |= (long) (next & 0x7F) << shift;
+            if (next >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in inventory file");
+    }
+
+    // Refills a fixed-size buffer from the channel as values are consumed
+    private static final class ChannelReader implements Input {
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        private ChannelReader(ReadableByteChannel channel) {
+            this.channel = channel;
+            buffer.flip();
+        }
+
+        @Override
+        public byte getByte() throws IOException {
+            ensure(1);
+            return buffer.get();
+        }
+
+        @Override
+        public int getInt() throws IOException {
+            ensure(4);
+            return buffer.getInt();
+        }
+
+        @Override
+        public double getDouble() throws IOException {
+            ensure(8);
+            return buffer.getDouble();
+        }
+
+        @Override
+        public long getVarLong() throws IOException {
+            return readVarLong(this);
+        }
+
+        @Override
+        public byte[] getBytes(int length) throws IOException {
+            if (length < 0) {
+                throw new IOException("Negative string length " + length);
+            }
+            byte[] bytes = new byte[length];
+            int offset = 0;
+            while (offset < length) {
+                ensure(1);
+                int chunk = Math.min(buffer.remaining(), length - offset);
+                buffer.get(bytes, offset, chunk);
+                offset += chunk;
+            }
+            return bytes;
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("Inventory file ends unexpectedly");
+                }
+            }
+            buffer.flip();
+        }
+    }
+}
@@ -0,0 +1,465 @@
+package FileManagement;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.DoubleConsumer;
+import InputValidation.DamageValidator;
+import InputValidation.DoubleValidator;
+import InputValidation.IInputValidator;
+import InputValidation.ItemTypeValidator;
+import InputValidation.NumberValidator;
+import InputValidation.StringValidator;
+import Items.IItemFactory;
+import Items.Item;
+
+// Reads item catalogs in the CSV or JSON Lines layout written by ExportFormat, in chunks of CHUNK_SIZE rows.
+// The reading thread only splits the input into rows; parsing, validation (with the validators the add-item
+// dialogs use) and item creation run on the common ForkJoin pool, at most MAX_IN_FLIGHT chunks ahead of the
+// reader. Bad rows are reported by line number and skipped. Ids in the file are ignored: imported items are
+// new items. Callers bulk-load the result with IInventoryService.addAllItems on their own thread.
+// A row's quantity is expanded into that many list entries, so it is capped at MAX_QUANTITY: one mistyped
+// row must not be able to exhaust the heap.
+public class InventoryImporter {
+    private static final int CHUNK_SIZE = 4096;
+    private static final int MAX_IN_FLIGHT = Math.max(2, ForkJoinPool.getCommonPoolParallelism() * 2);
+    private static final int BUFFER_SIZE = 64 * 1024;
+    static final int MAX_QUANTITY = 10_000;
+    private static final ExecutorService BACKGROUND = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "inventory-import");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Shared by every worker; the validators keep no state
+    private static final IInputValidator<String> TYPE_VALIDATOR = new ItemTypeValidator();
+    private static final IInputValidator<String> TEXT_VALIDATOR = new StringValidator();
+    private static final IInputValidator<Double> AMOUNT_VALIDATOR = new DoubleValidator(0.0, Double.MAX_VALUE);
+    private static final IInputValidator<String> DAMAGE_VALIDATOR = new DamageValidator();
+    private static final IInputValidator<Integer> DEFENSE_VALIDATOR = new NumberValidator(0, 1000);
+    private static final IInputValidator<Integer> QUANTITY_VALIDATOR = new NumberValidator(1, MAX_QUANTITY);
+
+    private InventoryImporter() {
+    }
+
+    // CSV or JSONL by file extension, null for anything else
+    public static ExportFormat formatFor(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return ExportFormat.CSV;
+        }
+        if (name.endsWith(".jsonl") || name.endsWith(".json")) {
+            return ExportFormat.JSONL;
+        }
+        return null;
+    }
+
+    // Progress is the fraction of the file read so far
+    public static ImportResult importItems(Path path, ExportFormat format, IItemFactory factory, DoubleConsumer progress) throws IOException {
+        if (format != ExportFormat.CSV && format != ExportFormat.JSONL) {
+            throw new IllegalArgumentException("Only CSV and JSON Lines can be imported, not " + format);
+        }
+        List<Item> items = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        int rows = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+             BufferedReader reader = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            long size = Math.max(1, channel.size());
+            progress.accept(0);
+            LineSource lines = new LineSource(reader);
+            String[] header = null;
+            if (format == ExportFormat.CSV) {
+                Row headerRow = nextCsvRow(lines);
+                if (headerRow == null) {
+                    return new ImportResult(items, errors, 0);
+                }
+                header = parseCsv(headerRow.text).toArray(new String[0]);
+            }
+            // Chunks complete out of order but are collected in file order
+            Deque<CompletableFuture<Chunk>> inFlight = new ArrayDeque<>();
+            List<Row> chunk = new ArrayList<>(CHUNK_SIZE);
+            Row row;
+            while ((row = format == ExportFormat.CSV ? nextCsvRow(lines) : nextJsonRow(lines)) != null) {
+                chunk.add(row);
+                rows++;
+                if (chunk.size() == CHUNK_SIZE) {
+                    inFlight.add(submit(chunk, header, factory));
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                    if (inFlight.size() >= MAX_IN_FLIGHT) {
+                        collect(inFlight.poll(), items, errors);
+                    }
+                    progress.accept(Math.min(1.0, (double) channel.position() / size));
+                }
+            }
+            if (!chunk.isEmpty()) {
+                inFlight.add(submit(chunk, header, factory));
+            }
+            while (!inFlight.isEmpty()) {
+                collect(inFlight.poll(), items, errors);
+            }
+            progress.accept(1);
+        }
+        return new ImportResult(items, errors, rows);
+    }
+
+    // Runs importItems on a background thread
+    public static CompletableFuture<ImportResult> importInBackground(Path path, ExportFormat format, IItemFactory factory, DoubleConsumer progress) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return importItems(path, format, factory, progress);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, BACKGROUND);
+    }
+
+    private static CompletableFuture<Chunk> submit(List<Row> rows, String[] header, IItemFactory factory) {
+        return CompletableFuture.supplyAsync(() -> parseChunk(rows, header, factory), ForkJoinPool.commonPool());
+    }
+
+    private static void collect(CompletableFuture<Chunk> future, List<Item> items, List<String> errors) {
+        Chunk chunk = future.join();
+        items.addAll(chunk.items);
+        errors.addAll(chunk.errors);
+    }
+
+    // header is null for JSON Lines rows
+    private static Chunk parseChunk(List<Row> rows, String[] header, IItemFactory factory) {
+        Chunk chunk = new Chunk();
+        for (Row row : rows) {
+            try {
+                Map<String, String> fields = header != null ? csvFields(header, parseCsv(row.text)) : parseJsonObject(row.text);
+                addItems(fields, factory, chunk.items);
+            } catch (IllegalArgumentException e) {
+                chunk.errors.add("Line " + row.line + ": " + e.getMessage());
+            }
+        }
+        return chunk;
+    }
+
+    private static void addItems(Map<String, String> fields, IItemFactory factory, List<Item> items) {
+        String type = check(TYPE_VALIDATOR, trimmed(fields.get("type")), "type");
+        String name = check(TEXT_VALIDATOR, fields.get("name"), "name");
+        String description = check(TEXT_VALIDATOR, fields.get("description"), "description");
+        double price = check(AMOUNT_VALIDATOR, parseDouble(fields.get("price"), "price"), "price");
+        double weight = check(AMOUNT_VALIDATOR, parseDouble(fields.get("weight"), "weight"), "weight");
+        String damageRoll = null;
+        int defense = 0;
+        if (type.equalsIgnoreCase("Weapon")) {
+            damageRoll = check(DAMAGE_VALIDATOR, trimmed(fields.get("damage")), "damage");
+        } else if (type.equalsIgnoreCase("Armor")) {
+            defense = check(DEFENSE_VALIDATOR, parseInt(fields.get("armorClass"), "armorClass"), "armorClass");
+        }
+        String quantityField = trimmed(fields.get("quantity"));
+        int quantity = quantityField == null || quantityField.isEmpty() ? 1 : check(QUANTITY_VALIDATOR, parseInt(quantityField, "quantity"), "quantity");
+
+        Item item = factory.createItem(type, name, description, price, weight, damageRoll, defense);
+        // One instance per row, repeated, so the inventory sees a single stack
+        for (int i = 0; i < quantity; i++) {
+            items.add(item);
+        }
+    }
+
+    private static <T> T check(IInputValidator<T> validator, T value, String field) {
+        if (!validator.isValid(value)) {
+            throw new IllegalArgumentException(field + ": " + validator.getErrorMessage());
+        }
+        return value;
+    }
+
+    private static String trimmed(String value) {
+        return value != null ? value.trim() : null;
+    }
+
+    private static Double parseDouble(String value, String field) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(field + ": not a number: " + value);
+        }
+    }
+
+    private static Integer parseInt(String value, String field) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(field + ": not a whole number: " + value);
+        }
+    }
+
+    // A CSV row may span lines inside a quoted field: keep reading until the quotes balance
+    private static Row nextCsvRow(LineSource lines) throws IOException {
+        String line;
+        do {
+            line = lines.next();
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+        int start = lines.number;
+        StringBuilder text = new StringBuilder(line);
+        int quotes = countQuotes(line);
+        while (quotes % 2 != 0) {
+            String more = lines.next();
+            if (more == null) {
+                break; // Unterminated quote; parseCsv reports it
+            }
+            text.append('\n').append(more);
+            quotes += countQuotes(more);
+        }
+        return new Row(start, text.toString());
+    }
+
+    private static Row nextJsonRow(LineSource lines) throws IOException {
+        String line;
+        do {
+            line = lines.next();
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+        return new Row(lines.number, line);
+    }
+
+    private static int countQuotes(String line) {
+        int count = 0;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == '"') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // RFC 4180 fields; a doubled quote inside a quoted field is a literal quote
+    private static List<String> parseCsv(String text) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c != '\r') {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static Map<String, String> csvFields(String[] header, List<String> values) {
+        if (values.size() > header.length) {
+            throw new IllegalArgumentException("expected " + header.length + " fields, found " + values.size());
+        }
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            fields.put(header[i].trim(), values.get(i));
+        }
+        return fields;
+    }
+
+    // Flat JSON object with string, number, boolean or null values; numbers and booleans are kept as text
+    private static Map<String, String> parseJsonObject(String text) {
+        JsonCursor json = new JsonCursor(text);
+        Map<String, String> fields = new HashMap<>();
+        json.expect('{');
+        if (!json.tryConsume('}')) {
+            do {
+                String key = json.string();
+                json.expect(':');
+                fields.put(key, json.value());
+            } while (json.tryConsume(','));
+            json.expect('}');
+        }
+        json.end();
+        return fields;
+    }
+
+    private static final class JsonCursor {
+        private final String text;
+        private int position;
+
+        private JsonCursor(String text) {
+            this.text = text;
+        }
+
+        private String value() {
+            skipWhitespace();
+            if (position >= text.length()) {
+                throw error("value expected");
+            }
+            char c = text.charAt(position);
+            if (c == '"') {
+                return string();
+            }
+            if (c == '{' || c == '[') {
+                throw error("nested values are not supported");
+            }
+            int start = position;
+            while (position < text.length() && ",} \t\r".indexOf(text.charAt(position)) < 0) {
+                position++;
+            }
+            String literal = text.substring(start, position);
+            if (literal.isEmpty()) {
+                throw error("value expected");
+            }
+            return literal.equals("null") ? null : literal;
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                if (position >= text.length()) {
+                    throw error("unterminated string");
+                }
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (position >= text.length()) {
+                    throw error("unterminated escape");
+                }
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 'r':
+                        value.append('\r');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    case 'b':
+                        value.append('\b');
+                        break;
+                    case 'f':
+                        value.append('\f');
+                        break;
+                    case 'u':
+                        if (position + 4 > text.length()) {
+                            throw error("bad unicode escape");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("bad unicode escape");
+                        }
+                        position += 4;
+                        break;
+                    default:
+                        // \" \\ \/
+                        value.append(escaped);
+                }
+            }
+        }
+
+        private void expect(char c) {
+            if (!tryConsume(c)) {
+                throw error("'" + c + "' expected");
+            }
+        }
+
+        private boolean tryConsume(char c) {
+            skipWhitespace();
+            if (position < text.length() && text.charAt(position) == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void end() {
+            skipWhitespace();
+            if (position < text.length()) {
+                throw error("unexpected text after the object");
+            }
+        }
+
+        private void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("malformed JSON at column " + (position + 1) + ": " + message);
+        }
+    }
+
+    // Line reader that keeps the 1-based number of the last line returned
+    private static final class LineSource {
+        private final BufferedReader reader;
+        private int number;
+
+        private LineSource(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        private String next() throws IOException {
+            String line = reader.readLine();
+            if (line != null) {
+                number++;
+            }
+            return line;
+        }
+    }
+
+    private static final class Row {
+        private final int line;
+        private final String text;
+
+        private Row(int line, String text) {
+            this.line = line;
+            this.text = text;
+        }
+    }
+
+    private static final class Chunk {
+        private final List<Item> items = new ArrayList<>();
+        private final List<String> errors = new ArrayList<>();
+    }
+}
@@ -0,0 +1,352 @@
+package FileManagement;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleConsumer;
+import java.util.zip.CRC32;
+import Inventory.IInventoryListener;
+import Inventory.IInventoryService;
+import Inventory.InventoryChange;
+import Inventory.InventoryEvent;
+import Inventory.LongItemMap;
+import Items.Item;
+
+// Write-ahead journal next to an inventory snapshot (<inventory file>.journal). Every inventory change is
+// appended as a small record instead of rewriting the whole file; records are buffered and fsynced together
+// every COMMIT_INTERVAL_MS (group commit), so a crash loses at most that window. Once the journal grows past
+// COMPACT_THRESHOLD it is folded into a fresh snapshot and cut down to the records the snapshot does not hold,
+// by save() or in the background by AutosaveService.
+//   record  int payload length, int CRC32 of the payload, payload
+//   payload byte PUT, int quantity, item (InventoryFileFormat.writeItem)  - a stack was created
+//           byte SET, long id, int quantity                                - a stack changed, 0 once removed
+// Quantities are absolute, so replaying a record twice (e.g. after a crash mid-compaction) is harmless.
+// Replay stops at the first torn or corrupt record, which can only be the tail of the last commit.
+public class InventoryJournal implements IInventoryListener, AutoCloseable {
+    public static final String JOURNAL_SUFFIX = ".journal";
+
+    private static final byte PUT = 1;
+    private static final byte SET = 2;
+    private static final long COMMIT_INTERVAL_MS = 200;
+    private static final long COMPACT_THRESHOLD = 1024 * 1024;
+    private static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+
+    private final Path snapshotFile;
+    private final Path journalFile;
+    private final IInventoryService inventory;
+    // Replaced when compaction drops the start of the journal, guarded by this
+    private FileChannel channel;
+    private final ScheduledExecutorService flusher;
+    // Records waiting for the next commit, guarded by pendingLock
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private final Object pendingLock = new Object();
+    // Length the journal has once everything pending is committed, counted from the first byte ever journaled
+    // rather than from the start of the file; guarded by pendingLock. A mark is such a length.
+    private long appended;
+    // Bytes dropped from the front of the journal by compactions so far, guarded by this
+    private long dropped;
+    private boolean closed;
+
+    private InventoryJournal(String inventoryFile, IInventoryService inventory) throws IOException {
+        this.snapshotFile = Paths.get(inventoryFile);
+        this.journalFile = Paths.get(inventoryFile + JOURNAL_SUFFIX);
+        this.inventory = inventory;
+        this.channel = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "inventory-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Starts journaling the inventory's changes. The inventory should already hold what recover() returned.
+    // New records go after the last intact one; only a missing or legacy snapshot is rewritten right away, so
+    // ids handed to its items are persisted (and lazily loaded descriptions are not forced at login).
+    public static InventoryJournal open(String inventoryFile, IInventoryService inventory) throws IOException {
+        InventoryJournal journal = new InventoryJournal(inventoryFile, inventory);
+        try {
+            journal.start();
+        } catch (IOException e) {
+            // Don't leave the channel and flusher thread behind
+            try {
+                journal.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        return journal;
+    }
+
+    private void start() throws IOException {
+        if (!Files.exists(snapshotFile) || !InventoryFileFormat.isBinaryFile(snapshotFile)) {
+            // recover() already replayed whatever the journal holds, so the new snapshot covers all of it
+            appended = channel.size();
+            compact();
+        } else {
+            // Drop a torn tail, which would otherwise hide every record appended after it
+            channel.truncate(intactLength(Files.readAllBytes(journalFile)));
+            appended = channel.size();
+        }
+        inventory.addInventoryListener(this);
+        flusher.scheduleWithFixedDelay(this::commitQuietly, COMMIT_INTERVAL_MS, COMMIT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // Loads the snapshot through the file service (descriptions stay lazy), then replays the journal written since it
+    public static List<Item> recover(String inventoryFile, IFileService fileService) {
+        List<Item> snapshot = fileService.mapItemsFromFile(inventoryFile);
+        Path journalFile = Paths.get(inventoryFile + JOURNAL_SUFFIX);
+        if (!Files.exists(journalFile)) {
+            return snapshot;
+        }
+        // Distinct item -> quantity, in first-seen order; Item uses identity equality
+        Map<Item, Integer> quantities = new LinkedHashMap<>();
+        LongItemMap byId = new LongItemMap();
+        for (Item item : snapshot) {
+            quantities.merge(item, 1, Integer::sum);
+            if (item.getId() != 0) {
+                byId.put(item.getId(), item);
+            }
+        }
+        int replayed = 0;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(journalFile)))) {
+            byte[] payload;
+            while ((payload = nextRecord(in)) != null) {
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                byte op = record.readByte();
+                if (op == PUT) {
+                    int quantity = record.readInt();
+                    Item item = InventoryFileFormat.readItem(record);
+                    Item existing = byId.get(item.getId());
+                    if (existing != null) {
+                        item = existing;
+                    } else {
+                        byId.put(item.getId(), item);
+                    }
+                    quantities.put(item, quantity);
+                } else if (op == SET) {
+                    Item item = byId.get(record.readLong());
+                    int quantity = record.readInt();
+                    if (item != null && quantity > 0) {
+                        quantities.put(item, quantity);
+                    } else if (item != null) {
+                        quantities.remove(item);
+                        byId.remove(item.getId());
+                    }
+                } else {
+                    throw new IOException("Unknown journal record " + op);
+                }
+                replayed++;
+            }
+        } catch (IOException e) {
+            System.err.println("Error replaying inventory journal: " + e.getMessage());
+        }
+        if (replayed > 0) {
+            System.out.println(replayed + " journal records replayed from " + journalFile);
+        }
+        List<Item> items = new ArrayList<>();
+        for (Map.Entry<Item, Integer> entry : quantities.entrySet()) {
+            for (int i = 0; i < entry.getValue(); i++) {
+                items.add(entry.getKey());
+            }
+        }
+        return items;
+    }
+
+    @Override
+    public void onInventoryChanged(InventoryEvent event) {
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        try {
+            for (InventoryChange change : event.getChanges()) {
+                ByteArrayOutputStream payload = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(payload);
+                if (change.getType() == InventoryChange.Type.ADDED) {
+                    out.writeByte(PUT);
+                    out.writeInt(change.getQuantity());
+                    InventoryFileFormat.writeItem(out, change.getItem());
+                } else {
+                    out.writeByte(SET);
+                    out.writeLong(change.getItem().getId());
+                    out.writeInt(change.getQuantity());
+                }
+                out.flush();
+                appendRecord(records, payload.toByteArray());
+            }
+        } catch (IOException e) {
+            // Only in-memory streams are involved here
+            throw new IllegalStateException(e);
+        }
+        synchronized (pendingLock) {
+            pending.writeBytes(records.toByteArray());
+            appended += records.size();
+        }
+    }
+
+    // Makes every change recorded so far durable; cost is proportional to the changes, not the inventory
+    public synchronized void commit() throws IOException {
+        byte[] records;
+        synchronized (pendingLock) {
+            if (pending.size() == 0) {
+                return;
+            }
+            records = pending.toByteArray();
+            pending.reset();
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(records);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    // Commits, and folds the journal into the snapshot once it has grown large
+    public void save() throws IOException {
+        commit();
+        if (needsCompaction()) {
+            compact();
+        }
+    }
+
+    public synchronized boolean needsCompaction() throws IOException {
+        return channel.size() >= COMPACT_THRESHOLD;
+    }
+
+    // Position in the stream of changes; take it together with the items passed to compact(items, mark, ...)
+    public long mark() {
+        synchronized (pendingLock) {
+            return appended;
+        }
+    }
+
+    // Rewrites the snapshot from the inventory and empties the journal. Call on the thread that mutates it.
+    public void compact() throws IOException {
+        compact(inventory.getAllItems(), mark(), fraction -> { });
+    }
+
+    // Writes items, captured at mark, as the new snapshot (InventoryFileFormat.write replaces it atomically, so
+    // the old one survives a crash mid-write). The slow part may run on any thread. Then drops the records up to
+    // mark, which the snapshot holds; the ones after it are kept and replay over the new snapshot.
+    public void compact(List<Item> items, long mark, DoubleConsumer progress) throws IOException {
+        InventoryFileFormat.write(items, snapshotFile, progress);
+        synchronized (this) {
+            // Puts every record before mark in the file; later ones may stay pending, they follow the kept tail
+            commit();
+            // A mark from before an earlier compaction covers nothing that is still there
+            long covered = Math.max(mark - dropped, 0);
+            if (covered == 0) {
+                return;
+            }
+            if (covered >= channel.size()) {
+                channel.truncate(0);
+                channel.force(true);
+            } else {
+                dropFront(covered);
+            }
+            dropped += covered;
+        }
+    }
+
+    // Commits what is pending and stops; compaction is left to save() or the next open
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        inventory.removeInventoryListener(this);
+        flusher.shutdown();
+        try {
+            commit();
+        } finally {
+            synchronized (this) {
+                channel.close();
+            }
+        }
+    }
+
+    // Replaces the journal with its records from offset on. The tail goes to a new file that is renamed over the
+    // journal, so a crash leaves either journal whole; the channel is closed first, as Windows will not replace
+    // an open file.
+    private void dropFront(long offset) throws IOException {
+        Path tail = journalFile.resolveSibling(journalFile.getFileName() + ".tmp");
+        try (FileChannel source = FileChannel.open(journalFile, StandardOpenOption.READ);
+             FileChannel target = FileChannel.open(tail, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = offset;
+            long end = source.size();
+            while (position < end) {
+                position += source.transferTo(position, end - position, target);
+            }
+            target.force(true);
+        }
+        channel.close();
+        try {
+            Files.move(tail, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            channel = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+    }
+
+    private void commitQuietly() {
+        try {
+            commit();
+        } catch (IOException e) {
+            System.err.println("Error writing inventory journal: " + e.getMessage());
+        }
+    }
+
+    private static void appendRecord(ByteArrayOutputStream records, byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        DataOutputStream out = new DataOutputStream(records);
+        out.writeInt(payload.length);
+        out.writeInt((int) crc.getValue());
+        out.write(payload);
+        out.flush();
+    }
+
+    private static long intactLength(byte[] journal) throws IOException {
+        long length = 0;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(journal))) {
+            byte[] payload;
+            while ((payload = nextRecord(in)) != null) {
+                length += 8 + payload.length;
+            }
+        }
+        return length;
+    }
+
+    // Next intact record's payload, or null at the end of the journal or at a torn/corrupt tail
+    private static byte[] nextRecord(DataInputStream in) throws IOException {
+        if (in.available() < 8) {
+            return null;
+        }
+        int length = in.readInt();
+        int checksum = in.readInt();
+        if (length <= 0 || length > MAX_RECORD_SIZE || in.available() < length) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue() == checksum ? payload : null;
+    }
+}
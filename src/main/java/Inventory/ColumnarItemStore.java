@@ -0,0 +1,230 @@
+package Inventory;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import Items.Armor;
+import Items.Item;
+import Items.ItemIdGenerator;
+import Items.RegularItem;
+import Items.Weapon;
+
+// Struct-of-arrays copy of the numeric item attributes: one row per distinct item, one primitive array per field.
+// Scans, sums and sorts walk contiguous arrays instead of dereferencing every Item, and switch to the common
+// ForkJoin pool once the inventory is large enough for that to pay off. Rows are not kept in insertion order;
+// the sequence column records it. Not thread-safe; the parallel paths only read.
+public class ColumnarItemStore {
+    public enum Column {
+        PRICE,
+        WEIGHT
+    }
+
+    private static final byte REGULAR = 0;
+    private static final byte WEAPON = 1;
+    private static final byte ARMOR = 2;
+    private static final int INITIAL_ROWS = 16;
+    // Below this many rows the fork/join overhead costs more than the parallel loop saves
+    private static final int PARALLEL_THRESHOLD = RowSort.PARALLEL_THRESHOLD;
+
+    private long[] ids = new long[INITIAL_ROWS];
+    // Insertion sequence of the row's stack, as used by ItemSortKey
+    private long[] sequence = new long[INITIAL_ROWS];
+    private double[] price = new double[INITIAL_ROWS];
+    private double[] weight = new double[INITIAL_ROWS];
+    private int[] defense = new int[INITIAL_ROWS];
+    private byte[] type = new byte[INITIAL_ROWS];
+    private int[] quantity = new int[INITIAL_ROWS];
+    // Kept only to hand the matching items back; the scans themselves never touch it
+    private Item[] items = new Item[INITIAL_ROWS];
+    private int size;
+    private final LongIntMap rowsById = new LongIntMap();
+
+    public void add(Item item, int count, long stackSequence) {
+        long id = ItemIdGenerator.ensureId(item);
+        int row = rowsById.get(id);
+        if (row >= 0) {
+            quantity[row] += count;
+            return;
+        }
+        if (size == ids.length) {
+            grow(size * 2);
+        }
+        row = size++;
+        ids[row] = id;
+        sequence[row] = stackSequence;
+        price[row] = item.getPrice();
+        weight[row] = item.getWeight();
+        defense[row] = item instanceof Armor ? ((Armor) item).getDefense() : 0;
+        type[row] = item instanceof Weapon ? WEAPON : item instanceof Armor ? ARMOR : REGULAR;
+        quantity[row] = count;
+        items[row] = item;
+        rowsById.put(id, row);
+    }
+
+    // Makes room for that many more rows at once instead of doubling repeatedly
+    public void reserve(int rows) {
+        if (size + rows > ids.length) {
+            grow(Math.max(size + rows, ids.length * 2));
+        }
+    }
+
+    public void setQuantity(long id, int count) {
+        int row = rowsById.get(id);
+        if (row >= 0) {
+            quantity[row] = count;
+        }
+    }
+
+    // Moves the last row into the freed one, so removal is O(1)
+    public void remove(long id) {
+        int row = rowsById.get(id);
+        if (row < 0) {
+            return;
+        }
+        rowsById.remove(id);
+        int last = --size;
+        if (row != last) {
+            ids[row] = ids[last];
+            sequence[row] = sequence[last];
+            price[row] = price[last];
+            weight[row] = weight[last];
+            defense[row] = defense[last];
+            type[row] = type[last];
+            quantity[row] = quantity[last];
+            items[row] = items[last];
+            rowsById.put(ids[row], row);
+        }
+        items[last] = null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Item item(int row) {
+        return items[row];
+    }
+
+    public long sequence(int row) {
+        return sequence[row];
+    }
+
+    public int quantity(int row) {
+        return quantity[row];
+    }
+
+    public double value(Column column, int row) {
+        return values(column)[row];
+    }
+
+    // Quantity-weighted totals
+    public long totalQuantity() {
+        if (size >= PARALLEL_THRESHOLD) {
+            return IntStream.range(0, size).parallel().mapToLong(row -> quantity[row]).sum();
+        }
+        long total = 0;
+        for (int row = 0; row < size; row++) {
+            total += quantity[row];
+        }
+        return total;
+    }
+
+    public double sumPrice() {
+        return sum(price);
+    }
+
+    public double sumWeight() {
+        return sum(weight);
+    }
+
+    // Total quantity per concrete item class
+    public Map<Class<? extends Item>, Long> quantityByClass() {
+        Map<Class<? extends Item>, Long> counts = new HashMap<>();
+        for (int row = 0; row < size; row++) {
+            counts.merge(items[row].getClass(), (long) quantity[row], Long::sum);
+        }
+        return counts;
+    }
+
+    // Rows ordered by the column, ascending, ties broken by insertion sequence: the order of ItemSortKey
+    public int[] sortedRows(Column column) {
+        int[] rows = new int[size];
+        for (int row = 0; row < size; row++) {
+            rows[row] = row;
+        }
+        RowSort.sort(rows, values(column), sequence);
+        return rows;
+    }
+
+    // Checks the column-backed predicates first and only runs the full query on rows that pass them
+    public List<Item> select(ItemQuery query) {
+        byte wantedType = typeTag(query.getType());
+        boolean anyType = query.getType() == null || query.getType() == Item.class;
+        if (!anyType && wantedType < 0) {
+            // A type outside the three columns' tags can only be checked on the items themselves
+            return selectRows(IntStream.range(0, size), query);
+        }
+        IntStream rows = IntStream.range(0, size).filter(row -> {
+            if (!anyType && type[row] != wantedType) {
+                return false;
+            }
+            if (query.hasPriceRange() && (price[row] < query.getMinPrice() || price[row] > query.getMaxPrice())) {
+                return false;
+            }
+            if (query.hasWeightRange() && (weight[row] < query.getMinWeight() || weight[row] > query.getMaxWeight())) {
+                return false;
+            }
+            return query.getMinArmorClass() == null || defense[row] >= query.getMinArmorClass();
+        });
+        return selectRows(rows, query);
+    }
+
+    private List<Item> selectRows(IntStream rows, ItemQuery query) {
+        if (size >= PARALLEL_THRESHOLD) {
+            rows = rows.parallel();
+        }
+        return rows.mapToObj(row -> items[row]).filter(query::matches).collect(Collectors.toList());
+    }
+
+    private double sum(double[] values) {
+        if (size >= PARALLEL_THRESHOLD) {
+            return IntStream.range(0, size).parallel().mapToDouble(row -> values[row] * quantity[row]).sum();
+        }
+        double total = 0;
+        for (int row = 0; row < size; row++) {
+            total += values[row] * quantity[row];
+        }
+        return total;
+    }
+
+    private double[] values(Column column) {
+        return column == Column.PRICE ? price : weight;
+    }
+
+    private void grow(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        sequence = Arrays.copyOf(sequence, capacity);
+        price = Arrays.copyOf(price, capacity);
+        weight = Arrays.copyOf(weight, capacity);
+        defense = Arrays.copyOf(defense, capacity);
+        type = Arrays.copyOf(type, capacity);
+        quantity = Arrays.copyOf(quantity, capacity);
+        items = Arrays.copyOf(items, capacity);
+    }
+
+    private static byte typeTag(Class<? extends Item> itemType) {
+        if (itemType == Weapon.class) {
+            return WEAPON;
+        }
+        if (itemType == Armor.class) {
+            return ARMOR;
+        }
+        if (itemType == RegularItem.class) {
+            return REGULAR;
+        }
+        return -1;
+    }
+}
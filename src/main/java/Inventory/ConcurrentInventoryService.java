@@ -0,0 +1,491 @@
+package Inventory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import Items.Item;
+import Items.ItemIdGenerator;
+import Items.Weapon;
+
+// Inventory that can be shared by several sessions and background workers.
+// Writers only lock the hash bin of the item name they touch (ConcurrentHashMap.compute),
+// so writes to different names never contend and readers never take a lock at all.
+// Stats and events are published inside that same compute, so for any one name they follow the order of the
+// writes: an item's REMOVED never reaches a listener before its ADDED. Events are delivered one at a time,
+// possibly by another writer's thread, and bulk operations deliver one event per distinct name.
+public class ConcurrentInventoryService implements IInventoryService {
+    private final AtomicLong sequence = new AtomicLong();
+    // Insertion sequence -> item, iterated in insertion order
+    private final ConcurrentSkipListMap<Long, Item> items = new ConcurrentSkipListMap<>();
+    // Lowercased name -> immutable (sequence -> item) map, replaced as a whole on every change
+    private final ConcurrentHashMap<String, Map<Long, Item>> nameIndex = new ConcurrentHashMap<>();
+    // Trigrams of the nameIndex keys; a name is only added or removed inside its own compute
+    private final NameSubstringIndex substringIndex = new NameSubstringIndex(true);
+    // Concrete item class -> (sequence -> item), so type lookups only walk items of matching classes
+    private final ConcurrentHashMap<Class<? extends Item>, ConcurrentSkipListMap<Long, Item>> typePartitions = new ConcurrentHashMap<>();
+    // (price or weight, sequence) -> item; the sequence keeps equal values apart
+    private final ConcurrentSkipListMap<ItemSortKey, Item> priceIndex = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<ItemSortKey, Item> weightIndex = new ConcurrentSkipListMap<>();
+    // Item id -> item; an id is only written inside the compute for its item's name, and read without locking
+    private final ConcurrentHashMap<Long, Item> itemsById = new ConcurrentHashMap<>();
+    private final InventoryStats stats = new InventoryStats();
+    private final InventoryEventSupport events = new InventoryEventSupport();
+    // Bumped after every mutation; a cached snapshot is only served while its version is current
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    @Override
+    public void addItem(Item item) {
+        nameIndex.compute(nameKey(item.getName()), (key, entries) -> {
+            Map<Long, Item> updated = entries == null ? newName(key) : new LinkedHashMap<>(entries);
+            long seq = sequence.incrementAndGet();
+            updated.put(seq, item);
+            store(seq, item);
+            version.incrementAndGet();
+            stats.itemsAdded(item, 1);
+            events.post(List.of(new InventoryChange(InventoryChange.Type.ADDED, item, 1, InventoryChange.UNKNOWN_POSITION)));
+            return Collections.unmodifiableMap(updated);
+        });
+        events.deliverPosted();
+        System.out.println(item.getName() + " added to inventory.");
+    }
+
+    @Override
+    public void addAllItems(Collection<? extends Item> newItems) {
+        // One compute per distinct name rather than per item
+        Map<String, List<Item>> byName = new LinkedHashMap<>();
+        for (Item item : newItems) {
+            byName.computeIfAbsent(nameKey(item.getName()), key -> new ArrayList<>()).add(item);
+        }
+        for (Map.Entry<String, List<Item>> group : byName.entrySet()) {
+            nameIndex.compute(group.getKey(), (key, entries) -> {
+                Map<Long, Item> updated = entries == null ? newName(key) : new LinkedHashMap<>(entries);
+                Map<Item, Integer> added = new LinkedHashMap<>();
+                List<InventoryChange> changes = new ArrayList<>(group.getValue().size());
+                for (Item item : group.getValue()) {
+                    long seq = sequence.incrementAndGet();
+                    updated.put(seq, item);
+                    store(seq, item);
+                    added.merge(item, 1, Integer::sum);
+                    changes.add(new InventoryChange(InventoryChange.Type.ADDED, item, 1, InventoryChange.UNKNOWN_POSITION));
+                }
+                version.incrementAndGet();
+                stats.itemsChanged(added);
+                events.post(changes);
+                return Collections.unmodifiableMap(updated);
+            });
+        }
+        events.deliverPosted();
+        if (!newItems.isEmpty()) {
+            System.out.println(newItems.size() + " items added to inventory.");
+        }
+    }
+
+    @Override
+    public void removeAllItems(Collection<? extends Item> oldItems) {
+        Map<String, List<Item>> byName = new LinkedHashMap<>();
+        for (Item item : oldItems) {
+            byName.computeIfAbsent(nameKey(item.getName()), key -> new ArrayList<>()).add(item);
+        }
+        int removed = 0;
+        for (Map.Entry<String, List<Item>> group : byName.entrySet()) {
+            List<InventoryChange> changes = new ArrayList<>();
+            nameIndex.computeIfPresent(group.getKey(), (key, entries) -> {
+                // Each listed occurrence removes one stored occurrence of the same instance
+                List<Item> pending = new ArrayList<>(group.getValue());
+                Map<Long, Item> kept = new LinkedHashMap<>();
+                for (Map.Entry<Long, Item> entry : entries.entrySet()) {
+                    if (removeSame(pending, entry.getValue())) {
+                        discard(entry.getKey(), entry.getValue());
+                        changes.add(new InventoryChange(InventoryChange.Type.REMOVED, entry.getValue(), 0, InventoryChange.UNKNOWN_POSITION));
+                    } else {
+                        kept.put(entry.getKey(), entry.getValue());
+                    }
+                }
+                return removed(key, entries, kept, changes);
+            });
+            removed += changes.size();
+        }
+        events.deliverPosted();
+        if (removed > 0) {
+            System.out.println(removed + " items removed from inventory.");
+        }
+    }
+
+    @Override
+    public void removeItem(String name) {
+        List<InventoryChange> changes = new ArrayList<>();
+        nameIndex.computeIfPresent(nameKey(name), (key, entries) -> {
+            for (Map.Entry<Long, Item> entry : entries.entrySet()) {
+                discard(entry.getKey(), entry.getValue());
+                changes.add(new InventoryChange(InventoryChange.Type.REMOVED, entry.getValue(), 0, InventoryChange.UNKNOWN_POSITION));
+            }
+            return removed(key, entries, Map.of(), changes);
+        });
+        events.deliverPosted();
+        if (!changes.isEmpty()) {
+            System.out.println(name + " removed from inventory.");
+        } else {
+            System.out.println(name + " not found in inventory.");
+        }
+    }
+
+    @Override
+    public void removeQuantity(String name, int quantity) {
+        if (quantity <= 0) {
+            System.out.println("Quantity to remove must be positive, got " + quantity + ".");
+            return;
+        }
+        List<InventoryChange> changes = new ArrayList<>();
+        nameIndex.computeIfPresent(nameKey(name), (key, entries) -> {
+            Map<Long, Item> kept = new LinkedHashMap<>();
+            for (Map.Entry<Long, Item> entry : entries.entrySet()) {
+                if (changes.size() < quantity) {
+                    discard(entry.getKey(), entry.getValue());
+                    changes.add(new InventoryChange(InventoryChange.Type.REMOVED, entry.getValue(), 0, InventoryChange.UNKNOWN_POSITION));
+                } else {
+                    kept.put(entry.getKey(), entry.getValue());
+                }
+            }
+            return removed(key, entries, kept, changes);
+        });
+        events.deliverPosted();
+        if (!changes.isEmpty()) {
+            System.out.println(changes.size() + " x " + name + " removed from inventory.");
+        } else {
+            System.out.println(name + " not found in inventory.");
+        }
+    }
+
+    @Override
+    public Item getItemById(long id) {
+        return itemsById.get(id);
+    }
+
+    @Override
+    public boolean removeItemById(long id, int quantity) {
+        if (quantity <= 0) {
+            System.out.println("Quantity to remove must be positive, got " + quantity + ".");
+            return false;
+        }
+        Item item = getItemById(id);
+        if (item == null) {
+            System.out.println("No item with id " + id + " in inventory.");
+            return false;
+        }
+        List<InventoryChange> changes = new ArrayList<>();
+        nameIndex.computeIfPresent(nameKey(item.getName()), (key, entries) -> {
+            Map<Long, Item> kept = new LinkedHashMap<>();
+            for (Map.Entry<Long, Item> entry : entries.entrySet()) {
+                if (entry.getValue() == item && changes.size() < quantity) {
+                    discard(entry.getKey(), entry.getValue());
+                    changes.add(new InventoryChange(InventoryChange.Type.REMOVED, entry.getValue(), 0, InventoryChange.UNKNOWN_POSITION));
+                } else {
+                    kept.put(entry.getKey(), entry.getValue());
+                }
+            }
+            return removed(key, entries, kept, changes);
+        });
+        events.deliverPosted();
+        System.out.println(changes.size() + " x " + item.getName() + " removed from inventory.");
+        return !changes.isEmpty();
+    }
+
+    @Override
+    public void viewAllItems() {
+        if (items.isEmpty()) {
+            System.out.println("Inventory is empty.");
+            return;
+        }
+        items.values().forEach(Item::display);
+    }
+
+    @Override
+    public List<Item> searchItem(String name) {
+        // Keyed by insertion sequence, so matches from different names come back in insertion order
+        Map<Long, Item> found = new TreeMap<>();
+        for (String key : substringIndex.findNamesContaining(nameKey(name))) {
+            Map<Long, Item> entries = nameIndex.get(key);
+            // The name may have been removed since the lookup
+            if (entries != null) {
+                found.putAll(entries);
+            }
+        }
+        return new ArrayList<>(found.values());
+    }
+
+    @Override
+    public Item findItemByName(String name) {
+        Map<Long, Item> entries = nameIndex.get(nameKey(name));
+        return entries == null ? null : entries.values().iterator().next();
+    }
+
+    @Override
+    public List<Weapon> getAllWeapons() {
+        return getItemsOfType(Weapon.class);
+    }
+
+    @Override
+    public <T extends Item> List<T> getItemsOfType(Class<T> type) {
+        List<Map<Long, Item>> partitions = new ArrayList<>();
+        typePartitions.forEach((itemClass, partition) -> {
+            if (type.isAssignableFrom(itemClass)) {
+                partitions.add(partition);
+            }
+        });
+        // Several classes match only for a supertype such as Item; merge them back into insertion order
+        Map<Long, Item> merged = partitions.size() == 1 ? partitions.get(0) : new TreeMap<>();
+        if (partitions.size() > 1) {
+            partitions.forEach(merged::putAll);
+        }
+        List<T> found = new ArrayList<>(merged.size());
+        for (Item item : merged.values()) {
+            found.add(type.cast(item));
+        }
+        return found;
+    }
+
+    @Override
+    public int countItems(Class<? extends Item> type) {
+        return stats.getCount(type);
+    }
+
+    @Override
+    public List<Item> getItemsInPriceRange(double minPrice, double maxPrice) {
+        return range(priceIndex, minPrice, maxPrice);
+    }
+
+    @Override
+    public List<Item> getItemsInWeightRange(double minWeight, double maxWeight) {
+        return range(weightIndex, minWeight, maxWeight);
+    }
+
+    @Override
+    public List<Item> getMostValuableItems(int count) {
+        return highest(priceIndex, count);
+    }
+
+    @Override
+    public List<Item> getHeaviestItems(int count) {
+        return highest(weightIndex, count);
+    }
+
+    @Override
+    public List<Item> query(ItemQuery query) {
+        // Start from the access path expected to yield the fewest candidates, as InventoryService does
+        Collection<Item> candidates = items.values();
+        int total = stats.getTotalCount();
+        double best = total;
+        if (query.getNameContains() != null) {
+            List<Item> byName = searchItem(query.getNameContains());
+            if (byName.size() < best) {
+                candidates = byName;
+                best = byName.size();
+            }
+        }
+        if (query.getType() != null) {
+            // The per-type counts stand in for the partition sizes
+            int typeCount = stats.getCount(query.getType());
+            if (typeCount < best) {
+                candidates = new ArrayList<Item>(getItemsOfType(query.getType()));
+                best = typeCount;
+            }
+        }
+        double priceEstimate = query.hasPriceRange()
+                ? total * ItemQuery.rangeSelectivity(query.getMinPrice(), query.getMaxPrice(), stats.getMinPrice(), stats.getMaxPrice())
+                : Double.MAX_VALUE;
+        double weightEstimate = query.hasWeightRange()
+                ? total * ItemQuery.rangeSelectivity(query.getMinWeight(), query.getMaxWeight(), stats.getMinWeight(), stats.getMaxWeight())
+                : Double.MAX_VALUE;
+        if (priceEstimate < best && priceEstimate <= weightEstimate) {
+            candidates = range(priceIndex, query.getMinPrice(), query.getMaxPrice());
+        } else if (weightEstimate < best) {
+            candidates = range(weightIndex, query.getMinWeight(), query.getMaxWeight());
+        }
+
+        List<Item> found = new ArrayList<>();
+        for (Item item : candidates) {
+            if (query.matches(item)) {
+                found.add(item);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public InventoryPage getPage(InventorySortKey sortKey, String cursor, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+        ItemSortKey after = InventoryPage.decodeCursor(cursor);
+        switch (sortKey) {
+            case PRICE:
+                return page(after == null ? priceIndex : priceIndex.tailMap(after, false), pageSize, key -> key);
+            case WEIGHT:
+                return page(after == null ? weightIndex : weightIndex.tailMap(after, false), pageSize, key -> key);
+            default:
+                return page(after == null ? items : items.tailMap(after.getSequence(), false), pageSize, seq -> new ItemSortKey(0, seq));
+        }
+    }
+
+    @Override
+    public InventoryStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public void addInventoryListener(IInventoryListener listener) {
+        events.addListener(listener);
+    }
+
+    @Override
+    public void removeInventoryListener(IInventoryListener listener) {
+        events.removeListener(listener);
+    }
+
+    @Override
+    public List<InventoryCount> getItemStacks() {
+        // Items are never stacked here, so every stack holds exactly one item
+        List<InventoryCount> stacks = new ArrayList<>();
+        for (Item item : getAllItems()) {
+            stacks.add(new InventoryCount(item, 1));
+        }
+        return Collections.unmodifiableList(stacks);
+    }
+
+    @Override
+    public List<Item> getAllItems() {
+        Snapshot current = snapshot;
+        long currentVersion = version.get();
+        if (current != null && current.version == currentVersion) {
+            return current.items;
+        }
+        List<Item> copy = List.copyOf(items.values());
+        if (version.get() == currentVersion) {
+            snapshot = new Snapshot(currentVersion, copy);
+        }
+        return copy;
+    }
+
+    // Entries for a name seen for the first time, called inside its compute
+    private Map<Long, Item> newName(String key) {
+        substringIndex.add(key);
+        return new LinkedHashMap<>();
+    }
+
+    // Only called from inside nameIndex.compute, so all updates for one name happen together
+    private void store(long seq, Item item) {
+        items.put(seq, item);
+        itemsById.put(ItemIdGenerator.ensureId(item), item);
+        typePartitions.computeIfAbsent(item.getClass(), type -> new ConcurrentSkipListMap<>()).put(seq, item);
+        priceIndex.put(new ItemSortKey(item.getPrice(), seq), item);
+        weightIndex.put(new ItemSortKey(item.getWeight(), seq), item);
+    }
+
+    private void discard(long seq, Item item) {
+        items.remove(seq);
+        typePartitions.get(item.getClass()).remove(seq);
+        priceIndex.remove(new ItemSortKey(item.getPrice(), seq));
+        weightIndex.remove(new ItemSortKey(item.getWeight(), seq));
+    }
+
+    // Finishes a removal inside nameIndex.compute and returns the entries to keep for the name
+    private Map<Long, Item> removed(String key, Map<Long, Item> before, Map<Long, Item> kept, List<InventoryChange> changes) {
+        releaseIds(before.values(), kept);
+        version.incrementAndGet();
+        stats.itemsChanged(removalDeltas(changes));
+        events.post(changes);
+        if (kept.isEmpty()) {
+            substringIndex.remove(key);
+            return null;
+        }
+        return Collections.unmodifiableMap(kept);
+    }
+
+    // The same instance may be stored several times, so its id is only unmapped once no occurrence is kept
+    private void releaseIds(Collection<Item> before, Map<Long, Item> kept) {
+        Set<Item> remaining = Collections.newSetFromMap(new IdentityHashMap<>());
+        remaining.addAll(kept.values());
+        for (Item item : before) {
+            if (!remaining.contains(item)) {
+                itemsById.remove(item.getId());
+            }
+        }
+    }
+
+    private static boolean removeSame(List<Item> pending, Item item) {
+        for (int i = 0; i < pending.size(); i++) {
+            if (pending.get(i) == item) {
+                pending.remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Map<Item, Integer> removalDeltas(List<InventoryChange> removals) {
+        Map<Item, Integer> deltas = new LinkedHashMap<>();
+        for (InventoryChange change : removals) {
+            deltas.merge(change.getItem(), -1, Integer::sum);
+        }
+        return deltas;
+    }
+
+    private static List<Item> range(ConcurrentSkipListMap<ItemSortKey, Item> index, double min, double max) {
+        if (min > max) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(index.subMap(new ItemSortKey(min, Long.MIN_VALUE), true, new ItemSortKey(max, Long.MAX_VALUE), true).values());
+    }
+
+    private static List<Item> highest(ConcurrentSkipListMap<ItemSortKey, Item> index, int count) {
+        List<Item> found = new ArrayList<>();
+        for (Item item : index.descendingMap().values()) {
+            if (found.size() == count) {
+                break;
+            }
+            found.add(item);
+        }
+        return found;
+    }
+
+    // Walks the weakly consistent view, so a page reflects concurrent writes that land ahead of the cursor
+    private static <K> InventoryPage page(NavigableMap<K, Item> remaining, int pageSize, Function<K, ItemSortKey> sortKeyOf) {
+        List<InventoryCount> stacks = new ArrayList<>();
+        K last = null;
+        for (Map.Entry<K, Item> entry : remaining.entrySet()) {
+            if (stacks.size() == pageSize) {
+                return new InventoryPage(stacks, InventoryPage.encodeCursor(sortKeyOf.apply(last)));
+            }
+            stacks.add(new InventoryCount(entry.getValue(), 1));
+            last = entry.getKey();
+        }
+        return new InventoryPage(stacks, null);
+    }
+
+    private static String nameKey(String name) {
+        return name.toLowerCase();
+    }
+
+    private static final class Snapshot {
+        private final long version;
+        private final List<Item> items;
+
+        private Snapshot(long version, List<Item> items) {
+            this.version = version;
+            this.items = items;
+        }
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,7 @@
+package Inventory;
+
+public interface IInventoryListener {
+    // Called after the change is visible to readers, on the thread that changed the inventory
+    // (ConcurrentInventoryService may use another writer's thread, but keeps the order of the changes)
+    void onInventoryChanged(InventoryEvent event);
+}
\ No newline at end of file
@@ -1,13 +1,42 @@
 package Inventory;
 
 import Items.*;
+import java.util.Collection;
 import java.util.List;
 
 public interface IInventoryService {
     void addItem(Item item);
+    // Bulk variants: one pass, one change event and no per-item console output
+    void addAllItems(Collection<? extends Item> items);
+    void removeAllItems(Collection<? extends Item> items);
     void removeItem(String name);
+    void removeQuantity(String name, int quantity);
+    // O(1) lookups by Item.getId(); null / false when no item has that id
+    Item getItemById(long id);
+    // Removes up to quantity items from the stack with that id
+    boolean removeItemById(long id, int quantity);
     void viewAllItems();
     List<Item> searchItem(String name);
+    Item findItemByName(String name);
     List<Weapon> getAllWeapons();
+    <T extends Item> List<T> getItemsOfType(Class<T> type);
+    int countItems(Class<? extends Item> type);
+    // Range bounds are inclusive; results are ordered by the attribute and list a stack once
+    List<Item> getItemsInPriceRange(double minPrice, double maxPrice);
+    List<Item> getItemsInWeightRange(double minWeight, double maxWeight);
+    List<Item> getMostValuableItems(int count);
+    List<Item> getHeaviestItems(int count);
+    // Items matching every predicate of the query, each stack listed once; order follows the index the query starts from
+    List<Item> query(ItemQuery query);
+    // Up to pageSize stacks following the cursor (null for the first page) in the given order
+    InventoryPage getPage(InventorySortKey sortKey, String cursor, int pageSize);
+    // Live running totals (counts, price, weight, min/max), kept up to date on every change
+    InventoryStats getStats();
+    // Listeners receive one InventoryEvent per operation, holding every delta it made
+    void addInventoryListener(IInventoryListener listener);
+    void removeInventoryListener(IInventoryListener listener);
+    // One entry per distinct item with its quantity; unmodifiable point-in-time snapshot
+    List<InventoryCount> getItemStacks();
+    // Unmodifiable point-in-time snapshot; safe to keep reading while the inventory changes
     List<Item> getAllItems();
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+package Inventory;
+
+import Items.Item;
+
+// A single delta to an inventory: one distinct item (stack) was added, removed or changed quantity
+public class InventoryChange {
+    public enum Type { ADDED, REMOVED, UPDATED }
+
+    // Position of the stack in getItemStacks() order, when the service knows it cheaply
+    public static final int UNKNOWN_POSITION = -1;
+
+    private final Type type;
+    private final Item item;
+    private final int quantity;
+    private final int position;
+
+    public InventoryChange(Type type, Item item, int quantity, int position) {
+        this.type = type;
+        this.item = item;
+        this.quantity = quantity;
+        this.position = position;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Item getItem() {
+        return item;
+    }
+
+    // Quantity of this item left in the inventory after the change (0 once removed)
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+}
\ No newline at end of file
@@ -25,4 +25,8 @@ public class InventoryCount {
     public void decrementCount() {
         this.count--;
     }
+
+    public void decrementCount(int amount) {
+        this.count -= amount;
+    }
 }
\ No newline at end of file
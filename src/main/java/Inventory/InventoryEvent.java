@@ -0,0 +1,16 @@
+package Inventory;
+
+import java.util.List;
+
+// All changes made by one inventory operation, delivered together
+public class InventoryEvent {
+    private final List<InventoryChange> changes;
+
+    public InventoryEvent(List<InventoryChange> changes) {
+        this.changes = List.copyOf(changes);
+    }
+
+    public List<InventoryChange> getChanges() {
+        return changes;
+    }
+}
\ No newline at end of file
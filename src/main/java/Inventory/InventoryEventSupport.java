@@ -0,0 +1,65 @@
+package Inventory;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Listener bookkeeping shared by the inventory services
+public class InventoryEventSupport {
+    private final List<IInventoryListener> listeners = new CopyOnWriteArrayList<>();
+    // Events posted by concurrent writers, delivered in posting order by one thread at a time
+    private final Queue<InventoryEvent> posted = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean delivering = new AtomicBoolean();
+
+    public void addListener(IInventoryListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(IInventoryListener listener) {
+        listeners.remove(listener);
+    }
+
+    public boolean hasListeners() {
+        return !listeners.isEmpty();
+    }
+
+    public void fire(List<InventoryChange> changes) {
+        if (changes.isEmpty() || listeners.isEmpty()) {
+            return;
+        }
+        InventoryEvent event = new InventoryEvent(changes);
+        for (IInventoryListener listener : listeners) {
+            listener.onInventoryChanged(event);
+        }
+    }
+
+    // Queues an event while the writer still holds whatever orders its change (e.g. a per-key lock),
+    // so events reach listeners in the same order as the changes they describe
+    public void post(List<InventoryChange> changes) {
+        if (!changes.isEmpty() && !listeners.isEmpty()) {
+            posted.add(new InventoryEvent(changes));
+        }
+    }
+
+    // Delivers queued events unless another thread is already doing so; that thread then delivers ours too.
+    // Re-checking after letting go means an event posted while the flag was taken is never left behind.
+    public void deliverPosted() {
+        while (!posted.isEmpty()) {
+            if (!delivering.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                InventoryEvent event;
+                while ((event = posted.poll()) != null) {
+                    for (IInventoryListener listener : listeners) {
+                        listener.onInventoryChanged(event);
+                    }
+                }
+            } finally {
+                delivering.set(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package Inventory;
+
+import java.util.List;
+
+// One page of item stacks plus an opaque cursor for the next page (null on the last page).
+// Cursors are keys into the sorted order, so pages stay consistent while items are added or removed;
+// a cursor is only meaningful for the sort key it was produced with.
+public class InventoryPage {
+    private final List<InventoryCount> stacks;
+    private final String nextCursor;
+
+    public InventoryPage(List<InventoryCount> stacks, String nextCursor) {
+        this.stacks = List.copyOf(stacks);
+        this.nextCursor = nextCursor;
+    }
+
+    public List<InventoryCount> getStacks() {
+        return stacks;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    public static String encodeCursor(ItemSortKey key) {
+        return key.getValue() + ":" + key.getSequence();
+    }
+
+    public static ItemSortKey decodeCursor(String cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        int separator = cursor.lastIndexOf(':');
+        try {
+            return new ItemSortKey(Double.parseDouble(cursor.substring(0, separator)), Long.parseLong(cursor.substring(separator + 1)));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid inventory cursor: " + cursor, e);
+        }
+    }
+}
\ No newline at end of file
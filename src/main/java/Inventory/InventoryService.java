@@ -1,55 +1,564 @@
 package Inventory;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
 import Items.Item;
+import Items.ItemIdGenerator;
 import Items.Weapon;
 
 public class InventoryService implements IInventoryService {
-    private List<Item> items = new ArrayList<>();
+    // When set, structurally identical items collapse into one InventoryCount instead of being stored separately
+    private final boolean stackIdenticalItems;
+    // Insertion-ordered distinct items -> their stack; Item uses identity equality, so lookups are O(1)
+    private Map<Item, InventoryCount> items = new LinkedHashMap<>();
+    // Item.getStackKey() -> stack, only filled in stacking mode
+    private Map<Object, InventoryCount> stacksByKey = new HashMap<>();
+    // Item id -> distinct item; in stacking mode a stack is addressed by the id of its first item
+    private LongItemMap itemsById = new LongItemMap();
+    // Lowercased item name -> every distinct item with that name
+    private Map<String, List<Item>> nameIndex = new HashMap<>();
+    private NameSubstringIndex substringIndex = new NameSubstringIndex();
+    // Concrete item class -> distinct items of exactly that class, so per-type views never touch other items
+    private Map<Class<? extends Item>, Set<Item>> typePartitions = new LinkedHashMap<>();
+    // Distinct item -> sequence number assigned when its stack was created, used to break ties in sorted indexes
+    private Map<Item, Long> sequences = new HashMap<>();
+    private long nextSequence;
+    // Constant attribute, so entries are ordered purely by sequence, i.e. insertion order
+    private SortedItemIndex insertionIndex = new SortedItemIndex(item -> 0);
+    private SortedItemIndex priceIndex = new SortedItemIndex(Item::getPrice);
+    // Numeric attributes in primitive arrays, scanned by queries that no index narrows down
+    private ColumnarItemStore columns = new ColumnarItemStore();
+    private SortedItemIndex weightIndex = new SortedItemIndex(Item::getWeight);
+    private InventoryStats stats = new InventoryStats();
+    private InventoryEventSupport events = new InventoryEventSupport();
+    // Immutable copies handed out by getAllItems/getItemStacks, reused until the next mutation
+    private List<Item> snapshot;
+    private List<InventoryCount> stackSnapshot;
+
+    public InventoryService() {
+        this(false);
+    }
+
+    public InventoryService(boolean stackIdenticalItems) {
+        this.stackIdenticalItems = stackIdenticalItems;
+    }
 
     @Override
     public void addItem(Item item) {
-        this.items.add(item);
+        InventoryCount stack = findStack(item);
+        InventoryChange change;
+        if (stack != null) {
+            stack.incrementCount();
+            change = new InventoryChange(InventoryChange.Type.UPDATED, stack.getItem(), stack.getCount(), InventoryChange.UNKNOWN_POSITION);
+        } else {
+            stack = new InventoryCount(item, 1);
+            index(stack);
+            change = new InventoryChange(InventoryChange.Type.ADDED, item, 1, items.size() - 1);
+        }
+        adjustQuantity(stack.getItem(), 1);
+        events.fire(List.of(change));
         System.out.println(item.getName() + " added to inventory.");
     }
 
+    @Override
+    public void addAllItems(Collection<? extends Item> newItems) {
+        if (newItems.isEmpty()) {
+            return;
+        }
+        // Resolve every item to its stack first, so the stacks this call creates can be indexed together
+        Map<Item, Integer> added = new LinkedHashMap<>();
+        Map<Item, InventoryCount> created = new LinkedHashMap<>();
+        Map<Object, InventoryCount> createdByKey = stackIdenticalItems ? new HashMap<>() : null;
+        for (Item item : newItems) {
+            InventoryCount stack = findStack(item);
+            if (stack == null) {
+                stack = created.get(item);
+            }
+            if (stack == null && stackIdenticalItems) {
+                stack = createdByKey.get(item.getStackKey());
+            }
+            if (stack == null) {
+                stack = new InventoryCount(item, 1);
+                created.put(item, stack);
+                if (stackIdenticalItems) {
+                    createdByKey.put(item.getStackKey(), stack);
+                }
+            } else {
+                stack.incrementCount();
+            }
+            added.merge(stack.getItem(), 1, Integer::sum);
+        }
+
+        int firstPosition = items.size();
+        // A batch at least as large as the inventory (a load, typically) would resize the hash maps at least once
+        // on the way, so they are copied into maps of the final size instead; it also rebuilds the sorted indexes
+        // and the stats from the columns in a few passes rather than updating them stack by stack
+        boolean rebuild = created.size() >= items.size();
+        if (rebuild && !created.isEmpty()) {
+            int total = items.size() + created.size();
+            Map<Item, InventoryCount> grownItems = LinkedHashMap.newLinkedHashMap(total);
+            grownItems.putAll(items);
+            items = grownItems;
+            Map<Item, Long> grownSequences = HashMap.newHashMap(total);
+            grownSequences.putAll(sequences);
+            sequences = grownSequences;
+            if (stackIdenticalItems) {
+                Map<Object, InventoryCount> grownStacks = HashMap.newHashMap(total);
+                grownStacks.putAll(stacksByKey);
+                stacksByKey = grownStacks;
+            }
+        }
+        itemsById.reserve(created.size());
+        columns.reserve(created.size());
+        indexAll(created.values(), !rebuild);
+        for (Item item : added.keySet()) {
+            if (!created.containsKey(item)) {
+                columns.setQuantity(item.getId(), items.get(item).getCount());
+            }
+        }
+        snapshot = null;
+        stackSnapshot = null;
+        if (rebuild) {
+            priceIndex.rebuild(columns, ColumnarItemStore.Column.PRICE);
+            weightIndex.rebuild(columns, ColumnarItemStore.Column.WEIGHT);
+            stats.rebuild(columns);
+        } else {
+            stats.itemsChanged(added);
+        }
+
+        Map<Item, Integer> createdAt = new HashMap<>();
+        for (Item item : created.keySet()) {
+            createdAt.put(item, firstPosition + createdAt.size());
+        }
+        List<InventoryChange> changes = new ArrayList<>(added.size());
+        for (Item item : added.keySet()) {
+            int quantity = items.get(item).getCount();
+            Integer position = createdAt.get(item);
+            if (position != null) {
+                changes.add(new InventoryChange(InventoryChange.Type.ADDED, item, quantity, position));
+            } else {
+                changes.add(new InventoryChange(InventoryChange.Type.UPDATED, item, quantity, InventoryChange.UNKNOWN_POSITION));
+            }
+        }
+        events.fire(changes);
+        System.out.println(newItems.size() + " items added to inventory.");
+    }
+
+    @Override
+    public void removeAllItems(Collection<? extends Item> oldItems) {
+        Map<Item, Integer> removed = new LinkedHashMap<>();
+        int removedCount = 0;
+        for (Item item : oldItems) {
+            InventoryCount stack = findStack(item);
+            if (stack == null) {
+                continue;
+            }
+            if (stack.getCount() == 1) {
+                unindex(stack);
+            }
+            stack.decrementCount();
+            removed.merge(stack.getItem(), -1, Integer::sum);
+            removedCount++;
+        }
+        if (removed.isEmpty()) {
+            return;
+        }
+        snapshot = null;
+        stackSnapshot = null;
+        for (Item item : removed.keySet()) {
+            InventoryCount stack = items.get(item);
+            if (stack != null) {
+                columns.setQuantity(item.getId(), stack.getCount());
+            }
+        }
+        stats.itemsChanged(removed);
+
+        List<InventoryChange> changes = new ArrayList<>(removed.size());
+        for (Item item : removed.keySet()) {
+            InventoryCount stack = items.get(item);
+            if (stack == null) {
+                changes.add(new InventoryChange(InventoryChange.Type.REMOVED, item, 0, InventoryChange.UNKNOWN_POSITION));
+            } else {
+                changes.add(new InventoryChange(InventoryChange.Type.UPDATED, item, stack.getCount(), InventoryChange.UNKNOWN_POSITION));
+            }
+        }
+        events.fire(changes);
+        System.out.println(removedCount + " items removed from inventory.");
+    }
+
     @Override
     public void removeItem(String name) {
-        if (items.removeIf(item -> item.getName().equalsIgnoreCase(name))) {
+        List<Item> removed = nameIndex.get(nameKey(name));
+        if (removed != null) {
+            List<InventoryChange> changes = new ArrayList<>();
+            for (Item item : new ArrayList<>(removed)) {
+                InventoryCount stack = items.get(item);
+                unindex(stack);
+                adjustQuantity(item, -stack.getCount());
+                changes.add(new InventoryChange(InventoryChange.Type.REMOVED, item, 0, InventoryChange.UNKNOWN_POSITION));
+            }
+            events.fire(changes);
             System.out.println(name + " removed from inventory.");
         } else {
             System.out.println(name + " not found in inventory.");
         }
     }
 
+    @Override
+    public void removeQuantity(String name, int quantity) {
+        if (quantity <= 0) {
+            System.out.println("Quantity to remove must be positive, got " + quantity + ".");
+            return;
+        }
+        List<Item> matches = nameIndex.get(nameKey(name));
+        if (matches == null) {
+            System.out.println(name + " not found in inventory.");
+            return;
+        }
+        int remaining = quantity;
+        List<InventoryChange> changes = new ArrayList<>();
+        for (Item item : new ArrayList<>(matches)) {
+            if (remaining == 0) {
+                break;
+            }
+            remaining -= takeFromStack(item, remaining, changes);
+        }
+        events.fire(changes);
+        System.out.println((quantity - remaining) + " x " + name + " removed from inventory.");
+    }
+
+    @Override
+    public Item getItemById(long id) {
+        return itemsById.get(id);
+    }
+
+    @Override
+    public boolean removeItemById(long id, int quantity) {
+        if (quantity <= 0) {
+            System.out.println("Quantity to remove must be positive, got " + quantity + ".");
+            return false;
+        }
+        Item item = itemsById.get(id);
+        if (item == null) {
+            System.out.println("No item with id " + id + " in inventory.");
+            return false;
+        }
+        List<InventoryChange> changes = new ArrayList<>(1);
+        int taken = takeFromStack(item, quantity, changes);
+        events.fire(changes);
+        System.out.println(taken + " x " + item.getName() + " removed from inventory.");
+        return true;
+    }
+
     @Override
     public void viewAllItems() {
         if (items.isEmpty()) {
             System.out.println("Inventory is empty.");
             return;
         }
-        items.forEach(Item::display);
+        for (InventoryCount stack : items.values()) {
+            stack.getItem().display();
+            if (stack.getCount() > 1) {
+                System.out.println("  Quantity: " + stack.getCount());
+            }
+        }
     }
 
     @Override
     public List<Item> searchItem(String name) {
-        return items.stream()
-                .filter(item -> item.getName().toLowerCase().contains(name.toLowerCase()))
-                .collect(Collectors.toList());
+        List<Item> found = new ArrayList<>();
+        List<String> matches = substringIndex.findNamesContaining(nameKey(name));
+        for (String match : matches) {
+            found.addAll(nameIndex.get(match));
+        }
+        // Each name's list is already in insertion order; only merging several names needs the sort
+        if (matches.size() > 1) {
+            found.sort(Comparator.comparingLong(sequences::get));
+        }
+        return found;
+    }
+
+    @Override
+    public Item findItemByName(String name) {
+        List<Item> matches = nameIndex.get(nameKey(name));
+        return matches == null ? null : matches.get(0);
     }
 
     @Override
     public List<Weapon> getAllWeapons() {
-        return items.stream()
-                .filter(item -> item instanceof Weapon)
-                .map(item -> (Weapon) item)
-                .collect(Collectors.toList());
+        return getItemsOfType(Weapon.class);
+    }
+
+    @Override
+    public <T extends Item> List<T> getItemsOfType(Class<T> type) {
+        List<T> found = new ArrayList<>();
+        for (Map.Entry<Class<? extends Item>, Set<Item>> partition : typePartitions.entrySet()) {
+            if (type.isAssignableFrom(partition.getKey())) {
+                for (Item item : partition.getValue()) {
+                    found.add(type.cast(item));
+                }
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public int countItems(Class<? extends Item> type) {
+        return stats.getCount(type);
+    }
+
+    @Override
+    public List<Item> getItemsInPriceRange(double minPrice, double maxPrice) {
+        return priceIndex.range(minPrice, maxPrice);
+    }
+
+    @Override
+    public List<Item> getItemsInWeightRange(double minWeight, double maxWeight) {
+        return weightIndex.range(minWeight, maxWeight);
+    }
+
+    @Override
+    public List<Item> getMostValuableItems(int count) {
+        return priceIndex.highest(count);
+    }
+
+    @Override
+    public List<Item> getHeaviestItems(int count) {
+        return weightIndex.highest(count);
+    }
+
+    @Override
+    public List<Item> query(ItemQuery query) {
+        // Start from the access path expected to yield the fewest candidates, then check the full query on those only;
+        // candidates stays null until an index narrows the search
+        Collection<Item> candidates = null;
+        double best = items.size();
+        if (query.getNameContains() != null) {
+            List<Item> byName = searchItem(query.getNameContains());
+            if (byName.size() < best) {
+                candidates = byName;
+                best = byName.size();
+            }
+        }
+        if (query.getType() != null) {
+            int typeCount = 0;
+            for (Map.Entry<Class<? extends Item>, Set<Item>> partition : typePartitions.entrySet()) {
+                if (query.getType().isAssignableFrom(partition.getKey())) {
+                    typeCount += partition.getValue().size();
+                }
+            }
+            if (typeCount < best) {
+                candidates = new ArrayList<Item>(getItemsOfType(query.getType()));
+                best = typeCount;
+            }
+        }
+        // Range sizes are estimated from the min/max totals so a range is only materialized when it is chosen
+        double priceEstimate = query.hasPriceRange()
+                ? items.size() * ItemQuery.rangeSelectivity(query.getMinPrice(), query.getMaxPrice(), stats.getMinPrice(), stats.getMaxPrice())
+                : Double.MAX_VALUE;
+        double weightEstimate = query.hasWeightRange()
+                ? items.size() * ItemQuery.rangeSelectivity(query.getMinWeight(), query.getMaxWeight(), stats.getMinWeight(), stats.getMaxWeight())
+                : Double.MAX_VALUE;
+        if (priceEstimate < best && priceEstimate <= weightEstimate) {
+            candidates = priceIndex.range(query.getMinPrice(), query.getMaxPrice());
+        } else if (weightEstimate < best) {
+            candidates = weightIndex.range(query.getMinWeight(), query.getMaxWeight());
+        } else if (candidates == null) {
+            // Nothing narrows the search, so scan the columns rather than every Item
+            return columns.select(query);
+        }
+
+        List<Item> found = new ArrayList<>();
+        for (Item item : candidates) {
+            if (query.matches(item)) {
+                found.add(item);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public InventoryPage getPage(InventorySortKey sortKey, String cursor, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+        NavigableMap<ItemSortKey, Item> remaining = indexFor(sortKey).after(InventoryPage.decodeCursor(cursor));
+        List<InventoryCount> stacks = new ArrayList<>(Math.min(pageSize, items.size()));
+        ItemSortKey last = null;
+        for (Map.Entry<ItemSortKey, Item> entry : remaining.entrySet()) {
+            if (stacks.size() == pageSize) {
+                return new InventoryPage(stacks, InventoryPage.encodeCursor(last));
+            }
+            stacks.add(new InventoryCount(entry.getValue(), items.get(entry.getValue()).getCount()));
+            last = entry.getKey();
+        }
+        return new InventoryPage(stacks, null);
+    }
+
+    @Override
+    public InventoryStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public void addInventoryListener(IInventoryListener listener) {
+        events.addListener(listener);
+    }
+
+    @Override
+    public void removeInventoryListener(IInventoryListener listener) {
+        events.removeListener(listener);
+    }
+
+    @Override
+    public List<InventoryCount> getItemStacks() {
+        if (stackSnapshot == null) {
+            List<InventoryCount> stacks = new ArrayList<>(items.size());
+            for (InventoryCount stack : items.values()) {
+                stacks.add(new InventoryCount(stack.getItem(), stack.getCount()));
+            }
+            stackSnapshot = Collections.unmodifiableList(stacks);
+        }
+        return stackSnapshot;
     }
 
     @Override
     public List<Item> getAllItems() {
-        return new ArrayList<>(items);
+        if (snapshot == null) {
+            // A stack repeats the same instance, so this costs one reference per item rather than one object
+            List<Item> all = new ArrayList<>(stats.getTotalCount());
+            for (InventoryCount stack : items.values()) {
+                for (int i = 0; i < stack.getCount(); i++) {
+                    all.add(stack.getItem());
+                }
+            }
+            snapshot = Collections.unmodifiableList(all);
+        }
+        return snapshot;
+    }
+
+    // Removes up to quantity items from the item's stack, recording the change; returns how many were removed.
+    // A non-positive quantity removes nothing (it would otherwise grow the stack).
+    private int takeFromStack(Item item, int quantity, List<InventoryChange> changes) {
+        if (quantity <= 0) {
+            return 0;
+        }
+        InventoryCount stack = items.get(item);
+        int taken = Math.min(quantity, stack.getCount());
+        if (taken == stack.getCount()) {
+            unindex(stack);
+            changes.add(new InventoryChange(InventoryChange.Type.REMOVED, item, 0, InventoryChange.UNKNOWN_POSITION));
+        } else {
+            stack.decrementCount(taken);
+            changes.add(new InventoryChange(InventoryChange.Type.UPDATED, item, stack.getCount(), InventoryChange.UNKNOWN_POSITION));
+        }
+        adjustQuantity(item, -taken);
+        return taken;
+    }
+
+    private InventoryCount findStack(Item item) {
+        InventoryCount stack = items.get(item);
+        if (stack == null && stackIdenticalItems) {
+            stack = stacksByKey.get(item.getStackKey());
+        }
+        return stack;
+    }
+
+    private void index(InventoryCount stack) {
+        indexAll(List.of(stack), true);
+    }
+
+    // Stacks are grouped by name and by class so each name list and type partition is looked up once per group;
+    // sortedIndexes is false when the caller rebuilds the price and weight indexes afterwards
+    private void indexAll(Collection<InventoryCount> stacks, boolean sortedIndexes) {
+        Map<String, List<Item>> byName = new LinkedHashMap<>();
+        Map<Class<? extends Item>, List<Item>> byType = new LinkedHashMap<>();
+        for (InventoryCount stack : stacks) {
+            Item item = stack.getItem();
+            items.put(item, stack);
+            itemsById.put(ItemIdGenerator.ensureId(item), item);
+            if (stackIdenticalItems) {
+                stacksByKey.put(item.getStackKey(), stack);
+            }
+            byName.computeIfAbsent(nameKey(item.getName()), key -> new ArrayList<>()).add(item);
+            byType.computeIfAbsent(item.getClass(), type -> new ArrayList<>()).add(item);
+            long sequence = nextSequence++;
+            columns.add(item, stack.getCount(), sequence);
+            sequences.put(item, sequence);
+            insertionIndex.add(item, sequence);
+            if (sortedIndexes) {
+                priceIndex.add(item, sequence);
+                weightIndex.add(item, sequence);
+            }
+        }
+        for (Map.Entry<String, List<Item>> group : byName.entrySet()) {
+            nameIndex.computeIfAbsent(group.getKey(), key -> {
+                substringIndex.add(key);
+                return new ArrayList<>(group.getValue().size());
+            }).addAll(group.getValue());
+        }
+        for (Map.Entry<Class<? extends Item>, List<Item>> group : byType.entrySet()) {
+            typePartitions.computeIfAbsent(group.getKey(), type -> new LinkedHashSet<>()).addAll(group.getValue());
+        }
+    }
+
+    private void unindex(InventoryCount stack) {
+        Item item = stack.getItem();
+        items.remove(item);
+        itemsById.remove(item.getId());
+        if (stackIdenticalItems) {
+            stacksByKey.remove(item.getStackKey());
+        }
+        String key = nameKey(item.getName());
+        List<Item> sameName = nameIndex.get(key);
+        sameName.remove(item);
+        if (sameName.isEmpty()) {
+            nameIndex.remove(key);
+            substringIndex.remove(key);
+        }
+        typePartitions.get(item.getClass()).remove(item);
+        columns.remove(item.getId());
+        long sequence = sequences.remove(item);
+        insertionIndex.remove(item, sequence);
+        priceIndex.remove(item, sequence);
+        weightIndex.remove(item, sequence);
+    }
+
+    private SortedItemIndex indexFor(InventorySortKey sortKey) {
+        switch (sortKey) {
+            case PRICE:
+                return priceIndex;
+            case WEIGHT:
+                return weightIndex;
+            default:
+                return insertionIndex;
+        }
+    }
+
+    private void adjustQuantity(Item item, int delta) {
+        snapshot = null;
+        stackSnapshot = null;
+        InventoryCount stack = items.get(item);
+        if (stack != null) {
+            columns.setQuantity(item.getId(), stack.getCount());
+        }
+        if (delta > 0) {
+            stats.itemsAdded(item, delta);
+        } else {
+            stats.itemsRemoved(item, -delta);
+        }
+    }
+
+    private static String nameKey(String name) {
+        return name.toLowerCase();
     }
 }
\ No newline at end of file
@@ -0,0 +1,7 @@
+package Inventory;
+
+public enum InventorySortKey {
+    INSERTION_ORDER,
+    PRICE,
+    WEIGHT
+}
\ No newline at end of file
@@ -0,0 +1,172 @@
+package Inventory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import Items.Item;
+
+// Running totals for an inventory, updated on every add/remove so reading them never walks the items.
+// Nothing here takes a lock: counts and sums are striped adders, so concurrent writers don't contend on one
+// monitor, and min/max come from value -> quantity skip lists whose entries are merged and dropped by CAS.
+// Readers see each figure up to date, but not all figures as of the same instant.
+public class InventoryStats {
+    private final Map<Class<? extends Item>, LongAdder> typeCounts = new ConcurrentHashMap<>();
+    // null when a subclass finds the extremes another way
+    private final ConcurrentSkipListMap<Double, Integer> prices;
+    private final ConcurrentSkipListMap<Double, Integer> weights;
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private final LongAdder totalCount = new LongAdder();
+    // Adding and later removing an item may leave rounding dust in a double sum, so an empty inventory reports 0
+    private final DoubleAdder totalPrice = new DoubleAdder();
+    private final DoubleAdder totalWeight = new DoubleAdder();
+
+    public InventoryStats() {
+        this(true);
+    }
+
+    // Without value trees nothing per distinct price or weight is kept on the heap; the subclass then
+    // overrides the min/max getters
+    protected InventoryStats(boolean trackExtremes) {
+        prices = trackExtremes ? new ConcurrentSkipListMap<>() : null;
+        weights = trackExtremes ? new ConcurrentSkipListMap<>() : null;
+    }
+
+    public void itemsAdded(Item item, int quantity) {
+        apply(item, quantity);
+        notifyListeners();
+    }
+
+    public void itemsRemoved(Item item, int quantity) {
+        apply(item, -quantity);
+        notifyListeners();
+    }
+
+    // Applies several quantity deltas (negative for removals) and notifies listeners once
+    public void itemsChanged(Map<Item, Integer> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<Item, Integer> delta : deltas.entrySet()) {
+            apply(delta.getKey(), delta.getValue());
+        }
+        notifyListeners();
+    }
+
+    // One delta without notifying, for services that apply many and then call notifyListeners once
+    // rather than collect them into a map first
+    void apply(Item item, int delta) {
+        typeCounts.computeIfAbsent(item.getClass(), type -> new LongAdder()).add(delta);
+        if (prices != null) {
+            prices.merge(item.getPrice(), delta, InventoryStats::sumOrRemove);
+            weights.merge(item.getWeight(), delta, InventoryStats::sumOrRemove);
+        }
+        totalCount.add(delta);
+        totalPrice.add(item.getPrice() * delta);
+        totalWeight.add(item.getWeight() * delta);
+    }
+
+    // Recomputes every figure from the columns in a few array passes (parallel on large inventories) instead of
+    // one update per stack; for bulk loads. Other threads may read a partial state until listeners are notified.
+    void rebuild(ColumnarItemStore columns) {
+        typeCounts.clear();
+        columns.quantityByClass().forEach((type, count) -> typeCounts.computeIfAbsent(type, key -> new LongAdder()).add(count));
+        totalCount.reset();
+        totalCount.add(columns.totalQuantity());
+        totalPrice.reset();
+        totalPrice.add(columns.sumPrice());
+        totalWeight.reset();
+        totalWeight.add(columns.sumWeight());
+        if (prices != null) {
+            fill(prices, columns, ColumnarItemStore.Column.PRICE);
+            fill(weights, columns, ColumnarItemStore.Column.WEIGHT);
+        }
+        notifyListeners();
+    }
+
+    // Sorted rows arrive in ascending value order, so equal values are adjacent and each goes in once
+    private static void fill(ConcurrentSkipListMap<Double, Integer> values, ColumnarItemStore columns, ColumnarItemStore.Column column) {
+        values.clear();
+        int[] rows = columns.sortedRows(column);
+        int i = 0;
+        while (i < rows.length) {
+            double value = columns.value(column, rows[i]);
+            int quantity = 0;
+            for (; i < rows.length && columns.value(column, rows[i]) == value; i++) {
+                quantity += columns.quantity(rows[i]);
+            }
+            values.put(value, quantity);
+        }
+    }
+
+    void notifyListeners() {
+        listeners.forEach(Runnable::run);
+    }
+
+    // A value whose quantity drops to zero leaves the tree, so firstKey/lastKey are always live extremes
+    private static Integer sumOrRemove(Integer current, Integer delta) {
+        int sum = current + delta;
+        return sum == 0 ? null : sum;
+    }
+
+    public int getCount(Class<? extends Item> type) {
+        long count = 0;
+        for (Map.Entry<Class<? extends Item>, LongAdder> entry : typeCounts.entrySet()) {
+            if (type.isAssignableFrom(entry.getKey())) {
+                count += entry.getValue().sum();
+            }
+        }
+        return (int) count;
+    }
+
+    public int getTotalCount() {
+        return totalCount.intValue();
+    }
+
+    public double getTotalPrice() {
+        return totalCount.sum() == 0 ? 0.0 : totalPrice.sum();
+    }
+
+    public double getTotalWeight() {
+        return totalCount.sum() == 0 ? 0.0 : totalWeight.sum();
+    }
+
+    public double getMinPrice() {
+        return first(prices);
+    }
+
+    public double getMaxPrice() {
+        return last(prices);
+    }
+
+    public double getMinWeight() {
+        return first(weights);
+    }
+
+    public double getMaxWeight() {
+        return last(weights);
+    }
+
+    // Listeners run on the thread that changed the inventory, after the totals have been updated
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    // The map may empty between an isEmpty check and firstKey, so read the entry itself
+    private static double first(ConcurrentSkipListMap<Double, Integer> values) {
+        Map.Entry<Double, Integer> entry = values.firstEntry();
+        return entry == null ? 0.0 : entry.getKey();
+    }
+
+    private static double last(ConcurrentSkipListMap<Double, Integer> values) {
+        Map.Entry<Double, Integer> entry = values.lastEntry();
+        return entry == null ? 0.0 : entry.getKey();
+    }
+}
@@ -0,0 +1,141 @@
+package Inventory;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import Items.Armor;
+import Items.Item;
+import Items.Weapon;
+
+// Conjunction of optional item predicates; unset predicates match everything.
+// The inventory services plan which index to start from, so this class only describes and checks a query.
+public class ItemQuery {
+    private static final Pattern DAMAGE_PATTERN = Pattern.compile("(\\d+)d(\\d+)(?:\\s*([+\\-])\\s*(\\d+))?");
+
+    private Class<? extends Item> type;
+    private String nameContains;
+    private Double minPrice;
+    private Double maxPrice;
+    private Double minWeight;
+    private Double maxWeight;
+    private Integer damageDie;
+    private Integer minArmorClass;
+
+    public ItemQuery ofType(Class<? extends Item> type) {
+        this.type = type;
+        return this;
+    }
+
+    public ItemQuery nameContains(String text) {
+        this.nameContains = text.toLowerCase();
+        return this;
+    }
+
+    // Bounds are inclusive, like getItemsInPriceRange
+    public ItemQuery priceBetween(double min, double max) {
+        this.minPrice = min;
+        this.maxPrice = max;
+        return this;
+    }
+
+    public ItemQuery weightBetween(double min, double max) {
+        this.minWeight = min;
+        this.maxWeight = max;
+        return this;
+    }
+
+    // Weapons whose damage roll uses a die with this many sides, e.g. 8 matches "1d8" and "2d8 + 1"
+    public ItemQuery damageDie(int sides) {
+        this.damageDie = sides;
+        return this;
+    }
+
+    // Armor whose armor class is at least this value
+    public ItemQuery minArmorClass(int armorClass) {
+        this.minArmorClass = armorClass;
+        return this;
+    }
+
+    // The explicit type, or the type implied by a weapon/armor-only predicate; null when any type matches
+    public Class<? extends Item> getType() {
+        if (type != null) {
+            return type;
+        }
+        if (damageDie != null) {
+            return Weapon.class;
+        }
+        if (minArmorClass != null) {
+            return Armor.class;
+        }
+        return null;
+    }
+
+    public String getNameContains() {
+        return nameContains;
+    }
+
+    public boolean hasPriceRange() {
+        return minPrice != null;
+    }
+
+    public double getMinPrice() {
+        return minPrice;
+    }
+
+    public double getMaxPrice() {
+        return maxPrice;
+    }
+
+    public boolean hasWeightRange() {
+        return minWeight != null;
+    }
+
+    public double getMinWeight() {
+        return minWeight;
+    }
+
+    public double getMaxWeight() {
+        return maxWeight;
+    }
+
+    public Integer getMinArmorClass() {
+        return minArmorClass;
+    }
+
+    public boolean matches(Item item) {
+        if (type != null && !type.isInstance(item)) {
+            return false;
+        }
+        if (nameContains != null && !item.getName().toLowerCase().contains(nameContains)) {
+            return false;
+        }
+        if (minPrice != null && (item.getPrice() < minPrice || item.getPrice() > maxPrice)) {
+            return false;
+        }
+        if (minWeight != null && (item.getWeight() < minWeight || item.getWeight() > maxWeight)) {
+            return false;
+        }
+        if (damageDie != null && !(item instanceof Weapon && usesDie((Weapon) item, damageDie))) {
+            return false;
+        }
+        if (minArmorClass != null && !(item instanceof Armor && ((Armor) item).getDefense() >= minArmorClass)) {
+            return false;
+        }
+        return true;
+    }
+
+    // Estimated share of items inside [min, max], assuming values spread evenly between the lowest and highest
+    static double rangeSelectivity(double min, double max, double lowest, double highest) {
+        if (min > max || max < lowest || min > highest) {
+            return 0.0;
+        }
+        if (highest == lowest) {
+            return 1.0;
+        }
+        return (Math.min(max, highest) - Math.max(min, lowest)) / (highest - lowest);
+    }
+
+    private static boolean usesDie(Weapon weapon, int sides) {
+        Matcher matcher = DAMAGE_PATTERN.matcher(weapon.getDamageRoll().toLowerCase());
+        return matcher.matches() && Integer.parseInt(matcher.group(2)) == sides;
+    }
+}
\ No newline at end of file
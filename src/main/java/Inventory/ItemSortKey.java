@@ -0,0 +1,37 @@
+package Inventory;
+
+// Position of an item in a sorted index: the attribute value, with the item's insertion
+// sequence breaking ties so every entry has a unique, stable key to resume paging from
+public class ItemSortKey implements Comparable<ItemSortKey> {
+    private final double value;
+    private final long sequence;
+
+    public ItemSortKey(double value, long sequence) {
+        this.value = value;
+        this.sequence = sequence;
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    @Override
+    public int compareTo(ItemSortKey other) {
+        int byValue = Double.compare(value, other.value);
+        return byValue != 0 ? byValue : Long.compare(sequence, other.sequence);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof ItemSortKey && compareTo((ItemSortKey) other) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Double.hashCode(value) * 31 + Long.hashCode(sequence);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,55 @@
+package Inventory;
+
+// long -> int map over flat primitive arrays with linear probing (LongKeyTable), the int-valued sibling of
+// LongItemMap. Key 0 marks an empty slot and get() returns -1 for a missing key. Not thread-safe.
+public class LongIntMap extends LongKeyTable {
+    private int[] values;
+
+    public LongIntMap() {
+        super(0);
+        values = new int[capacity()];
+    }
+
+    public int get(long key) {
+        int slot = find(key);
+        return slot >= 0 ? values[slot] : -1;
+    }
+
+    public void put(long key, int value) {
+        // claim() may replace the value array, so it has to run before values is read
+        int slot = claim(key);
+        values[slot] = value;
+    }
+
+    public void remove(long key) {
+        int slot = find(key);
+        if (slot >= 0) {
+            delete(slot);
+        }
+    }
+
+    @Override
+    protected void moveValue(int from, int to) {
+        values[to] = values[from];
+    }
+
+    // Slots with key 0 are never read, so their stale values can stay
+    @Override
+    protected void clearValue(int slot) {
+    }
+
+    @Override
+    protected void clearValues() {
+    }
+
+    @Override
+    protected void rehashValues(int[] newSlots, int capacity) {
+        int[] oldValues = values;
+        values = new int[capacity];
+        for (int i = 0; i < newSlots.length; i++) {
+            if (newSlots[i] >= 0) {
+                values[newSlots[i]] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package Inventory;
+
+import java.util.Arrays;
+import Items.Item;
+
+// Item id -> item, stored in flat primitive arrays with linear probing (LongKeyTable), so lookups never box a Long.
+// Key 0 marks an empty slot, which is safe because 0 is never a valid item id. Not thread-safe.
+public class LongItemMap extends LongKeyTable {
+    private Item[] values;
+
+    public LongItemMap() {
+        this(0);
+    }
+
+    public LongItemMap(int expectedSize) {
+        super(expectedSize);
+        values = new Item[capacity()];
+    }
+
+    public Item get(long key) {
+        int slot = find(key);
+        return slot >= 0 ? values[slot] : null;
+    }
+
+    public Item put(long key, Item value) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Item id 0 is reserved for unassigned items");
+        }
+        int slot = claim(key);
+        Item previous = values[slot];
+        values[slot] = value;
+        return previous;
+    }
+
+    public Item remove(long key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+        Item removed = values[slot];
+        delete(slot);
+        return removed;
+    }
+
+    @Override
+    protected void moveValue(int from, int to) {
+        values[to] = values[from];
+    }
+
+    @Override
+    protected void clearValue(int slot) {
+        values[slot] = null;
+    }
+
+    @Override
+    protected void clearValues() {
+        Arrays.fill(values, null);
+    }
+
+    @Override
+    protected void rehashValues(int[] newSlots, int capacity) {
+        Item[] oldValues = values;
+        values = new Item[capacity];
+        for (int i = 0; i < newSlots.length; i++) {
+            if (newSlots[i] >= 0) {
+                values[newSlots[i]] = oldValues[i];
+            }
+        }
+    }
+}
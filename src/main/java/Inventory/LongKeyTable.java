@@ -0,0 +1,133 @@
+package Inventory;
+
+import java.util.Arrays;
+
+// Open-addressing table of long keys with linear probing, the part LongItemMap and LongIntMap share.
+// Subclasses keep the values in a parallel array of their own type and move them whenever the probing moves a key.
+// Key 0 marks an empty slot. Not thread-safe.
+abstract class LongKeyTable {
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private int size;
+
+    protected LongKeyTable(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        // Keep the load factor at or below 1/2
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        keys = new long[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        clearValues();
+        size = 0;
+    }
+
+    // Grows the table once so that many more keys fit without resizing again on the way
+    public void reserve(int additional) {
+        int capacity = keys.length;
+        while (capacity < (size + additional) * 2) {
+            capacity <<= 1;
+        }
+        if (capacity != keys.length) {
+            resize(capacity);
+        }
+    }
+
+    protected int capacity() {
+        return keys.length;
+    }
+
+    // Slot holding key, or -1
+    protected int find(long key) {
+        int mask = keys.length - 1;
+        for (int slot = slot(key, mask); keys[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    // Slot holding key, taking an empty one (and growing the table first if needed) when it is missing
+    protected int claim(long key) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Key 0 is reserved for empty slots");
+        }
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length << 1);
+        }
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == 0) {
+            keys[slot] = key;
+            size++;
+        }
+        return slot;
+    }
+
+    // Empties a slot returned by find()
+    protected void delete(int slot) {
+        int mask = keys.length - 1;
+        // Backward-shift the rest of the probe run instead of leaving a tombstone
+        int gap = slot;
+        for (int next = (gap + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+            int home = slot(keys[next], mask);
+            // Move the entry into the gap unless its home slot lies cyclically in (gap, next]
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                moveValue(next, gap);
+                gap = next;
+            }
+        }
+        keys[gap] = 0;
+        clearValue(gap);
+        size--;
+    }
+
+    protected abstract void moveValue(int from, int to);
+
+    protected abstract void clearValue(int slot);
+
+    protected abstract void clearValues();
+
+    // Replaces the value array with one of the given capacity, the value of old slot i going to newSlots[i]
+    // (skipped where that is -1)
+    protected abstract void rehashValues(int[] newSlots, int capacity);
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] newSlots = new int[oldKeys.length];
+        keys = new long[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == 0) {
+                newSlots[i] = -1;
+                continue;
+            }
+            int slot = slot(oldKeys[i], mask);
+            while (keys[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            newSlots[i] = slot;
+        }
+        rehashValues(newSlots, capacity);
+    }
+
+    // Ids are mostly sequential, so mix the bits before masking to spread them over the table
+    private static int slot(long key, int mask) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32)) & mask;
+    }
+}
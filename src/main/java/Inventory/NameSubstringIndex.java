@@ -0,0 +1,90 @@
+package Inventory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+// Trigram posting lists over distinct (already lowercased) item names.
+// A name can only contain the query if it contains every trigram of the query,
+// so the smallest posting list is a complete candidate set that just needs verifying.
+public class NameSubstringIndex {
+    private static final int GRAM_LENGTH = 3;
+
+    private final boolean concurrent;
+    private final Map<String, Set<String>> postings;
+    private final Set<String> names;
+
+    public NameSubstringIndex() {
+        this(false);
+    }
+
+    // A concurrent index may be updated from several threads as long as each name is only added or removed by one
+    // thread at a time; lookups take no lock and see each posting list as of some point during the lookup
+    public NameSubstringIndex(boolean concurrent) {
+        this.concurrent = concurrent;
+        postings = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+        names = newSet();
+    }
+
+    public void add(String name) {
+        if (!names.add(name)) {
+            return;
+        }
+        for (String gram : grams(name)) {
+            // compute rather than get-then-add, so a concurrent remove can't drop the list this name goes into
+            postings.compute(gram, (key, posting) -> {
+                Set<String> updated = posting == null ? newSet() : posting;
+                updated.add(name);
+                return updated;
+            });
+        }
+    }
+
+    public void remove(String name) {
+        if (!names.remove(name)) {
+            return;
+        }
+        for (String gram : grams(name)) {
+            postings.computeIfPresent(gram, (key, posting) -> {
+                posting.remove(name);
+                return posting.isEmpty() ? null : posting;
+            });
+        }
+    }
+
+    public List<String> findNamesContaining(String query) {
+        // Queries shorter than a trigram have nothing to look up, but distinct names are still far fewer than items
+        Set<String> candidates = names;
+        if (query.length() >= GRAM_LENGTH) {
+            for (String gram : grams(query)) {
+                Set<String> posting = postings.get(gram);
+                if (posting == null) {
+                    return new ArrayList<>();
+                }
+                if (posting.size() < candidates.size()) {
+                    candidates = posting;
+                }
+            }
+        }
+        return candidates.stream()
+                .filter(name -> name.contains(query))
+                .collect(Collectors.toList());
+    }
+
+    private Set<String> newSet() {
+        return concurrent ? ConcurrentHashMap.newKeySet() : new HashSet<>();
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+}
\ No newline at end of file
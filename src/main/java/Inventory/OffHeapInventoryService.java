@@ -0,0 +1,1052 @@
+package Inventory;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.StructLayout;
+import java.lang.foreign.ValueLayout;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import Items.Armor;
+import Items.Item;
+import Items.ItemIdGenerator;
+import Items.ItemTemplate;
+import Items.RegularItem;
+import Items.StoredItems;
+import Items.Weapon;
+
+import static java.lang.foreign.MemoryLayout.PathElement.groupElement;
+
+// Inventory for archives of millions of items. Every distinct item is one fixed-width record in an off-heap
+// segment and its strings live in an off-heap byte arena, so the heap holds a few primitive arrays however
+// large the inventory grows and the GC has nothing per item to trace.
+// Names are matched against a lowercased copy in the arena, byte for byte, so lookups and searches only
+// decode the items they return, and min/max are primitive aggregates rather than per-value trees. Ranges,
+// top-k and sorted pages read off-heap slot orders by price and weight instead of scanning every record.
+// Items handed out are the added instances while anyone still holds them, and views decoded on demand (on
+// the interned template, if the item had one) once they have been collected; a view is then shared until it
+// is collected in turn. It is not thread-safe, and its segments are confined to the thread that created
+// the service, which must be the only one using it; close() frees the off-heap memory.
+public class OffHeapInventoryService implements IInventoryService, AutoCloseable {
+    private static final int REGULAR = 0;
+    private static final int WEAPON = 1;
+    private static final int ARMOR = 2;
+
+    private static final StructLayout RECORD = MemoryLayout.structLayout(
+        ValueLayout.JAVA_LONG.withName("id"),
+        ValueLayout.JAVA_LONG.withName("sequence"),
+        ValueLayout.JAVA_DOUBLE.withName("price"),
+        ValueLayout.JAVA_DOUBLE.withName("weight"),
+        // Byte offsets into the string arena
+        ValueLayout.JAVA_LONG.withName("name"),
+        ValueLayout.JAVA_LONG.withName("description"),
+        ValueLayout.JAVA_LONG.withName("damage"),
+        // Lowercased name; its hash lets exact lookups skip most records without touching the arena
+        ValueLayout.JAVA_LONG.withName("key"),
+        ValueLayout.JAVA_INT.withName("nameLength"),
+        ValueLayout.JAVA_INT.withName("descriptionLength"),
+        ValueLayout.JAVA_INT.withName("damageLength"),
+        ValueLayout.JAVA_INT.withName("keyLength"),
+        ValueLayout.JAVA_INT.withName("keyHash"),
+        // 0 once the record is removed; the slot is reclaimed by the next compaction
+        ValueLayout.JAVA_INT.withName("quantity"),
+        ValueLayout.JAVA_INT.withName("type"),
+        ValueLayout.JAVA_INT.withName("defense"),
+        // Parsed damage roll: diceCount d diceSides + diceModifier
+        ValueLayout.JAVA_INT.withName("diceCount"),
+        ValueLayout.JAVA_INT.withName("diceSides"),
+        ValueLayout.JAVA_INT.withName("diceModifier"),
+        // 1 when the item was made from a template, which its views then re-intern
+        ValueLayout.JAVA_INT.withName("templated")
+    );
+    private static final long RECORD_SIZE = RECORD.byteSize();
+    private static final long ID = RECORD.byteOffset(groupElement("id"));
+    private static final long SEQUENCE = RECORD.byteOffset(groupElement("sequence"));
+    private static final long PRICE = RECORD.byteOffset(groupElement("price"));
+    private static final long WEIGHT = RECORD.byteOffset(groupElement("weight"));
+    private static final long NAME = RECORD.byteOffset(groupElement("name"));
+    private static final long DESCRIPTION = RECORD.byteOffset(groupElement("description"));
+    private static final long DAMAGE = RECORD.byteOffset(groupElement("damage"));
+    private static final long KEY = RECORD.byteOffset(groupElement("key"));
+    private static final long NAME_LENGTH = RECORD.byteOffset(groupElement("nameLength"));
+    private static final long DESCRIPTION_LENGTH = RECORD.byteOffset(groupElement("descriptionLength"));
+    private static final long DAMAGE_LENGTH = RECORD.byteOffset(groupElement("damageLength"));
+    private static final long KEY_LENGTH = RECORD.byteOffset(groupElement("keyLength"));
+    private static final long KEY_HASH = RECORD.byteOffset(groupElement("keyHash"));
+    private static final long QUANTITY = RECORD.byteOffset(groupElement("quantity"));
+    private static final long TYPE = RECORD.byteOffset(groupElement("type"));
+    private static final long DEFENSE = RECORD.byteOffset(groupElement("defense"));
+    private static final long DICE_COUNT = RECORD.byteOffset(groupElement("diceCount"));
+    private static final long DICE_SIDES = RECORD.byteOffset(groupElement("diceSides"));
+    private static final long DICE_MODIFIER = RECORD.byteOffset(groupElement("diceModifier"));
+    private static final long TEMPLATED = RECORD.byteOffset(groupElement("templated"));
+
+    private static final Pattern DAMAGE_PATTERN = Pattern.compile("(\\d+)d(\\d+)(?:\\s*([+\\-])\\s*(\\d+))?");
+    private static final int INITIAL_RECORDS = 1024;
+    private static final long INITIAL_STRING_BYTES = 64 * 1024;
+    // Compaction only pays off once enough slots are dead
+    private static final int MIN_DEAD_TO_COMPACT = 1024;
+    // Larger batches re-sort the slot orders once on the next read instead of shifting them per item
+    private static final int MAX_SORTED_INSERTS = 64;
+
+    // Each segment gets its own arena so it can be freed as soon as it is replaced by a larger or compacted one
+    private Arena recordArena;
+    private MemorySegment records;
+    private int slotCount;
+    private int liveCount;
+    private Arena stringArena;
+    private MemorySegment strings;
+    private long stringBytesUsed;
+    // Item id -> record slot
+    private LongIntMap slotsById = new LongIntMap();
+    private long nextSequence;
+    private OffHeapStats stats = new OffHeapStats();
+    private InventoryEventSupport events = new InventoryEventSupport();
+    private final SortedSlots priceOrder = new SortedSlots(PRICE);
+    private final SortedSlots weightOrder = new SortedSlots(WEIGHT);
+    // Item id -> the instance last handed in or out for it; weak, so only items someone holds stay on the heap
+    private final Map<Long, ItemReference> handedOut = new HashMap<>();
+    private final ReferenceQueue<Item> collected = new ReferenceQueue<>();
+
+    public OffHeapInventoryService() {
+        recordArena = Arena.ofConfined();
+        records = recordArena.allocate(INITIAL_RECORDS * RECORD_SIZE, RECORD.byteAlignment());
+        stringArena = Arena.ofConfined();
+        strings = stringArena.allocate(INITIAL_STRING_BYTES, 1);
+    }
+
+    @Override
+    public void addItem(Item item) {
+        long id = ItemIdGenerator.ensureId(item);
+        int slot = slotsById.get(id);
+        InventoryChange change;
+        if (slot >= 0) {
+            int quantity = getInt(slot, QUANTITY) + 1;
+            setInt(slot, QUANTITY, quantity);
+            change = new InventoryChange(InventoryChange.Type.UPDATED, view(slot), quantity, InventoryChange.UNKNOWN_POSITION);
+        } else {
+            slot = append(item, 1);
+            change = new InventoryChange(InventoryChange.Type.ADDED, view(slot), 1, liveCount - 1);
+        }
+        stats.itemsAdded(item, 1);
+        events.fire(List.of(change));
+        System.out.println(item.getName() + " added to inventory.");
+    }
+
+    @Override
+    public void addAllItems(Collection<? extends Item> newItems) {
+        if (newItems.isEmpty()) {
+            return;
+        }
+        if (newItems.size() > MAX_SORTED_INSERTS) {
+            priceOrder.invalidate();
+            weightOrder.invalidate();
+        }
+        // Per-item change bookkeeping is only kept when someone listens, so archive loads stay lean
+        boolean tracked = events.hasListeners();
+        Map<Long, Integer> createdAt = new HashMap<>();
+        Set<Long> touched = new LinkedHashSet<>();
+        for (Item item : newItems) {
+            long id = ItemIdGenerator.ensureId(item);
+            int slot = slotsById.get(id);
+            if (slot >= 0) {
+                setInt(slot, QUANTITY, getInt(slot, QUANTITY) + 1);
+            } else {
+                append(item, 1);
+                if (tracked) {
+                    createdAt.put(id, liveCount - 1);
+                }
+            }
+            stats.apply(item, 1);
+            if (tracked) {
+                touched.add(id);
+            }
+        }
+        stats.notifyListeners();
+
+        List<InventoryChange> changes = new ArrayList<>(touched.size());
+        for (long id : touched) {
+            int slot = slotsById.get(id);
+            Integer position = createdAt.get(id);
+            if (position != null) {
+                changes.add(new InventoryChange(InventoryChange.Type.ADDED, view(slot), getInt(slot, QUANTITY), position));
+            } else {
+                changes.add(new InventoryChange(InventoryChange.Type.UPDATED, view(slot), getInt(slot, QUANTITY), InventoryChange.UNKNOWN_POSITION));
+            }
+        }
+        events.fire(changes);
+        System.out.println(newItems.size() + " items added to inventory.");
+    }
+
+    @Override
+    public void removeAllItems(Collection<? extends Item> oldItems) {
+        boolean tracked = events.hasListeners();
+        Map<Long, Item> touched = new LinkedHashMap<>();
+        int removedCount = 0;
+        for (Item item : oldItems) {
+            int slot = slotsById.get(item.getId());
+            if (slot < 0) {
+                continue;
+            }
+            takeFromSlot(slot, 1);
+            stats.apply(item, -1);
+            if (tracked) {
+                touched.putIfAbsent(item.getId(), item);
+            }
+            removedCount++;
+        }
+        if (removedCount == 0) {
+            return;
+        }
+        stats.notifyListeners();
+
+        List<InventoryChange> changes = new ArrayList<>(touched.size());
+        for (Map.Entry<Long, Item> entry : touched.entrySet()) {
+            int slot = slotsById.get(entry.getKey());
+            if (slot < 0) {
+                changes.add(new InventoryChange(InventoryChange.Type.REMOVED, entry.getValue(), 0, InventoryChange.UNKNOWN_POSITION));
+            } else {
+                changes.add(new InventoryChange(InventoryChange.Type.UPDATED, view(slot), getInt(slot, QUANTITY), InventoryChange.UNKNOWN_POSITION));
+            }
+        }
+        compactIfSparse();
+        events.fire(changes);
+        System.out.println(removedCount + " items removed from inventory.");
+    }
+
+    @Override
+    public void removeItem(String name) {
+        byte[] key = keyBytes(name);
+        int hash = Arrays.hashCode(key);
+        List<InventoryChange> changes = new ArrayList<>();
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (isLive(slot) && keyEquals(slot, key, hash)) {
+                Item item = view(slot);
+                stats.apply(item, -takeFromSlot(slot, Integer.MAX_VALUE));
+                changes.add(new InventoryChange(InventoryChange.Type.REMOVED, item, 0, InventoryChange.UNKNOWN_POSITION));
+            }
+        }
+        if (changes.isEmpty()) {
+            System.out.println(name + " not found in inventory.");
+            return;
+        }
+        stats.notifyListeners();
+        compactIfSparse();
+        events.fire(changes);
+        System.out.println(name + " removed from inventory.");
+    }
+
+    @Override
+    public void removeQuantity(String name, int quantity) {
+        if (quantity <= 0) {
+            System.out.println("Quantity to remove must be positive, got " + quantity + ".");
+            return;
+        }
+        byte[] key = keyBytes(name);
+        int hash = Arrays.hashCode(key);
+        int remaining = quantity;
+        List<InventoryChange> changes = new ArrayList<>();
+        for (int slot = 0; slot < slotCount && remaining > 0; slot++) {
+            if (isLive(slot) && keyEquals(slot, key, hash)) {
+                remaining -= removeFromSlot(slot, remaining, changes);
+            }
+        }
+        if (changes.isEmpty()) {
+            System.out.println(name + " not found in inventory.");
+            return;
+        }
+        stats.notifyListeners();
+        compactIfSparse();
+        events.fire(changes);
+        System.out.println((quantity - remaining) + " x " + name + " removed from inventory.");
+    }
+
+    @Override
+    public Item getItemById(long id) {
+        int slot = slotsById.get(id);
+        return slot < 0 ? null : view(slot);
+    }
+
+    @Override
+    public boolean removeItemById(long id, int quantity) {
+        if (quantity <= 0) {
+            System.out.println("Quantity to remove must be positive, got " + quantity + ".");
+            return false;
+        }
+        int slot = slotsById.get(id);
+        if (slot < 0) {
+            System.out.println("No item with id " + id + " in inventory.");
+            return false;
+        }
+        String name = readName(slot);
+        List<InventoryChange> changes = new ArrayList<>(1);
+        int taken = removeFromSlot(slot, quantity, changes);
+        stats.notifyListeners();
+        compactIfSparse();
+        events.fire(changes);
+        System.out.println(taken + " x " + name + " removed from inventory.");
+        return true;
+    }
+
+    @Override
+    public void viewAllItems() {
+        if (liveCount == 0) {
+            System.out.println("Inventory is empty.");
+            return;
+        }
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (isLive(slot)) {
+                view(slot).display();
+                if (getInt(slot, QUANTITY) > 1) {
+                    System.out.println("  Quantity: " + getInt(slot, QUANTITY));
+                }
+            }
+        }
+    }
+
+    @Override
+    public List<Item> searchItem(String name) {
+        byte[] query = keyBytes(name);
+        List<Item> found = new ArrayList<>();
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (isLive(slot) && keyContains(slot, query)) {
+                found.add(view(slot));
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public Item findItemByName(String name) {
+        byte[] key = keyBytes(name);
+        int hash = Arrays.hashCode(key);
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (isLive(slot) && keyEquals(slot, key, hash)) {
+                return view(slot);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<Weapon> getAllWeapons() {
+        return getItemsOfType(Weapon.class);
+    }
+
+    @Override
+    public <T extends Item> List<T> getItemsOfType(Class<T> type) {
+        List<T> found = new ArrayList<>();
+        for (int slot = 0; slot < slotCount; slot++) {
+            // The type tag is checked before anything is decoded
+            if (isLive(slot) && type.isAssignableFrom(classOf(getInt(slot, TYPE)))) {
+                found.add(type.cast(view(slot)));
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public int countItems(Class<? extends Item> type) {
+        return stats.getCount(type);
+    }
+
+    @Override
+    public List<Item> getItemsInPriceRange(double minPrice, double maxPrice) {
+        return inRange(PRICE, minPrice, maxPrice);
+    }
+
+    @Override
+    public List<Item> getItemsInWeightRange(double minWeight, double maxWeight) {
+        return inRange(WEIGHT, minWeight, maxWeight);
+    }
+
+    @Override
+    public List<Item> getMostValuableItems(int count) {
+        return highest(PRICE, count);
+    }
+
+    @Override
+    public List<Item> getHeaviestItems(int count) {
+        return highest(WEIGHT, count);
+    }
+
+    @Override
+    public List<Item> query(ItemQuery query) {
+        // The range expected to hold fewer items is walked in its slot order; without one, every record is
+        double priceEstimate = query.hasPriceRange()
+                ? ItemQuery.rangeSelectivity(query.getMinPrice(), query.getMaxPrice(), stats.getMinPrice(), stats.getMaxPrice())
+                : Double.MAX_VALUE;
+        double weightEstimate = query.hasWeightRange()
+                ? ItemQuery.rangeSelectivity(query.getMinWeight(), query.getMaxWeight(), stats.getMinWeight(), stats.getMaxWeight())
+                : Double.MAX_VALUE;
+        List<Item> found = new ArrayList<>();
+        if (priceEstimate < 1 && priceEstimate <= weightEstimate) {
+            priceOrder.forEachInRange(query.getMinPrice(), query.getMaxPrice(), slot -> select(slot, query, found));
+        } else if (weightEstimate < 1) {
+            weightOrder.forEachInRange(query.getMinWeight(), query.getMaxWeight(), slot -> select(slot, query, found));
+        } else {
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (isLive(slot)) {
+                    select(slot, query, found);
+                }
+            }
+        }
+        return found;
+    }
+
+    // Type, price and weight are fixed-width fields, so they are checked off-heap before a view is decoded
+    private void select(int slot, ItemQuery query, List<Item> found) {
+        Class<? extends Item> type = query.getType();
+        if ((type != null && !type.isAssignableFrom(classOf(getInt(slot, TYPE))))
+                || (query.hasPriceRange() && !within(getDouble(slot, PRICE), query.getMinPrice(), query.getMaxPrice()))
+                || (query.hasWeightRange() && !within(getDouble(slot, WEIGHT), query.getMinWeight(), query.getMaxWeight()))) {
+            return;
+        }
+        Item item = view(slot);
+        if (query.matches(item)) {
+            found.add(item);
+        }
+    }
+
+    @Override
+    public InventoryPage getPage(InventorySortKey sortKey, String cursor, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+        ItemSortKey after = InventoryPage.decodeCursor(cursor);
+        if (sortKey == InventorySortKey.INSERTION_ORDER) {
+            return insertionPage(after == null ? -1 : after.getSequence(), pageSize);
+        }
+        SortedSlots order = sortKey == InventorySortKey.PRICE ? priceOrder : weightOrder;
+        List<InventoryCount> stacks = new ArrayList<>(Math.min(pageSize, liveCount));
+        int lastSlot = -1;
+        for (int i = after == null ? 0 : order.positionAfter(after); i < order.size(); i++) {
+            int slot = order.slot(i);
+            if (!isLive(slot)) {
+                continue;
+            }
+            if (stacks.size() == pageSize) {
+                return new InventoryPage(stacks, InventoryPage.encodeCursor(sortKey(lastSlot, order.field)));
+            }
+            stacks.add(new InventoryCount(view(slot), getInt(slot, QUANTITY)));
+            lastSlot = slot;
+        }
+        return new InventoryPage(stacks, null);
+    }
+
+    @Override
+    public InventoryStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public void addInventoryListener(IInventoryListener listener) {
+        events.addListener(listener);
+    }
+
+    @Override
+    public void removeInventoryListener(IInventoryListener listener) {
+        events.removeListener(listener);
+    }
+
+    @Override
+    public List<InventoryCount> getItemStacks() {
+        List<InventoryCount> stacks = new ArrayList<>(liveCount);
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (isLive(slot)) {
+                stacks.add(new InventoryCount(view(slot), getInt(slot, QUANTITY)));
+            }
+        }
+        return Collections.unmodifiableList(stacks);
+    }
+
+    @Override
+    public List<Item> getAllItems() {
+        List<Item> all = new ArrayList<>(stats.getTotalCount());
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (isLive(slot)) {
+                Item item = view(slot);
+                for (int i = 0; i < getInt(slot, QUANTITY); i++) {
+                    all.add(item);
+                }
+            }
+        }
+        return Collections.unmodifiableList(all);
+    }
+
+    @Override
+    public void close() {
+        recordArena.close();
+        stringArena.close();
+        priceOrder.close();
+        weightOrder.close();
+    }
+
+    private int append(Item item, int quantity) {
+        if ((slotCount + 1) * RECORD_SIZE > records.byteSize()) {
+            // Reclaiming dead slots may be enough; otherwise double the segment
+            if (slotCount - liveCount >= MIN_DEAD_TO_COMPACT) {
+                compact();
+            }
+            if ((slotCount + 1) * RECORD_SIZE > records.byteSize()) {
+                growRecords(records.byteSize() * 2);
+            }
+        }
+        int slot = slotCount++;
+        liveCount++;
+        setLong(slot, ID, item.getId());
+        setLong(slot, SEQUENCE, nextSequence++);
+        setDouble(slot, PRICE, item.getPrice());
+        setDouble(slot, WEIGHT, item.getWeight());
+        setInt(slot, QUANTITY, quantity);
+        writeString(slot, NAME, NAME_LENGTH, item.getName());
+        byte[] key = keyBytes(item.getName());
+        writeBytes(slot, KEY, KEY_LENGTH, key);
+        setInt(slot, KEY_HASH, Arrays.hashCode(key));
+        writeString(slot, DESCRIPTION, DESCRIPTION_LENGTH, item.getDescription());
+        if (item instanceof Weapon) {
+            String damageRoll = ((Weapon) item).getDamageRoll();
+            setInt(slot, TYPE, WEAPON);
+            writeString(slot, DAMAGE, DAMAGE_LENGTH, damageRoll);
+            Matcher matcher = DAMAGE_PATTERN.matcher(damageRoll.toLowerCase());
+            if (matcher.matches()) {
+                setInt(slot, DICE_COUNT, Integer.parseInt(matcher.group(1)));
+                setInt(slot, DICE_SIDES, Integer.parseInt(matcher.group(2)));
+                int modifier = matcher.group(4) == null ? 0 : Integer.parseInt(matcher.group(4));
+                setInt(slot, DICE_MODIFIER, "-".equals(matcher.group(3)) ? -modifier : modifier);
+            }
+        } else if (item instanceof Armor) {
+            setInt(slot, TYPE, ARMOR);
+            setInt(slot, DEFENSE, ((Armor) item).getDefense());
+        } else {
+            setInt(slot, TYPE, REGULAR);
+        }
+        setInt(slot, TEMPLATED, item.getTemplate() != null ? 1 : 0);
+        slotsById.put(item.getId(), slot);
+        remember(item);
+        priceOrder.slotAdded(slot);
+        weightOrder.slotAdded(slot);
+        stats.slotAdded(slot);
+        return slot;
+    }
+
+    // Removes up to quantity items from the slot and returns how many went; an emptied slot is marked dead
+    private int takeFromSlot(int slot, int quantity) {
+        int current = getInt(slot, QUANTITY);
+        int taken = Math.min(quantity, current);
+        setInt(slot, QUANTITY, current - taken);
+        if (taken == current) {
+            slotsById.remove(getLong(slot, ID));
+            handedOut.remove(getLong(slot, ID));
+            liveCount--;
+            stats.slotRemoved(slot);
+        }
+        return taken;
+    }
+
+    // takeFromSlot plus the stats update and change record shared by the removal methods; the caller notifies
+    // stats listeners once it is done
+    private int removeFromSlot(int slot, int quantity, List<InventoryChange> changes) {
+        Item item = view(slot);
+        int taken = takeFromSlot(slot, quantity);
+        stats.apply(item, -taken);
+        if (isLive(slot)) {
+            changes.add(new InventoryChange(InventoryChange.Type.UPDATED, item, getInt(slot, QUANTITY), InventoryChange.UNKNOWN_POSITION));
+        } else {
+            changes.add(new InventoryChange(InventoryChange.Type.REMOVED, item, 0, InventoryChange.UNKNOWN_POSITION));
+        }
+        return taken;
+    }
+
+    // The instance still held for the slot's id, or a view decoded from the record and remembered in its place
+    private Item view(int slot) {
+        long id = getLong(slot, ID);
+        ItemReference reference = handedOut.get(id);
+        Item item = reference == null ? null : reference.get();
+        if (item != null) {
+            return item;
+        }
+        String name = readName(slot);
+        String description = readString(getLong(slot, DESCRIPTION), getInt(slot, DESCRIPTION_LENGTH));
+        double price = getDouble(slot, PRICE);
+        double weight = getDouble(slot, WEIGHT);
+        int type = getInt(slot, TYPE);
+        String damageRoll = type == WEAPON ? readString(getLong(slot, DAMAGE), getInt(slot, DAMAGE_LENGTH)) : null;
+        String typeName = type == WEAPON ? "Weapon" : type == ARMOR ? "Armor" : "Regular";
+        if (getInt(slot, TEMPLATED) != 0) {
+            // An item made from a template gets the interned one back, which is the original's while that is in use
+            ItemTemplate template = new ItemTemplate(typeName, name, description, price, weight, damageRoll, getInt(slot, DEFENSE));
+            item = StoredItems.fromTemplate(template, id, null, null, null, price, weight);
+        } else {
+            item = StoredItems.fromFields(typeName, id, name, description, null, price, weight, damageRoll, getInt(slot, DEFENSE));
+        }
+        remember(item);
+        return item;
+    }
+
+    private void remember(Item item) {
+        for (Reference<? extends Item> cleared; (cleared = collected.poll()) != null; ) {
+            ItemReference stale = (ItemReference) cleared;
+            handedOut.remove(stale.id, stale);
+        }
+        handedOut.put(item.getId(), new ItemReference(item, collected));
+    }
+
+    private List<Item> inRange(long field, double min, double max) {
+        List<Item> found = new ArrayList<>();
+        (field == PRICE ? priceOrder : weightOrder).forEachInRange(min, max, slot -> found.add(view(slot)));
+        return found;
+    }
+
+    private List<Item> highest(long field, int count) {
+        SortedSlots order = field == PRICE ? priceOrder : weightOrder;
+        List<Item> found = new ArrayList<>(Math.max(0, Math.min(count, liveCount)));
+        for (int i = order.size() - 1; i >= 0 && found.size() < count; i--) {
+            int slot = order.slot(i);
+            if (isLive(slot)) {
+                found.add(view(slot));
+            }
+        }
+        return found;
+    }
+
+    private InventoryPage insertionPage(long afterSequence, int pageSize) {
+        // Sequences only grow along the slots (compaction keeps their order), so the start is a binary search
+        int low = 0;
+        int high = slotCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getLong(middle, SEQUENCE) <= afterSequence) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        List<InventoryCount> stacks = new ArrayList<>();
+        long lastSequence = afterSequence;
+        for (int slot = low; slot < slotCount; slot++) {
+            if (!isLive(slot)) {
+                continue;
+            }
+            if (stacks.size() == pageSize) {
+                return new InventoryPage(stacks, InventoryPage.encodeCursor(new ItemSortKey(0, lastSequence)));
+            }
+            stacks.add(new InventoryCount(view(slot), getInt(slot, QUANTITY)));
+            lastSequence = getLong(slot, SEQUENCE);
+        }
+        return new InventoryPage(stacks, null);
+    }
+
+    private void compactIfSparse() {
+        int dead = slotCount - liveCount;
+        if (dead >= MIN_DEAD_TO_COMPACT && dead > liveCount) {
+            compact();
+        }
+    }
+
+    // Rewrites live records and their strings into fresh segments, in order, and frees the old ones
+    private void compact() {
+        long liveStringBytes = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (isLive(slot)) {
+                liveStringBytes += getInt(slot, NAME_LENGTH) + getInt(slot, DESCRIPTION_LENGTH) + getInt(slot, DAMAGE_LENGTH) + getInt(slot, KEY_LENGTH);
+            }
+        }
+        Arena newRecordArena = Arena.ofConfined();
+        MemorySegment newRecords = newRecordArena.allocate(Math.max(INITIAL_RECORDS, liveCount * 2L) * RECORD_SIZE, RECORD.byteAlignment());
+        Arena newStringArena = Arena.ofConfined();
+        MemorySegment newStrings = newStringArena.allocate(Math.max(INITIAL_STRING_BYTES, liveStringBytes * 2), 1);
+        long newStringBytesUsed = 0;
+        int target = 0;
+        slotsById.clear();
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (!isLive(slot)) {
+                continue;
+            }
+            long targetOffset = target * RECORD_SIZE;
+            MemorySegment.copy(records, slot * RECORD_SIZE, newRecords, targetOffset, RECORD_SIZE);
+            for (long[] field : new long[][] {{NAME, NAME_LENGTH}, {DESCRIPTION, DESCRIPTION_LENGTH}, {DAMAGE, DAMAGE_LENGTH}, {KEY, KEY_LENGTH}}) {
+                int length = getInt(slot, field[1]);
+                MemorySegment.copy(strings, getLong(slot, field[0]), newStrings, newStringBytesUsed, length);
+                newRecords.set(ValueLayout.JAVA_LONG, targetOffset + field[0], newStringBytesUsed);
+                newStringBytesUsed += length;
+            }
+            slotsById.put(getLong(slot, ID), target);
+            target++;
+        }
+        recordArena.close();
+        stringArena.close();
+        priceOrder.invalidate();
+        weightOrder.invalidate();
+        recordArena = newRecordArena;
+        records = newRecords;
+        stringArena = newStringArena;
+        strings = newStrings;
+        stringBytesUsed = newStringBytesUsed;
+        slotCount = target;
+    }
+
+    private void growRecords(long byteSize) {
+        Arena newArena = Arena.ofConfined();
+        MemorySegment grown = newArena.allocate(byteSize, RECORD.byteAlignment());
+        MemorySegment.copy(records, 0, grown, 0, slotCount * RECORD_SIZE);
+        recordArena.close();
+        recordArena = newArena;
+        records = grown;
+    }
+
+    private void writeString(int slot, long offsetField, long lengthField, String value) {
+        writeBytes(slot, offsetField, lengthField, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeBytes(int slot, long offsetField, long lengthField, byte[] bytes) {
+        if (stringBytesUsed + bytes.length > strings.byteSize()) {
+            Arena newArena = Arena.ofConfined();
+            MemorySegment grown = newArena.allocate(Math.max(strings.byteSize() * 2, stringBytesUsed + bytes.length), 1);
+            MemorySegment.copy(strings, 0, grown, 0, stringBytesUsed);
+            stringArena.close();
+            stringArena = newArena;
+            strings = grown;
+        }
+        MemorySegment.copy(bytes, 0, strings, ValueLayout.JAVA_BYTE, stringBytesUsed, bytes.length);
+        setLong(slot, offsetField, stringBytesUsed);
+        setInt(slot, lengthField, bytes.length);
+        stringBytesUsed += bytes.length;
+    }
+
+    private String readName(int slot) {
+        return readString(getLong(slot, NAME), getInt(slot, NAME_LENGTH));
+    }
+
+    private String readString(long offset, int length) {
+        byte[] bytes = new byte[length];
+        MemorySegment.copy(strings, ValueLayout.JAVA_BYTE, offset, bytes, 0, length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Case-insensitive like the other services: names are compared as UTF-8 bytes of their lowercase form
+    private static byte[] keyBytes(String name) {
+        return name.toLowerCase().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private boolean keyEquals(int slot, byte[] key, int hash) {
+        if (getInt(slot, KEY_HASH) != hash || getInt(slot, KEY_LENGTH) != key.length) {
+            return false;
+        }
+        long offset = getLong(slot, KEY);
+        return MemorySegment.mismatch(strings, offset, offset + key.length, MemorySegment.ofArray(key), 0, key.length) == -1;
+    }
+
+    // A UTF-8 needle can only match at character boundaries, so a byte match is a substring match
+    private boolean keyContains(int slot, byte[] needle) {
+        long start = getLong(slot, KEY);
+        long last = start + getInt(slot, KEY_LENGTH) - needle.length;
+        candidates:
+        for (long offset = start; offset <= last; offset++) {
+            for (int i = 0; i < needle.length; i++) {
+                if (strings.get(ValueLayout.JAVA_BYTE, offset + i) != needle[i]) {
+                    continue candidates;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private ItemSortKey sortKey(int slot, long field) {
+        return new ItemSortKey(getDouble(slot, field), getLong(slot, SEQUENCE));
+    }
+
+    private boolean isLive(int slot) {
+        return getInt(slot, QUANTITY) > 0;
+    }
+
+    private long getLong(int slot, long field) {
+        return records.get(ValueLayout.JAVA_LONG, slot * RECORD_SIZE + field);
+    }
+
+    private void setLong(int slot, long field, long value) {
+        records.set(ValueLayout.JAVA_LONG, slot * RECORD_SIZE + field, value);
+    }
+
+    private int getInt(int slot, long field) {
+        return records.get(ValueLayout.JAVA_INT, slot * RECORD_SIZE + field);
+    }
+
+    private void setInt(int slot, long field, int value) {
+        records.set(ValueLayout.JAVA_INT, slot * RECORD_SIZE + field, value);
+    }
+
+    private double getDouble(int slot, long field) {
+        return records.get(ValueLayout.JAVA_DOUBLE, slot * RECORD_SIZE + field);
+    }
+
+    private void setDouble(int slot, long field, double value) {
+        records.set(ValueLayout.JAVA_DOUBLE, slot * RECORD_SIZE + field, value);
+    }
+
+    private static boolean within(double value, double min, double max) {
+        return value >= min && value <= max;
+    }
+
+    private static Class<? extends Item> classOf(int type) {
+        switch (type) {
+            case WEAPON:
+                return Weapon.class;
+            case ARMOR:
+                return Armor.class;
+            default:
+                return RegularItem.class;
+        }
+    }
+
+    // Slot numbers ordered by one fixed-width field, ties in slot order (which is sequence order), as an off-heap
+    // int array. Removed slots stay in it and readers skip them. While the order is current a new slot is
+    // inserted by shifting the tail up one place; bulk loads and compaction instead mark it stale, and the next
+    // read sorts the live slots once.
+    private final class SortedSlots {
+        private final long field;
+        private Arena arena;
+        private MemorySegment order;
+        private int size;
+        private boolean stale;
+
+        private SortedSlots(long field) {
+            this.field = field;
+            arena = Arena.ofConfined();
+            order = arena.allocate(INITIAL_RECORDS * ValueLayout.JAVA_INT.byteSize(), ValueLayout.JAVA_INT.byteAlignment());
+        }
+
+        private void invalidate() {
+            stale = true;
+        }
+
+        private void slotAdded(int slot) {
+            if (stale) {
+                return;
+            }
+            ensureCapacity(size + 1);
+            // The new slot has the highest sequence, so it goes after every equal value
+            int position = firstAbove(getDouble(slot, field));
+            long offset = position * ValueLayout.JAVA_INT.byteSize();
+            MemorySegment.copy(order, offset, order, offset + ValueLayout.JAVA_INT.byteSize(), (size - position) * ValueLayout.JAVA_INT.byteSize());
+            order.setAtIndex(ValueLayout.JAVA_INT, position, slot);
+            size++;
+        }
+
+        private int size() {
+            sortIfStale();
+            return size;
+        }
+
+        private int slot(int position) {
+            return order.getAtIndex(ValueLayout.JAVA_INT, position);
+        }
+
+        // Live slots whose value lies in [min, max], in ascending order
+        private void forEachInRange(double min, double max, IntConsumer action) {
+            if (min > max) {
+                return;
+            }
+            sortIfStale();
+            for (int i = firstAtLeast(min); i < size; i++) {
+                int slot = slot(i);
+                if (getDouble(slot, field) > max) {
+                    return;
+                }
+                if (isLive(slot)) {
+                    action.accept(slot);
+                }
+            }
+        }
+
+        // Position of the first slot whose (value, sequence) sorts after the cursor
+        private int positionAfter(ItemSortKey after) {
+            sortIfStale();
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (sortKey(slot(middle), field).compareTo(after) <= 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private int firstAtLeast(double value) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (getDouble(slot(middle), field) < value) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private int firstAbove(double value) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (getDouble(slot(middle), field) <= value) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        // The keys are copied into temporary primitive arrays for the sort, then only the slot order is kept
+        private void sortIfStale() {
+            if (!stale) {
+                return;
+            }
+            int[] live = new int[liveCount];
+            double[] keys = new double[slotCount];
+            long[] sequences = new long[slotCount];
+            int count = 0;
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (isLive(slot)) {
+                    live[count++] = slot;
+                    keys[slot] = getDouble(slot, field);
+                    sequences[slot] = getLong(slot, SEQUENCE);
+                }
+            }
+            RowSort.sort(live, keys, sequences);
+            size = 0;
+            ensureCapacity(count);
+            MemorySegment.copy(live, 0, order, ValueLayout.JAVA_INT, 0, count);
+            size = count;
+            stale = false;
+        }
+
+        private void ensureCapacity(int slots) {
+            long bytes = slots * ValueLayout.JAVA_INT.byteSize();
+            if (bytes <= order.byteSize()) {
+                return;
+            }
+            Arena newArena = Arena.ofConfined();
+            MemorySegment grown = newArena.allocate(Math.max(order.byteSize() * 2, bytes), ValueLayout.JAVA_INT.byteAlignment());
+            MemorySegment.copy(order, 0, grown, 0, size * ValueLayout.JAVA_INT.byteSize());
+            arena.close();
+            arena = newArena;
+            order = grown;
+        }
+
+        private void close() {
+            arena.close();
+        }
+    }
+
+    // Remembers which id it stood for, so the entry can be dropped once the item is collected
+    private static final class ItemReference extends WeakReference<Item> {
+        private final long id;
+
+        private ItemReference(Item item, ReferenceQueue<Item> queue) {
+            super(item, queue);
+            this.id = item.getId();
+        }
+    }
+
+    // Counts and sums as in InventoryStats; min/max are four doubles instead of per-value trees. Adding a record
+    // can only widen them, removing one that held an extreme marks them stale, and the next read rescans the
+    // fixed-width price and weight fields off-heap.
+    private final class OffHeapStats extends InventoryStats {
+        private double minPrice;
+        private double maxPrice;
+        private double minWeight;
+        private double maxWeight;
+        private boolean stale;
+
+        private OffHeapStats() {
+            super(false);
+        }
+
+        private void slotAdded(int slot) {
+            if (stale) {
+                return;
+            }
+            double price = getDouble(slot, PRICE);
+            double weight = getDouble(slot, WEIGHT);
+            boolean first = liveCount == 1;
+            minPrice = first ? price : Math.min(minPrice, price);
+            maxPrice = first ? price : Math.max(maxPrice, price);
+            minWeight = first ? weight : Math.min(minWeight, weight);
+            maxWeight = first ? weight : Math.max(maxWeight, weight);
+        }
+
+        private void slotRemoved(int slot) {
+            double price = getDouble(slot, PRICE);
+            double weight = getDouble(slot, WEIGHT);
+            if (price <= minPrice || price >= maxPrice || weight <= minWeight || weight >= maxWeight) {
+                stale = true;
+            }
+        }
+
+        private void rescan() {
+            if (!stale) {
+                return;
+            }
+            minPrice = Double.MAX_VALUE;
+            maxPrice = -Double.MAX_VALUE;
+            minWeight = Double.MAX_VALUE;
+            maxWeight = -Double.MAX_VALUE;
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (isLive(slot)) {
+                    minPrice = Math.min(minPrice, getDouble(slot, PRICE));
+                    maxPrice = Math.max(maxPrice, getDouble(slot, PRICE));
+                    minWeight = Math.min(minWeight, getDouble(slot, WEIGHT));
+                    maxWeight = Math.max(maxWeight, getDouble(slot, WEIGHT));
+                }
+            }
+            stale = false;
+        }
+
+        @Override
+        public double getMinPrice() {
+            rescan();
+            return liveCount == 0 ? 0.0 : minPrice;
+        }
+
+        @Override
+        public double getMaxPrice() {
+            rescan();
+            return liveCount == 0 ? 0.0 : maxPrice;
+        }
+
+        @Override
+        public double getMinWeight() {
+            rescan();
+            return liveCount == 0 ? 0.0 : minWeight;
+        }
+
+        @Override
+        public double getMaxWeight() {
+            rescan();
+            return liveCount == 0 ? 0.0 : maxWeight;
+        }
+    }
+}
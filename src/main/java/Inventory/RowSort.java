@@ -0,0 +1,98 @@
+package Inventory;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Merge sort of row numbers by a per-row double, ties broken by a per-row long, on primitive arrays so large
+// inventories sort without boxing a comparator argument per row. Both halves are sorted on the common
+// ForkJoin pool once there are enough rows for that to pay off.
+final class RowSort {
+    // Below this many rows the fork/join overhead costs more than the parallel sort saves
+    static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    private RowSort() {
+    }
+
+    // keys and ties are indexed by row number, not by position in rows
+    static void sort(int[] rows, double[] keys, long[] ties) {
+        int[] buffer = new int[rows.length];
+        if (rows.length >= PARALLEL_THRESHOLD) {
+            ForkJoinPool.commonPool().invoke(new SortTask(rows, buffer, keys, ties, 0, rows.length));
+        } else {
+            mergeSort(rows, buffer, keys, ties, 0, rows.length);
+        }
+    }
+
+    private static void mergeSort(int[] rows, int[] buffer, double[] keys, long[] ties, int from, int to) {
+        if (to - from <= 16) {
+            insertionSort(rows, keys, ties, from, to);
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(rows, buffer, keys, ties, from, middle);
+        mergeSort(rows, buffer, keys, ties, middle, to);
+        merge(rows, buffer, keys, ties, from, middle, to);
+    }
+
+    private static void insertionSort(int[] rows, double[] keys, long[] ties, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            int row = rows[i];
+            int j = i - 1;
+            while (j >= from && compare(rows[j], row, keys, ties) > 0) {
+                rows[j + 1] = rows[j];
+                j--;
+            }
+            rows[j + 1] = row;
+        }
+    }
+
+    private static void merge(int[] rows, int[] buffer, double[] keys, long[] ties, int from, int middle, int to) {
+        System.arraycopy(rows, from, buffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && compare(buffer[left], buffer[right], keys, ties) <= 0)) {
+                rows[i] = buffer[left++];
+            } else {
+                rows[i] = buffer[right++];
+            }
+        }
+    }
+
+    private static int compare(int a, int b, double[] keys, long[] ties) {
+        int byKey = Double.compare(keys[a], keys[b]);
+        return byKey != 0 ? byKey : Long.compare(ties[a], ties[b]);
+    }
+
+    // Sorts both halves in parallel, then merges them like the sequential sort
+    private static final class SortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] rows;
+        private final int[] buffer;
+        private final double[] keys;
+        private final long[] ties;
+        private final int from;
+        private final int to;
+
+        private SortTask(int[] rows, int[] buffer, double[] keys, long[] ties, int from, int to) {
+            this.rows = rows;
+            this.buffer = buffer;
+            this.keys = keys;
+            this.ties = ties;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from < PARALLEL_THRESHOLD) {
+                mergeSort(rows, buffer, keys, ties, from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new SortTask(rows, buffer, keys, ties, from, middle), new SortTask(rows, buffer, keys, ties, middle, to));
+            merge(rows, buffer, keys, ties, from, middle, to);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package Inventory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.ToDoubleFunction;
+import Items.Item;
+
+// Secondary index ordering distinct items by one numeric attribute (price, weight, ...).
+// Range and top-k lookups cost O(log n + results) instead of a scan of the whole inventory.
+public class SortedItemIndex {
+    private final ToDoubleFunction<Item> attribute;
+    private final TreeMap<ItemSortKey, Item> entries = new TreeMap<>();
+
+    public SortedItemIndex(ToDoubleFunction<Item> attribute) {
+        this.attribute = attribute;
+    }
+
+    public void add(Item item, long sequence) {
+        entries.put(new ItemSortKey(attribute.applyAsDouble(item), sequence), item);
+    }
+
+    public void remove(Item item, long sequence) {
+        entries.remove(new ItemSortKey(attribute.applyAsDouble(item), sequence));
+    }
+
+    // Replaces the entries with every row of the columns, which must hold this index's attribute. The rows are
+    // sorted on primitive arrays (in parallel when large) and inserted in ascending order, so the tree only ever
+    // grows at its right edge; cheaper than one random insert per item when most of the index is new.
+    public void rebuild(ColumnarItemStore columns, ColumnarItemStore.Column column) {
+        entries.clear();
+        for (int row : columns.sortedRows(column)) {
+            entries.put(new ItemSortKey(columns.value(column, row), columns.sequence(row)), columns.item(row));
+        }
+    }
+
+    // Items whose attribute lies in [min, max], in ascending order
+    public List<Item> range(double min, double max) {
+        if (min > max) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(entries.subMap(new ItemSortKey(min, Long.MIN_VALUE), true, new ItemSortKey(max, Long.MAX_VALUE), true).values());
+    }
+
+    // The count items with the highest attribute, highest first
+    public List<Item> highest(int count) {
+        return firstOf(entries.descendingMap(), count);
+    }
+
+    // The count items with the lowest attribute, lowest first
+    public List<Item> lowest(int count) {
+        return firstOf(entries, count);
+    }
+
+    // Live ascending view of the entries after the given key, or of all entries when the key is null
+    public NavigableMap<ItemSortKey, Item> after(ItemSortKey key) {
+        return key == null ? entries : entries.tailMap(key, false);
+    }
+
+    private static List<Item> firstOf(NavigableMap<ItemSortKey, Item> ordered, int count) {
+        List<Item> found = new ArrayList<>();
+        for (Item item : ordered.values()) {
+            if (found.size() == count) {
+                break;
+            }
+            found.add(item);
+        }
+        return found;
+    }
+}
\ No newline at end of file
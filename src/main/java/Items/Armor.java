@@ -2,8 +2,12 @@ package Items;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 public class Armor extends Item {
+    private static final long serialVersionUID = 8396869652591673570L;
+
     private int defense;
 
     public Armor(String name, String description, double price, double weight, int defense) {
@@ -11,13 +15,25 @@ public class Armor extends Item {
         this.defense = defense;
     }
 
+    Armor(ItemTemplate template) {
+        super(template);
+        this.defense = template.getDefense();
+    }
+
     public int getDefense() {
         return defense;
     }
 
+    @Override
+    public List<Object> getStackKey() {
+        List<Object> key = new ArrayList<>(super.getStackKey());
+        key.add(defense);
+        return key;
+    }
+
     @Override
     public void display() {
-        System.out.println("Armor: " + getName() + ", Description: " + getDescription() + ", Price: " + getPrice() + ", Weight: " + getWeight() + ", Defense: " + defense);
+        System.out.println("Armor: " + getName() + ", Description: " + getDescription() + ", Price: " + getPrice() + ", Weight: " + getWeight() + ", Defense: " + defense + ", Id: " + getId());
     }
 
     @Override 
@@ -4,5 +4,8 @@ import InputValidation.IInputHandler;
 
 public interface IItemFactory {
     Item createItem(String itemType, String name, String description, double price, double weight, IInputHandler inputHandler);
+    // Non-interactive: damageRoll only applies to weapons and defense to armor; null for an unknown type
+    Item createItem(String itemType, String name, String description, double price, double weight, String damageRoll, int defense);
+    Item createFromTemplate(ItemTemplate template);
 }
 
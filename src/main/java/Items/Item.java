@@ -2,13 +2,28 @@ package Items;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
 
 public abstract class Item implements Serializable {
+    // Pinned to the value Java computed for the original class so existing inventory files keep loading
+    private static final long serialVersionUID = 4953969021687748720L;
+
+    // Per-instance values; the strings stay null when a template supplies them
     private String name;
     private String description;
     private double price;
     private double weight;
+    // Stable identity, persisted with the item; 0 until assigned (and for items saved before ids existed)
+    private long id;
+    // Shared definition this item was created from; null for items built field by field
+    private ItemTemplate template;
+    // Set for items loaded from a mapped file: decodes the description on first access, then cleared
+    private transient volatile Supplier<String> descriptionSource;
 
     public Item(String name, String description, double price, double weight) {
         this.name = name;
@@ -17,12 +32,51 @@ public abstract class Item implements Serializable {
         this.weight = weight;
     }
 
+    protected Item(ItemTemplate template) {
+        this.template = template;
+        this.price = template.getPrice();
+        this.weight = template.getWeight();
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    // Only ItemIdGenerator hands out ids, so they stay unique
+    void setId(long id) {
+        this.id = id;
+    }
+
     public String getName() {
-        return name;
+        return name != null ? name : template.getName();
     }
 
     public String getDescription() {
-        return description;
+        if (descriptionSource != null) {
+            loadDescription();
+        }
+        return description != null ? description : template.getDescription();
+    }
+
+    public ItemTemplate getTemplate() {
+        return template;
+    }
+
+    // Stored per-item values of an item being rebuilt; only StoredItems calls it, before the item is shared.
+    // Values equal to the template's are dropped so only the changed strings are stored with this item, and a
+    // non-null descriptionSource decodes the description on first access instead of holding it now.
+    void restore(String name, String description, Supplier<String> descriptionSource, double price, double weight) {
+        if (name != null) {
+            this.name = template != null && template.getName().equals(name) ? null : name;
+        }
+        if (descriptionSource != null) {
+            this.description = null;
+            this.descriptionSource = descriptionSource;
+        } else if (description != null) {
+            this.description = template != null && template.getDescription().equals(description) ? null : description;
+        }
+        this.price = price;
+        this.weight = weight;
     }
 
     public double getPrice() {
@@ -33,14 +87,20 @@ public abstract class Item implements Serializable {
         return weight;
     }
 
+    // Items with equal stack keys are interchangeable and can share a single InventoryCount.
+    // The description is compared last and kept out of the hash, so stacking rarely forces a deferred one to load.
+    public List<Object> getStackKey() {
+        return Arrays.asList(getClass(), getName(), price, weight, new DescriptionKey(this));
+    }
+
     protected abstract void writeSpecificData(BufferedWriter writer) throws IOException;
 
     public abstract void display();
 
         
     public void writeToStream(BufferedWriter writer) throws IOException {
-        writer.write("Name: " + name + "\n");
-        writer.write("Description: " + description + "\n");
+        writer.write("Name: " + getName() + "\n");
+        writer.write("Description: " + getDescription() + "\n");
         writer.write("Price: " + price + "\n");
         writer.write("Weight: " + weight + "\n");
         writeSpecificData(writer); // Call the abstract method
@@ -50,5 +110,37 @@ public abstract class Item implements Serializable {
     public String toString() {
         return getName();
     }
+
+    private synchronized void loadDescription() {
+        Supplier<String> source = descriptionSource;
+        if (source != null) {
+            description = source.get();
+            descriptionSource = null;
+        }
+    }
+
+    // A deferred description is not serialized by itself, so load it first
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        getDescription();
+        out.defaultWriteObject();
+    }
+
+    private static final class DescriptionKey {
+        private final Item item;
+
+        private DescriptionKey(Item item) {
+            this.item = item;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof DescriptionKey && Objects.equals(item.getDescription(), ((DescriptionKey) other).item.getDescription());
+        }
+
+        @Override
+        public int hashCode() {
+            return 0;
+        }
+    }
 }
 
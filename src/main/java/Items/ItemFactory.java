@@ -7,18 +7,48 @@ import InputValidation.NumberValidator;
 public class ItemFactory implements IItemFactory {
     @Override
     public Item createItem(String itemType, String name, String description, double price, double weight, IInputHandler inputHandler) {
+        Item item = createUnnumberedItem(itemType, name, description, price, weight, inputHandler);
+        if (item != null) {
+            ItemIdGenerator.ensureId(item);
+        }
+        return item;
+    }
+
+    @Override
+    public Item createItem(String itemType, String name, String description, double price, double weight, String damageRoll, int defense) {
+        ItemTemplate template = templateFor(itemType, name, description, price, weight, damageRoll, defense);
+        return template != null ? createFromTemplate(template) : null;
+    }
+
+    @Override
+    public Item createFromTemplate(ItemTemplate template) {
+        Item item = ItemTemplateCatalog.intern(template).newItem();
+        ItemIdGenerator.ensureId(item);
+        return item;
+    }
+
+    // Items are instances of a shared catalog template, so identical definitions share their strings
+    private Item createUnnumberedItem(String itemType, String name, String description, double price, double weight, IInputHandler inputHandler) {
+        String damageRoll = null;
+        int defense = 0;
         if (itemType.equalsIgnoreCase("Weapon")) {
-            String damageRoll = inputHandler.getStringInput("Enter weapon damage (e.g., 2d6, 1d8 + 2):", new DamageValidator());
-            return new Weapon(name, description, price, weight, damageRoll);
+            damageRoll = inputHandler.getStringInput("Enter weapon damage (e.g., 2d6, 1d8 + 2):", new DamageValidator());
         } else if (itemType.equalsIgnoreCase("Armor")) {
-            int defense = inputHandler.getIntegerInput("Enter armor defense:", new NumberValidator(0, 1000));
-            return new Armor(name, description, price, weight, defense);
-        } else if (itemType.equalsIgnoreCase("Regular")) {
-            return new RegularItem(name, description, price, weight);
-        } else {
-            System.out.println("Unknown item type. Item not created.");
-            return null;
+            defense = inputHandler.getIntegerInput("Enter armor defense:", new NumberValidator(0, 1000));
         }
+        ItemTemplate template = templateFor(itemType, name, description, price, weight, damageRoll, defense);
+        return template != null ? ItemTemplateCatalog.intern(template).newItem() : null;
     }
-}
 
+    private ItemTemplate templateFor(String itemType, String name, String description, double price, double weight, String damageRoll, int defense) {
+        if (itemType.equalsIgnoreCase("Weapon")) {
+            return new ItemTemplate("Weapon", name, description, price, weight, damageRoll, 0);
+        } else if (itemType.equalsIgnoreCase("Armor")) {
+            return new ItemTemplate("Armor", name, description, price, weight, null, defense);
+        } else if (itemType.equalsIgnoreCase("Regular")) {
+            return new ItemTemplate("Regular", name, description, price, weight, null, 0);
+        }
+        System.out.println("Unknown item type. Item not created.");
+        return null;
+    }
+}
\ No newline at end of file
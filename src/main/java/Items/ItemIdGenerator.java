@@ -0,0 +1,34 @@
+package Items;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Hands out item ids that stay unique across sessions: ids start from the current time in microseconds,
+// and every id seen on a loaded item pushes the counter past it, so a restart never reuses one
+public class ItemIdGenerator {
+    private static final AtomicLong lastId = new AtomicLong(System.currentTimeMillis() * 1000);
+
+    private ItemIdGenerator() {
+    }
+
+    public static long nextId() {
+        return lastId.incrementAndGet();
+    }
+
+    // Gives the item an id if it has none yet (e.g. it was saved before ids existed) and returns its id
+    public static long ensureId(Item item) {
+        if (item.getId() == 0) {
+            item.setId(nextId());
+        } else {
+            lastId.accumulateAndGet(item.getId(), Math::max);
+        }
+        return item.getId();
+    }
+
+    // Re-attaches the id of an item rebuilt from storage, so the copy is addressed like the original.
+    // Only StoredItems calls it: anywhere else, reusing an id would make two different items collide.
+    static <T extends Item> T restoreId(T item, long id) {
+        item.setId(id);
+        lastId.accumulateAndGet(id, Math::max);
+        return item;
+    }
+}
\ No newline at end of file
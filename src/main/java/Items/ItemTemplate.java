@@ -0,0 +1,122 @@
+package Items;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+// Immutable item definition shared by every instance created from it, across all loaded inventories.
+// Instances point at their template and only store the fields they override, so a thousand "Longsword"s
+// hold one copy of the name, description and damage strings.
+public final class ItemTemplate implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String itemType;
+    private final String name;
+    private String description;
+    private final double price;
+    private final double weight;
+    private final String damageRoll;
+    private final int defense;
+    // Set for templates loaded from a mapped file: decodes the description on first access, then cleared
+    private transient volatile Supplier<String> descriptionSource;
+
+    // itemType is "Weapon", "Armor" or "Regular", as accepted by ItemFactory; damageRoll/defense only apply to their type
+    public ItemTemplate(String itemType, String name, String description, double price, double weight, String damageRoll, int defense) {
+        this.itemType = itemType;
+        this.name = name;
+        this.description = description;
+        this.price = price;
+        this.weight = weight;
+        this.damageRoll = damageRoll;
+        this.defense = defense;
+    }
+
+    // For StoredItems: descriptionSource is called the first time the description is needed
+    ItemTemplate(String itemType, String name, Supplier<String> descriptionSource, double price, double weight, String damageRoll, int defense) {
+        this(itemType, name, (String) null, price, weight, damageRoll, defense);
+        this.descriptionSource = descriptionSource;
+    }
+
+    public String getItemType() {
+        return itemType;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        if (descriptionSource != null) {
+            loadDescription();
+        }
+        return description;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public double getWeight() {
+        return weight;
+    }
+
+    public String getDamageRoll() {
+        return damageRoll;
+    }
+
+    public int getDefense() {
+        return defense;
+    }
+
+    // A fresh instance with no overrides
+    public Item newItem() {
+        if (itemType.equalsIgnoreCase("Weapon")) {
+            return new Weapon(this);
+        } else if (itemType.equalsIgnoreCase("Armor")) {
+            return new Armor(this);
+        }
+        return new RegularItem(this);
+    }
+
+    // The description is compared last and kept out of the hash, so interning rarely forces a deferred one to load
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        return other instanceof ItemTemplate && key().equals(((ItemTemplate) other).key())
+                && Objects.equals(getDescription(), ((ItemTemplate) other).getDescription());
+    }
+
+    @Override
+    public int hashCode() {
+        return key().hashCode();
+    }
+
+    private List<Object> key() {
+        return Arrays.asList(itemType.toLowerCase(), name, price, weight, damageRoll, defense);
+    }
+
+    private synchronized void loadDescription() {
+        Supplier<String> source = descriptionSource;
+        if (source != null) {
+            description = source.get();
+            descriptionSource = null;
+        }
+    }
+
+    // A deferred description is not serialized by itself, so load it first
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        getDescription();
+        out.defaultWriteObject();
+    }
+
+    // Every deserialized copy collapses into the catalog's shared instance
+    private Object readResolve() {
+        return ItemTemplateCatalog.intern(this);
+    }
+}
\ No newline at end of file
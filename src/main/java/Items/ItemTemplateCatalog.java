@@ -0,0 +1,30 @@
+package Items;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+// Process-wide registry of item templates; equal definitions always resolve to the same instance.
+// Entries are weak: a template only stays registered while some item (or caller) still uses it,
+// so templates of deleted or imported-then-removed items are collected instead of pinned forever.
+public class ItemTemplateCatalog {
+    // The value must be weak too, otherwise it would keep its own key reachable
+    private static final Map<ItemTemplate, WeakReference<ItemTemplate>> templates = new WeakHashMap<>();
+
+    private ItemTemplateCatalog() {
+    }
+
+    public static synchronized ItemTemplate intern(ItemTemplate template) {
+        WeakReference<ItemTemplate> reference = templates.get(template);
+        ItemTemplate existing = reference != null ? reference.get() : null;
+        if (existing != null) {
+            return existing;
+        }
+        templates.put(template, new WeakReference<>(template));
+        return template;
+    }
+
+    public static synchronized int size() {
+        return templates.size();
+    }
+}
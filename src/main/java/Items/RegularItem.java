@@ -4,13 +4,19 @@ import java.io.BufferedWriter;
 import java.io.IOException;
 
 public class RegularItem extends Item {
+    private static final long serialVersionUID = 8102919741644889290L;
+
     public RegularItem(String name, String description, double price, double weight) {
         super(name, description, price, weight);
     }
 
+    RegularItem(ItemTemplate template) {
+        super(template);
+    }
+
     @Override
     public void display() {
-        System.out.println("Item: " + getName() + ", Description: " + getDescription() + ", Price: " + getPrice() + ", Weight: " + getWeight());
+        System.out.println("Item: " + getName() + ", Description: " + getDescription() + ", Price: " + getPrice() + ", Weight: " + getWeight() + ", Id: " + getId());
     }
 
     @Override
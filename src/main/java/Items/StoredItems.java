@@ -0,0 +1,48 @@
+package Items;
+
+import java.util.function.Supplier;
+
+// Rebuilds items read back from storage in one step: the template (or plain fields), the per-item overrides
+// and the persisted id. Items have no public setters, so this is the only way to recreate a saved one.
+public final class StoredItems {
+    private StoredItems() {
+    }
+
+    // name and description are null where the template's value applies; deferredDescription, when given,
+    // is called the first time the description is needed. id 0 leaves the item without one.
+    public static Item fromTemplate(ItemTemplate template, long id, String name, String description,
+                                    Supplier<String> deferredDescription, double price, double weight) {
+        Item item = ItemTemplateCatalog.intern(template).newItem();
+        item.restore(name, description, deferredDescription, price, weight);
+        return withId(item, id);
+    }
+
+    // The shared template for a stored definition whose description is decoded the first time it is needed
+    public static ItemTemplate template(String itemType, String name, Supplier<String> deferredDescription,
+                                        double price, double weight, String damageRoll, int defense) {
+        return ItemTemplateCatalog.intern(new ItemTemplate(itemType, name, deferredDescription, price, weight, damageRoll, defense));
+    }
+
+    // itemType is "Weapon", "Armor" or "Regular"; null for an unknown type
+    public static Item fromFields(String itemType, long id, String name, String description, Supplier<String> deferredDescription,
+                                  double price, double weight, String damageRoll, int defense) {
+        Item item;
+        if (itemType.equalsIgnoreCase("Weapon")) {
+            item = new Weapon(name, description, price, weight, damageRoll);
+        } else if (itemType.equalsIgnoreCase("Armor")) {
+            item = new Armor(name, description, price, weight, defense);
+        } else if (itemType.equalsIgnoreCase("Regular")) {
+            item = new RegularItem(name, description, price, weight);
+        } else {
+            return null;
+        }
+        if (deferredDescription != null) {
+            item.restore(name, null, deferredDescription, price, weight);
+        }
+        return withId(item, id);
+    }
+
+    private static Item withId(Item item, long id) {
+        return id != 0 ? ItemIdGenerator.restoreId(item, id) : item;
+    }
+}
@@ -2,8 +2,13 @@ package Items;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 public class Weapon extends Item {
+    private static final long serialVersionUID = -2613410695071075132L;
+
+    // null when the template supplies it
     private String damageRoll;
 
     public Weapon(String name, String description, double price, double weight, String damageRoll) {
@@ -11,23 +16,34 @@ public class Weapon extends Item {
         this.damageRoll = damageRoll;
     }
 
+    Weapon(ItemTemplate template) {
+        super(template);
+    }
+
     public String getDamageRoll() {
-        return damageRoll;
+        return damageRoll != null ? damageRoll : getTemplate().getDamageRoll();
+    }
+
+    @Override
+    public List<Object> getStackKey() {
+        List<Object> key = new ArrayList<>(super.getStackKey());
+        key.add(getDamageRoll());
+        return key;
     }
 
     @Override
     public void display() {
-        System.out.println("Weapon: " + getName() + ", Description: " + getDescription() + ", Price: " + getPrice() + ", Weight: " + getWeight() + ", Damage: " + damageRoll);
+        System.out.println("Weapon: " + getName() + ", Description: " + getDescription() + ", Price: " + getPrice() + ", Weight: " + getWeight() + ", Damage: " + getDamageRoll() + ", Id: " + getId());
     }
 
     @Override
     protected void writeSpecificData(BufferedWriter writer) throws IOException {
-        writer.write("Damage: " + damageRoll + "\n");
+        writer.write("Damage: " + getDamageRoll() + "\n");
     }
 
     @Override
     public String toString() {
-        return getName() + " (Damage: " + damageRoll + ")";
+        return getName() + " (Damage: " + getDamageRoll() + ")";
     }
 }
 
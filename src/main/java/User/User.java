@@ -22,6 +22,15 @@ public class User implements Serializable {
         this.salt = generateSalt();
         this.passwordHash = hashPassword(password, salt);
     }
+
+    // Rebuilds a stored user without re-hashing
+    User(String username, String passwordHash, String salt, String email, long createdDate) {
+        this.username = username;
+        this.passwordHash = passwordHash;
+        this.salt = salt;
+        this.email = email;
+        this.createdDate = createdDate;
+    }
     
     private String generateSalt() {
         SecureRandom random = new SecureRandom();
@@ -57,6 +66,14 @@ public class User implements Serializable {
     public long getCreatedDate() {
         return createdDate;
     }
+
+    String getPasswordHash() {
+        return passwordHash;
+    }
+
+    String getSalt() {
+        return salt;
+    }
     
     public String getInventoryFileName() {
         return "inventory_" + username + ".dat";
@@ -1,20 +1,28 @@
 package User;
 
+import FileManagement.InventoryFileFormat;
 import java.io.*;
-import java.util.HashMap;
 import java.util.Map;
 
 public class UserManager {
-    private static final String USERS_FILE = "users.dat";
-    private Map<String, User> users;
+    // Only read once, to migrate users saved before the indexed store existed
+    private static final String LEGACY_USERS_FILE = "users.dat";
+    private static final String USERS_FILE = "users.records";
+    private static final String USERS_INDEX_FILE = "users.index";
+    private UserStore users;
     
+    // Compresses new user records under the same setting as the inventory files
     public UserManager() {
-        users = new HashMap<>();
-        loadUsers();
+        try {
+            users = new UserStore(USERS_FILE, USERS_INDEX_FILE, Boolean.getBoolean(InventoryFileFormat.COMPRESS_PROPERTY));
+            migrateLegacyUsers();
+        } catch (IOException e) {
+            System.err.println("Error loading users: " + e.getMessage());
+        }
     }
     
     public boolean registerUser(String username, String password, String email) {
-        if (users.containsKey(username.toLowerCase())) {
+        if (userExists(username)) {
             return false; // Username already exists
         }
         
@@ -27,13 +35,17 @@ public class UserManager {
         }
         
         User newUser = new User(username, password, email);
-        users.put(username.toLowerCase(), newUser);
-        saveUsers();
-        return true;
+        try {
+            // Appends one record; the rest of the store is untouched
+            return users != null && users.add(newUser);
+        } catch (IOException e) {
+            System.err.println("Error saving users: " + e.getMessage());
+            return false;
+        }
     }
     
     public User authenticateUser(String username, String password) {
-        User user = users.get(username.toLowerCase());
+        User user = findUser(username);
         if (user != null && user.verifyPassword(password)) {
             return user;
         }
@@ -41,7 +53,19 @@ public class UserManager {
     }
     
     public boolean userExists(String username) {
-        return users.containsKey(username.toLowerCase());
+        return findUser(username) != null;
+    }
+    
+    private User findUser(String username) {
+        if (users == null) {
+            return null;
+        }
+        try {
+            return users.find(username);
+        } catch (IOException e) {
+            System.err.println("Error loading users: " + e.getMessage());
+            return null;
+        }
     }
     
     private boolean isValidEmail(String email) {
@@ -52,27 +76,33 @@ public class UserManager {
         return password != null && password.length() >= 6;
     }
     
-    private void loadUsers() {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(USERS_FILE))) {
-            users = (Map<String, User>) ois.readObject();
-        } catch (FileNotFoundException e) {
-            // File doesn't exist yet, start with empty users map
-            users = new HashMap<>();
-        } catch (IOException | ClassNotFoundException e) {
+    // Copies users.dat into the store the first time the store is opened empty; users.dat is left as it was
+    @SuppressWarnings("unchecked")
+    private void migrateLegacyUsers() throws IOException {
+        File legacyFile = new File(LEGACY_USERS_FILE);
+        if (!legacyFile.exists() || users.size() > 0) {
+            return;
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(legacyFile))) {
+            Map<String, User> legacyUsers = (Map<String, User>) ois.readObject();
+            for (User user : legacyUsers.values()) {
+                users.add(user);
+            }
+            System.out.println(legacyUsers.size() + " users migrated from " + LEGACY_USERS_FILE);
+        } catch (ClassNotFoundException e) {
             System.err.println("Error loading users: " + e.getMessage());
-            users = new HashMap<>();
         }
     }
     
-    private void saveUsers() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(USERS_FILE))) {
-            oos.writeObject(users);
+    public int getUserCount() {
+        if (users == null) {
+            return 0;
+        }
+        try {
+            return users.size();
         } catch (IOException e) {
-            System.err.println("Error saving users: " + e.getMessage());
+            System.err.println("Error loading users: " + e.getMessage());
+            return 0;
         }
     }
-    
-    public int getUserCount() {
-        return users.size();
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,379 @@
+package User;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Users kept as an append-only record file plus an on-disk hash index keyed by lowercase username, so a
+// lookup reads a few index slots and one record, and a registration appends one record and one slot.
+//   records  per user: int payload length, int CRC32 of the payload, payload (username, password hash, salt,
+//            email as modified UTF-8, long creation date). In compressed mode a payload that Deflate shrinks is
+//            stored deflated, marked by the DEFLATED bit of its length; records of both kinds can be mixed.
+//   index    int magic "DIMU", int version, int capacity (a power of two), int count, long length of the record
+//            file covered by the index; then capacity slots of (long key hash, long record offset), hash 0 = empty
+// Open addressing with linear probing; the table is rebuilt at twice the size once it is half full.
+// Records appended after the index was last written (e.g. a crash between the two) are indexed on open.
+public class UserStore {
+    private static final int MAGIC = 0x44494D55; // "DIMU"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+    private static final int SLOT_SIZE = 16;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MAX_RECORD_SIZE = 64 * 1024;
+    private static final int DEFLATED = 0x40000000;
+    // Every store in the process shares one lock, since several UserManagers may open the same files
+    private static final Object LOCK = new Object();
+
+    private final Path recordFile;
+    private final Path indexFile;
+    private final boolean compressed;
+
+    public UserStore(String recordFile, String indexFile) throws IOException {
+        this(recordFile, indexFile, false);
+    }
+
+    // compressed only affects records appended from now on; the index is fixed-size slots and stays as it is
+    public UserStore(String recordFile, String indexFile, boolean compressed) throws IOException {
+        this.recordFile = Paths.get(recordFile);
+        this.indexFile = Paths.get(indexFile);
+        this.compressed = compressed;
+        synchronized (LOCK) {
+            try (FileChannel records = open(this.recordFile)) {
+                FileChannel index = open(this.indexFile);
+                try {
+                    if (index.size() < HEADER_SIZE) {
+                        writeEmptyIndex(index, INITIAL_CAPACITY);
+                    }
+                    try {
+                        readHeader(index);
+                    } catch (IOException e) {
+                        // The index only mirrors the records, so it can always be rebuilt from them
+                        System.err.println("Rebuilding user index: " + e.getMessage());
+                        writeEmptyIndex(index, INITIAL_CAPACITY);
+                    }
+                    index = catchUp(records, index);
+                } finally {
+                    index.close();
+                }
+            }
+        }
+    }
+
+    public User find(String username) throws IOException {
+        String key = username.toLowerCase();
+        synchronized (LOCK) {
+            try (FileChannel records = open(recordFile); FileChannel index = open(indexFile)) {
+                long offset = findOffset(records, index, key);
+                return offset < 0 ? null : readRecord(records, offset);
+            }
+        }
+    }
+
+    public boolean contains(String username) throws IOException {
+        return find(username) != null;
+    }
+
+    // Appends the user unless the (case-insensitive) username is taken; returns whether it was added
+    public boolean add(User user) throws IOException {
+        String key = user.getUsername().toLowerCase();
+        synchronized (LOCK) {
+            try (FileChannel records = open(recordFile)) {
+                FileChannel index = open(indexFile);
+                try {
+                    if (findOffset(records, index, key) >= 0) {
+                        return false;
+                    }
+                    long offset = records.size();
+                    ByteBuffer record = encodeRecord(user, compressed);
+                    writeFully(records, record, offset);
+                    records.force(false);
+                    index = insert(index, key, offset, offset + record.limit());
+                    return true;
+                } finally {
+                    index.close();
+                }
+            }
+        }
+    }
+
+    public int size() throws IOException {
+        synchronized (LOCK) {
+            try (FileChannel index = open(indexFile)) {
+                return readHeader(index).getInt(12);
+            }
+        }
+    }
+
+    private long findOffset(FileChannel records, FileChannel index, String key) throws IOException {
+        ByteBuffer header = readHeader(index);
+        int mask = header.getInt(8) - 1;
+        long hash = hash(key);
+        ByteBuffer slot = ByteBuffer.allocate(SLOT_SIZE);
+        for (int i = (int) (hash & mask); ; i = (i + 1) & mask) {
+            readSlot(index, i, slot);
+            long slotHash = slot.getLong(0);
+            if (slotHash == 0) {
+                return -1;
+            }
+            // Equal hashes are confirmed against the stored username
+            if (slotHash == hash && readRecord(records, slot.getLong(8)).getUsername().equalsIgnoreCase(key)) {
+                return slot.getLong(8);
+            }
+        }
+    }
+
+    // Indexes the record at offset, which ends at end. Returns the channel to keep using: a new one (and the
+    // given one closed) if the table had to grow.
+    private FileChannel insert(FileChannel index, String key, long offset, long end) throws IOException {
+        ByteBuffer header = readHeader(index);
+        int capacity = header.getInt(8);
+        int count = header.getInt(12);
+        if ((count + 1) * 2 > capacity) {
+            FileChannel grown = rebuild(index, capacity * 2);
+            index.close();
+            index = grown;
+            header = readHeader(index);
+            capacity = header.getInt(8);
+        }
+        long hash = hash(key);
+        int mask = capacity - 1;
+        ByteBuffer slot = ByteBuffer.allocate(SLOT_SIZE);
+        for (int i = (int) (hash & mask); ; i = (i + 1) & mask) {
+            readSlot(index, i, slot);
+            if (slot.getLong(0) == hash && slot.getLong(8) == offset) {
+                break; // Already indexed, e.g. re-read after a crash
+            }
+            if (slot.getLong(0) == 0) {
+                slot.clear();
+                slot.putLong(hash).putLong(offset).flip();
+                writeFully(index, slot, HEADER_SIZE + (long) i * SLOT_SIZE);
+                header.putInt(12, header.getInt(12) + 1);
+                break;
+            }
+        }
+        // The header goes last: if it never lands, catchUp re-indexes the record, which is idempotent
+        header.putLong(16, Math.max(header.getLong(16), end));
+        header.rewind();
+        writeFully(index, header, 0);
+        index.force(false);
+        return index;
+    }
+
+    // Indexes records the index does not cover yet, and drops a torn tail left by a crash mid-append
+    private FileChannel catchUp(FileChannel records, FileChannel index) throws IOException {
+        long position = readHeader(index).getLong(16);
+        while (position < records.size()) {
+            ByteBuffer lengthAndCrc = ByteBuffer.allocate(8);
+            User user = position + 8 <= records.size() ? tryReadRecord(records, position, lengthAndCrc) : null;
+            if (user == null) {
+                System.err.println("Dropping incomplete user record at offset " + position);
+                records.truncate(position);
+                break;
+            }
+            long end = position + 8 + (lengthAndCrc.getInt(0) & ~DEFLATED);
+            index = insert(index, user.getUsername().toLowerCase(), position, end);
+            position = end;
+        }
+        return index;
+    }
+
+    // Writes a table of the new capacity next to the index, moves it into place, and returns a channel on it
+    private FileChannel rebuild(FileChannel index, int capacity) throws IOException {
+        ByteBuffer header = readHeader(index);
+        int oldCapacity = header.getInt(8);
+        ByteBuffer oldSlots = ByteBuffer.allocate(oldCapacity * SLOT_SIZE);
+        readFully(index, oldSlots, HEADER_SIZE);
+        ByteBuffer table = ByteBuffer.allocate(HEADER_SIZE + capacity * SLOT_SIZE);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldCapacity; i++) {
+            long hash = oldSlots.getLong(i * SLOT_SIZE);
+            if (hash == 0) {
+                continue;
+            }
+            int j = (int) (hash & mask);
+            while (table.getLong(HEADER_SIZE + j * SLOT_SIZE) != 0) {
+                j = (j + 1) & mask;
+            }
+            table.putLong(HEADER_SIZE + j * SLOT_SIZE, hash);
+            table.putLong(HEADER_SIZE + j * SLOT_SIZE + 8, oldSlots.getLong(i * SLOT_SIZE + 8));
+        }
+        table.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, capacity).putInt(12, header.getInt(12)).putLong(16, header.getLong(16));
+
+        Path temp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(out, table, 0);
+            out.force(true);
+        }
+        try {
+            Files.move(temp, indexFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return open(indexFile);
+    }
+
+    private static ByteBuffer readHeader(FileChannel index) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(index, header, 0);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            throw new IOException("Not a user index file");
+        }
+        int capacity = header.getInt(8);
+        if (capacity <= 0 || (capacity & (capacity - 1)) != 0 || index.size() < HEADER_SIZE + (long) capacity * SLOT_SIZE) {
+            throw new IOException("Corrupt user index: capacity " + capacity);
+        }
+        return header;
+    }
+
+    private static void writeEmptyIndex(FileChannel index, int capacity) throws IOException {
+        ByteBuffer table = ByteBuffer.allocate(HEADER_SIZE + capacity * SLOT_SIZE);
+        table.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, capacity).putInt(12, 0).putLong(16, 0);
+        index.truncate(0);
+        writeFully(index, table, 0);
+        index.force(true);
+    }
+
+    private static void readSlot(FileChannel index, int i, ByteBuffer slot) throws IOException {
+        slot.clear();
+        readFully(index, slot, HEADER_SIZE + (long) i * SLOT_SIZE);
+    }
+
+    private static User readRecord(FileChannel records, long offset) throws IOException {
+        User user = tryReadRecord(records, offset, ByteBuffer.allocate(8));
+        if (user == null) {
+            throw new IOException("Corrupt user record at offset " + offset);
+        }
+        return user;
+    }
+
+    // null if the record at offset is torn or fails its checksum; lengthAndCrc receives its 8-byte prefix
+    private static User tryReadRecord(FileChannel records, long offset, ByteBuffer lengthAndCrc) throws IOException {
+        lengthAndCrc.clear();
+        readFully(records, lengthAndCrc, offset);
+        int length = lengthAndCrc.getInt(0) & ~DEFLATED;
+        if (length <= 0 || length > MAX_RECORD_SIZE || offset + 8 + length > records.size()) {
+            return null;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(records, payload, offset + 8);
+        CRC32 crc = new CRC32();
+        crc.update(payload.array());
+        if ((int) crc.getValue() != lengthAndCrc.getInt(4)) {
+            return null;
+        }
+        byte[] bytes = (lengthAndCrc.getInt(0) & DEFLATED) != 0 ? inflate(payload.array()) : payload.array();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            return new User(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(), in.readLong());
+        }
+    }
+
+    private static ByteBuffer encodeRecord(User user, boolean compressed) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(payload)) {
+            out.writeUTF(user.getUsername());
+            out.writeUTF(user.getPasswordHash());
+            out.writeUTF(user.getSalt());
+            out.writeUTF(user.getEmail() != null ? user.getEmail() : "");
+            out.writeLong(user.getCreatedDate());
+        }
+        byte[] bytes = payload.toByteArray();
+        int flags = 0;
+        if (compressed) {
+            // Password hashes and salts are random, so short records often do not shrink; those stay plain
+            byte[] deflated = deflate(bytes);
+            if (deflated.length < bytes.length) {
+                bytes = deflated;
+                flags = DEFLATED;
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        ByteBuffer record = ByteBuffer.allocate(8 + bytes.length);
+        record.putInt(bytes.length | flags).putInt((int) crc.getValue()).put(bytes).flip();
+        return record;
+    }
+
+    private static byte[] deflate(byte[] bytes) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length);
+            byte[] buffer = new byte[1024];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] bytes) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length * 2);
+            byte[] buffer = new byte[1024];
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(buffer);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated compressed user record");
+                }
+                out.write(buffer, 0, inflated);
+                if (out.size() > MAX_RECORD_SIZE) {
+                    throw new IOException("Compressed user record too large");
+                }
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt compressed user record: " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+    }
+
+    // 64-bit FNV-1a of the UTF-8 key; stable across runs, never 0 (which marks an empty slot)
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return hash != 0 ? hash : 1;
+    }
+
+    private static FileChannel open(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of user file");
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+}
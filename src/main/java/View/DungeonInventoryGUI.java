@@ -1,8 +1,13 @@
 package View;
 
+import java.io.IOException;
 import java.util.List;
 
+import FileManagement.AutosaveService;
 import FileManagement.FileService;
+import FileManagement.ISaveListener;
+import FileManagement.InventoryJournal;
+import Inventory.IInventoryService;
 import Inventory.InventoryService;
 import Items.Item;
 import User.User;
@@ -11,6 +16,7 @@ import javafx.scene.layout.VBox;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.BorderPane;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.scene.Scene;
 import javafx.scene.control.Label;
 import javafx.scene.control.Button;
@@ -20,12 +26,16 @@ import javafx.stage.Stage;
 import javafx.scene.image.Image;
 
 public class DungeonInventoryGUI extends Application {
-    private static InventoryService inventoryService = new InventoryService();
+    private IInventoryService inventoryService = new InventoryService();
     private static FileService fileService = new FileService();
+    private InventoryJournal journal;
+    private AutosaveService autosave;
+    private Label saveStatusLabel;
     private Stage primaryStage;
     private User currentUser;
     private ItemTableView itemTableView;
     private InventoryActionsPanel actionsPanel;
+    private InventoryStatsProperties statsProperties;
 
     @Override
     public void start(Stage primaryStage) {
@@ -45,13 +55,30 @@ public class DungeonInventoryGUI extends Application {
     private void showMainInventory(User user) {
         this.currentUser = user;
         
-        // Load inventory from user-specific file
+        // Load inventory from user-specific file, replaying changes journaled since its last snapshot
         String userInventoryFile = user.getInventoryFileName();
-        List<Item> loadedItems = fileService.readItemsFromFile(userInventoryFile);
+        List<Item> loadedItems = InventoryJournal.recover(userInventoryFile, fileService);
         
         // Clear previous inventory and add loaded items
-        inventoryService = new InventoryService(); // Reset service
-        loadedItems.forEach(item -> inventoryService.addItem(item));
+        inventoryService = new InventoryService(true); // Reset service, stacking identical items
+        inventoryService.addAllItems(loadedItems);
+
+        // From here on each change is appended to the journal instead of rewriting the whole file
+        try {
+            journal = InventoryJournal.open(userInventoryFile, inventoryService);
+        } catch (IOException e) {
+            journal = null;
+            System.err.println("Error opening inventory journal, falling back to full saves: " + e.getMessage());
+        }
+        // Saves happen in the background a moment after the last change; the header shows how they go
+        saveStatusLabel = new Label("All changes saved");
+        autosave = AutosaveService.start(userInventoryFile, inventoryService, journal, Platform::runLater, createSaveListener());
+
+        // Header stats follow the service's running totals from here on
+        if (statsProperties != null) {
+            statsProperties.dispose();
+        }
+        statsProperties = new InventoryStatsProperties(inventoryService.getStats());
 
         // Create the main layout
         BorderPane root = new BorderPane();
@@ -66,14 +93,14 @@ public class DungeonInventoryGUI extends Application {
         mainContent.setPadding(new Insets(10, 0, 0, 0));
         
         // Create and set up the table view
-        itemTableView = new ItemTableView(loadedItems);
+        itemTableView = ItemTableView.create(inventoryService);
         VBox tableContainer = new VBox(5);
         Label tableTitle = new Label("Your Inventory");
         tableTitle.setStyle("-fx-font-size: 16px; -fx-font-weight: bold; -fx-text-fill: #495057;");
-        tableContainer.getChildren().addAll(tableTitle, itemTableView.getTableView());
+        tableContainer.getChildren().addAll(tableTitle, itemTableView.getView());
         
         // Create actions panel
-        actionsPanel = new InventoryActionsPanel(inventoryService, currentUser, this::refreshInventoryView);
+        actionsPanel = new InventoryActionsPanel(inventoryService, itemTableView, currentUser, autosave);
         
         // Add components to main content
         mainContent.getChildren().addAll(tableContainer, actionsPanel.getActionsPanel());
@@ -108,7 +135,7 @@ public class DungeonInventoryGUI extends Application {
         
         // Create stats label
         Label statsLabel = new Label();
-        updateStatsLabel(statsLabel);
+        statsLabel.textProperty().bind(statsProperties.summaryProperty());
         statsLabel.setStyle("-fx-font-size: 12px; -fx-text-fill: #6c757d;");
         
         Button logoutButton = new Button("Logout");
@@ -120,7 +147,8 @@ public class DungeonInventoryGUI extends Application {
         // Layout components
         VBox leftSide = new VBox(5);
         leftSide.setAlignment(Pos.CENTER_LEFT);
-        leftSide.getChildren().addAll(titleLabel, userLabel, statsLabel);
+        saveStatusLabel.setStyle("-fx-font-size: 11px; -fx-text-fill: #6c757d;");
+        leftSide.getChildren().addAll(titleLabel, userLabel, statsLabel, saveStatusLabel);
         
         HBox rightSide = new HBox();
         rightSide.setAlignment(Pos.CENTER_RIGHT);
@@ -132,50 +160,6 @@ public class DungeonInventoryGUI extends Application {
         return header;
     }
     
-    private void updateStatsLabel(Label statsLabel) {
-        List<Item> items = inventoryService.getAllItems();
-        int totalItems = items.size();
-        int weapons = (int) items.stream().filter(item -> item instanceof Items.Weapon).count();
-        int armor = (int) items.stream().filter(item -> item instanceof Items.Armor).count();
-        int regular = totalItems - weapons - armor;
-        
-        statsLabel.setText(String.format("Total Items: %d | Weapons: %d | Armor: %d | Regular: %d", 
-                                        totalItems, weapons, armor, regular));
-    }
-    
-    private void refreshInventoryView() {
-        // Get current items from inventory service
-        List<Item> currentItems = inventoryService.getAllItems();
-        
-        // Update the table view
-        itemTableView.updateItems(currentItems);
-        
-        // Update stats in header - we need to find the stats label in the scene
-        updateStatsInHeader();
-    }
-    
-    private void updateStatsInHeader() {
-        // This is a simple way to update stats - in a more complex app you'd want better state management
-        Scene scene = primaryStage.getScene();
-        if (scene != null && scene.getRoot() instanceof BorderPane) {
-            BorderPane root = (BorderPane) scene.getRoot();
-            if (root.getTop() instanceof HBox) {
-                HBox header = (HBox) root.getTop();
-                header.getChildren().stream()
-                    .filter(node -> node instanceof VBox)
-                    .findFirst()
-                    .ifPresent(node -> {
-                        VBox leftSide = (VBox) node;
-                        leftSide.getChildren().stream()
-                            .filter(child -> child instanceof Label)
-                            .skip(2) // Skip title and user label
-                            .findFirst()
-                            .ifPresent(statsNode -> updateStatsLabel((Label) statsNode));
-                    });
-            }
-        }
-    }
-    
     private void handleLogout() {
         // Save current inventory before logout
         saveCurrentInventory();
@@ -186,13 +170,50 @@ public class DungeonInventoryGUI extends Application {
     }
     
     private void saveCurrentInventory() {
-        if (currentUser != null) {
+        if (autosave == null) {
+            return; // Already saved on logout
+        }
+        boolean saved = true;
+        // Waits only for a save already running and the changes since the last one
+        try {
+            autosave.close();
+        } catch (IOException e) {
+            saved = false;
+            System.err.println("Error saving inventory: " + e.getMessage());
+        }
+        autosave = null;
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                saved = false;
+                System.err.println("Error closing inventory journal: " + e.getMessage());
+            }
+            journal = null;
+        }
+        if (!saved) {
             // Save inventory to user-specific file
             String userInventoryFile = currentUser.getInventoryFileName();
             fileService.writeItemsToFile(inventoryService.getAllItems(), userInventoryFile);
         }
     }
 
+    // Autosave reports from its own thread; the label is only touched on the JavaFX thread
+    private ISaveListener createSaveListener() {
+        Label statusLabel = saveStatusLabel;
+        return new ISaveListener() {
+            @Override
+            public void onSaveProgress(double fraction) {
+                Platform.runLater(() -> statusLabel.setText(String.format("Saving... %d%%", Math.round(fraction * 100))));
+            }
+
+            @Override
+            public void onSaveCompleted(IOException error) {
+                Platform.runLater(() -> statusLabel.setText(error == null ? "All changes saved" : "Save failed: " + error.getMessage()));
+            }
+        };
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
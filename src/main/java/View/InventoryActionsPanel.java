@@ -1,40 +1,58 @@
 package View;
 
 import Commands.*;
-import Inventory.InventoryService;
+import Inventory.IInventoryService;
+import Inventory.InventoryCount;
 import Items.ItemFactory;
 import Items.Item;
 import Items.Weapon;
 import InputValidation.GUIInputHandler;
 import InputValidation.IInputValidator;
 import InputValidation.IInputValidator;
-import FileManagement.FileService;
+import InputValidation.NumberValidator;
+import FileManagement.AutosaveService;
+import FileManagement.ExportFormat;
+import FileManagement.ImportResult;
+import FileManagement.InventoryExporter;
+import FileManagement.InventoryImporter;
 import User.User;
 
+import javafx.application.Platform;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.geometry.Insets;
+import javafx.stage.FileChooser;
 
+import java.io.File;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public class InventoryActionsPanel {
     private IInputValidator<Integer> validator;
     private VBox actionsPanel;
-    private InventoryService inventoryService;
+    private IInventoryService inventoryService;
     private GUIInputHandler inputHandler;
     private ItemFactory itemFactory;
-    private FileService fileService;
+    private AutosaveService autosave;
+    private Button exportBtn;
+    private ProgressBar exportProgress;
+    private Button importBtn;
+    private ProgressBar importProgress;
     private User currentUser;
-    private Runnable refreshCallback;
+    private ItemTableView itemTable;
     
-    public InventoryActionsPanel(InventoryService inventoryService, User currentUser, Runnable refreshCallback) {
+    public InventoryActionsPanel(IInventoryService inventoryService, ItemTableView itemTable, User currentUser, AutosaveService autosave) {
         this.inventoryService = inventoryService;
+        this.itemTable = itemTable;
         this.currentUser = currentUser;
-        this.refreshCallback = refreshCallback;
+        this.autosave = autosave;
         this.inputHandler = new GUIInputHandler();
         this.itemFactory = new ItemFactory();
-        this.fileService = new FileService();
         
         createActionsPanel();
     }
@@ -51,16 +69,28 @@ public class InventoryActionsPanel {
         Button addItemBtn = createActionButton("Add Item", "#28a745");
         Button removeItemBtn = createActionButton("Remove Item", "#dc3545");
         Button searchItemBtn = createActionButton("Search Items", "#17a2b8");
+        Button advancedSearchBtn = createActionButton("Advanced Search", "#17a2b8");
         Button makeAttackBtn = createActionButton("Make Attack", "#fd7e14");
-        Button exportBtn = createActionButton("Export Inventory", "#6c757d");
+        exportBtn = createActionButton("Export Inventory", "#6c757d");
+        exportProgress = new ProgressBar(0);
+        exportProgress.setMaxWidth(Double.MAX_VALUE);
+        exportProgress.setVisible(false);
+        exportProgress.setManaged(false);
+        importBtn = createActionButton("Import Items", "#6c757d");
+        importProgress = new ProgressBar(0);
+        importProgress.setMaxWidth(Double.MAX_VALUE);
+        importProgress.setVisible(false);
+        importProgress.setManaged(false);
         Button saveBtn = createActionButton("Save Inventory", "#007bff");
         
         // Set button actions
         addItemBtn.setOnAction(e -> executeAddItemCommand());
         removeItemBtn.setOnAction(e -> executeRemoveItemCommand());
         searchItemBtn.setOnAction(e -> executeSearchItemCommand());
+        advancedSearchBtn.setOnAction(e -> executeAdvancedSearchCommand());
         makeAttackBtn.setOnAction(e -> executeMakeAttackCommand());
         exportBtn.setOnAction(e -> executeExportCommand());
+        importBtn.setOnAction(e -> executeImportCommand());
         saveBtn.setOnAction(e -> executeSaveCommand());
         
         // Add all elements to the panel
@@ -70,9 +100,13 @@ public class InventoryActionsPanel {
             addItemBtn,
             removeItemBtn,
             searchItemBtn,
+            advancedSearchBtn,
             makeAttackBtn,
             new Separator(),
             exportBtn,
+            exportProgress,
+            importBtn,
+            importProgress,
             saveBtn
         );
     }
@@ -122,13 +156,13 @@ public class InventoryActionsPanel {
     private void executeAddItemCommand() {
         AddItemCommand command = new AddItemCommand(inventoryService, inputHandler, itemFactory);
         command.execute();
-        refreshCallback.run();
         showSuccess("Item added successfully!");
     }
     
     private void executeRemoveItemCommand() {
-        List<Item> items = inventoryService.getAllItems();
-        if (items.isEmpty()) {
+        // Offers the stacks loaded in the table rather than copying the whole inventory into the dialog
+        List<InventoryCount> stacks = itemTable.getLoadedStacks();
+        if (stacks.isEmpty()) {
             showError("No items in inventory to remove.");
             return;
         }
@@ -138,20 +172,34 @@ public class InventoryActionsPanel {
         // This made the dialog show the Item Object's Class and HashCode instead of the item name.
         // To fix this, we need to extract the item names and use them in the ChoiceDialog.
 
-        List<String> itemNames = items.stream()
-            .map(Item::getName)
-            .collect(java.util.stream.Collectors.toList());
+        // Each stack gets its own entry, labelled with its quantity and id so items sharing a name stay apart
+        Map<String, InventoryCount> stacksByLabel = new LinkedHashMap<>();
+        for (InventoryCount stack : stacks) {
+            Item item = stack.getItem();
+            String quantity = stack.getCount() > 1 ? " x" + stack.getCount() : "";
+            stacksByLabel.put(item.getName() + quantity + " (#" + item.getId() + ")", stack);
+        }
+        List<String> itemNames = new ArrayList<>(stacksByLabel.keySet());
         
         // Create a choice dialog with all items
         ChoiceDialog<String> dialog = new ChoiceDialog<>(itemNames.get(0), itemNames);
         dialog.setTitle("Remove Item");
-        dialog.setHeaderText("Select item to remove:");
+        dialog.setHeaderText(itemTable.isFullyLoaded()
+                ? "Select item to remove:"
+                : "Select item to remove (use \"Show more\" under the table for items not listed):");
         dialog.setContentText("Item:");
         
         Optional<String> result = dialog.showAndWait();
         if (result.isPresent()) {
-            inventoryService.removeItem(result.get());
-            refreshCallback.run();
+            InventoryCount stack = stacksByLabel.get(result.get());
+            int quantity = 1;
+            if (stack.getCount() > 1) {
+                quantity = inputHandler.getIntegerInput("How many to remove? (1-" + stack.getCount() + ")", new NumberValidator(1, stack.getCount()));
+                if (quantity == 0) {
+                    return; // User cancelled
+                }
+            }
+            inventoryService.removeItemById(stack.getItem().getId(), quantity);
             showSuccess("Item removed successfully!");
         }
     }
@@ -160,10 +208,14 @@ public class InventoryActionsPanel {
         SearchItemsCommand command = new SearchItemsCommand(inventoryService, inputHandler);
         command.execute();
     }
+
+    private void executeAdvancedSearchCommand() {
+        SearchItemsCommand command = new SearchItemsCommand(inventoryService, inputHandler, true);
+        command.execute();
+    }
     
     private void executeMakeAttackCommand() {
-        List<Weapon> weapons = inventoryService.getAllWeapons();
-        if (weapons.isEmpty()) {
+        if (inventoryService.countItems(Weapon.class) == 0) {
             showError("No weapons in inventory to make an attack.");
             return;
         }
@@ -173,45 +225,102 @@ public class InventoryActionsPanel {
     }
     
     private void executeExportCommand() {
-        // Create a custom export command that uses user-specific filename
-        ExportInventoryCommand command = new ExportInventoryCommand(inventoryService) {
-            @Override
-            public void execute() {
-                String fileName = "inventory_" + currentUser.getUsername() + ".txt";
-                prepareFileForWrite(fileName);
-                List<Item> items = inventoryService.getAllItems();
-                for (Item item : items) {
-                    writeItemToFile(item, fileName);
-                }
-                showSuccess("Items exported to: " + fileName);
-            }
-            
-            private void prepareFileForWrite(String fileName) {
-                try (java.io.BufferedWriter writer = new java.io.BufferedWriter(new java.io.FileWriter(fileName, false))) {
-                    writer.write("");
-                } catch (java.io.IOException e) {
-                    showError("Error preparing file for writing: " + e.getMessage());
-                }
-            }
-            
-            private void writeItemToFile(Item item, String fileName) {
-                try (java.io.BufferedWriter writer = new java.io.BufferedWriter(new java.io.FileWriter(fileName, true))) {   
-                    writer.write("--- " + item.getClass().getSimpleName() + " ---\n"); 
-                    item.writeToStream(writer); 
-                    writer.newLine();
-                } catch (java.io.IOException e) {
-                    showError("Error writing to file: " + e.getMessage());
-                }
-            }
-        };
+        ChoiceDialog<ExportFormat> dialog = new ChoiceDialog<>(ExportFormat.TEXT, ExportFormat.values());
+        dialog.setTitle("Export Inventory");
+        dialog.setHeaderText(null);
+        dialog.setContentText("Format:");
+        Optional<ExportFormat> format = dialog.showAndWait();
+        if (format.isEmpty()) {
+            return;
+        }
+        String fileName = "inventory_" + currentUser.getUsername() + "." + format.get().getExtension();
         
-        command.execute();
+        exportBtn.setDisable(true);
+        exportProgress.setProgress(0);
+        exportProgress.setVisible(true);
+        exportProgress.setManaged(true);
+        // getItemStacks() is an immutable snapshot, so the file can be written off the JavaFX thread
+        InventoryExporter.exportInBackground(inventoryService.getItemStacks(), Paths.get(fileName), format.get(),
+                fraction -> Platform.runLater(() -> exportProgress.setProgress(fraction)))
+            .whenComplete((stacks, error) -> Platform.runLater(() -> {
+                exportBtn.setDisable(false);
+                exportProgress.setVisible(false);
+                exportProgress.setManaged(false);
+                if (error == null) {
+                    showSuccess("Items exported to: " + fileName);
+                } else {
+                    // Unwrap the CompletionException and UncheckedIOException around the real error
+                    Throwable cause = error;
+                    while (cause.getCause() != null) {
+                        cause = cause.getCause();
+                    }
+                    showError("Error writing to file: " + cause.getMessage());
+                }
+            }));
     }
     
+    private void executeImportCommand() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Import Items");
+        chooser.getExtensionFilters().addAll(
+            new FileChooser.ExtensionFilter("Item catalogs", "*.csv", "*.jsonl", "*.json"),
+            new FileChooser.ExtensionFilter("All files", "*.*"));
+        File file = chooser.showOpenDialog(actionsPanel.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        ExportFormat format = InventoryImporter.formatFor(file.toPath());
+        if (format == null) {
+            showError("Only .csv and .jsonl files can be imported.");
+            return;
+        }
+
+        importBtn.setDisable(true);
+        importProgress.setProgress(0);
+        importProgress.setVisible(true);
+        importProgress.setManaged(true);
+        // Rows are parsed off the JavaFX thread; only the bulk add touches the inventory, back on it
+        InventoryImporter.importInBackground(file.toPath(), format, itemFactory,
+                fraction -> Platform.runLater(() -> importProgress.setProgress(fraction)))
+            .whenComplete((result, error) -> Platform.runLater(() -> {
+                importBtn.setDisable(false);
+                importProgress.setVisible(false);
+                importProgress.setManaged(false);
+                if (error != null) {
+                    Throwable cause = error;
+                    while (cause.getCause() != null) {
+                        cause = cause.getCause();
+                    }
+                    showError("Error reading file: " + cause.getMessage());
+                    return;
+                }
+                inventoryService.addAllItems(result.getItems());
+                showImportSummary(result);
+            }));
+    }
+
+    private void showImportSummary(ImportResult result) {
+        int rejected = result.getErrors().size();
+        String summary = (result.getRowCount() - rejected) + " of " + result.getRowCount() + " rows imported ("
+            + result.getItems().size() + " items).";
+        if (rejected == 0) {
+            showSuccess(summary);
+            return;
+        }
+        // The full list can be long, so it goes in the expandable part of the dialog
+        Alert alert = new Alert(Alert.AlertType.WARNING);
+        alert.setTitle("Import Items");
+        alert.setHeaderText(summary);
+        alert.setContentText(rejected + " rows were rejected, starting with:\n" + result.getErrors().get(0));
+        TextArea details = new TextArea(String.join("\n", result.getErrors().subList(0, Math.min(rejected, 1000))));
+        details.setEditable(false);
+        alert.getDialogPane().setExpandableContent(details);
+        alert.showAndWait();
+    }
+
     private void executeSaveCommand() {
-        String userInventoryFile = currentUser.getInventoryFileName();
-        fileService.writeItemsToFile(inventoryService.getAllItems(), userInventoryFile);
-        showSuccess("Inventory saved successfully!");
+        // Runs in the background; progress and the result show up in the header
+        autosave.saveNow();
     }
     
     private void showSuccess(String message) {
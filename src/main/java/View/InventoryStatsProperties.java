@@ -0,0 +1,116 @@
+package View;
+
+import Inventory.InventoryStats;
+import Items.Armor;
+import Items.Item;
+import Items.Weapon;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
+
+// Mirrors InventoryStats into JavaFX properties so labels can bind to them instead of recounting items
+public class InventoryStatsProperties {
+    private final InventoryStats stats;
+    private final Runnable statsListener = this::onStatsChanged;
+    private final ReadOnlyIntegerWrapper totalItems = new ReadOnlyIntegerWrapper();
+    private final ReadOnlyIntegerWrapper weapons = new ReadOnlyIntegerWrapper();
+    private final ReadOnlyIntegerWrapper armor = new ReadOnlyIntegerWrapper();
+    private final ReadOnlyIntegerWrapper regular = new ReadOnlyIntegerWrapper();
+    private final ReadOnlyDoubleWrapper totalPrice = new ReadOnlyDoubleWrapper();
+    private final ReadOnlyDoubleWrapper totalWeight = new ReadOnlyDoubleWrapper();
+    private final ReadOnlyDoubleWrapper minPrice = new ReadOnlyDoubleWrapper();
+    private final ReadOnlyDoubleWrapper maxPrice = new ReadOnlyDoubleWrapper();
+    private final ReadOnlyDoubleWrapper minWeight = new ReadOnlyDoubleWrapper();
+    private final ReadOnlyDoubleWrapper maxWeight = new ReadOnlyDoubleWrapper();
+    private final ReadOnlyStringWrapper summary = new ReadOnlyStringWrapper();
+    // Set while a refresh is queued on the FX thread, so a burst of background changes queues only one
+    private final AtomicBoolean refreshPending = new AtomicBoolean();
+
+    public InventoryStatsProperties(InventoryStats stats) {
+        this.stats = stats;
+        stats.addListener(statsListener);
+        refresh();
+    }
+
+    private void onStatsChanged() {
+        // The inventory may be changed from a background thread; properties must only change on the FX thread
+        if (Platform.isFxApplicationThread()) {
+            refresh();
+        } else if (refreshPending.compareAndSet(false, true)) {
+            Platform.runLater(() -> {
+                // Cleared before reading, so a change made during the refresh queues another one
+                refreshPending.set(false);
+                refresh();
+            });
+        }
+    }
+
+    private void refresh() {
+        totalItems.set(stats.getTotalCount());
+        weapons.set(stats.getCount(Weapon.class));
+        armor.set(stats.getCount(Armor.class));
+        regular.set(stats.getCount(Item.class) - weapons.get() - armor.get());
+        totalPrice.set(stats.getTotalPrice());
+        totalWeight.set(stats.getTotalWeight());
+        minPrice.set(stats.getMinPrice());
+        maxPrice.set(stats.getMaxPrice());
+        minWeight.set(stats.getMinWeight());
+        maxWeight.set(stats.getMaxWeight());
+        summary.set(String.format("Total Items: %d | Weapons: %d | Armor: %d | Regular: %d | Value: %.2f gp | Weight: %.2f lb",
+                                  totalItems.get(), weapons.get(), armor.get(), regular.get(), totalPrice.get(), totalWeight.get()));
+    }
+
+    // Stops following the inventory, e.g. when the user logs out
+    public void dispose() {
+        stats.removeListener(statsListener);
+    }
+
+    public ReadOnlyIntegerProperty totalItemsProperty() {
+        return totalItems.getReadOnlyProperty();
+    }
+
+    public ReadOnlyIntegerProperty weaponsProperty() {
+        return weapons.getReadOnlyProperty();
+    }
+
+    public ReadOnlyIntegerProperty armorProperty() {
+        return armor.getReadOnlyProperty();
+    }
+
+    public ReadOnlyIntegerProperty regularProperty() {
+        return regular.getReadOnlyProperty();
+    }
+
+    public ReadOnlyDoubleProperty totalPriceProperty() {
+        return totalPrice.getReadOnlyProperty();
+    }
+
+    public ReadOnlyDoubleProperty totalWeightProperty() {
+        return totalWeight.getReadOnlyProperty();
+    }
+
+    public ReadOnlyDoubleProperty minPriceProperty() {
+        return minPrice.getReadOnlyProperty();
+    }
+
+    public ReadOnlyDoubleProperty maxPriceProperty() {
+        return maxPrice.getReadOnlyProperty();
+    }
+
+    public ReadOnlyDoubleProperty minWeightProperty() {
+        return minWeight.getReadOnlyProperty();
+    }
+
+    public ReadOnlyDoubleProperty maxWeightProperty() {
+        return maxWeight.getReadOnlyProperty();
+    }
+
+    public ReadOnlyStringProperty summaryProperty() {
+        return summary.getReadOnlyProperty();
+    }
+}
\ No newline at end of file
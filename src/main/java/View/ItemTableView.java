@@ -1,24 +1,69 @@
 package View;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import Inventory.IInventoryService;
+import Inventory.InventoryChange;
+import Inventory.InventoryCount;
+import Inventory.InventoryEvent;
+import Inventory.InventoryPage;
+import Inventory.InventorySortKey;
 import Items.Item;
 import Items.Weapon;
 import Items.Armor;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.scene.control.Button;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
 
+// Shows the inventory a page at a time, in insertion order: only the pages the user asked for are loaded, so
+// opening a huge inventory does not copy every stack. Rows are keyed by item id rather than by instance, as
+// the off-heap service hands out a new view of an item once the previous one has been collected.
 public class ItemTableView {
+    private static final int PAGE_SIZE = 500;
+
+    private IInventoryService inventory;
     private TableView<Item> table;
     private ObservableList<Item> data;
+    private Button showMoreButton;
+    private VBox view;
+    // Where the next page starts; null once every stack is loaded
+    private String nextCursor;
+    // Quantity of each row's item, by id; rows are distinct items, so stacked items show up once
+    private Map<Long, Integer> quantities = new HashMap<>();
+    // Row of each item id when it was last indexed; only trusted while data still holds that item there, since
+    // inserting or removing a row shifts the ones after it
+    private Map<Long, Integer> rowIndex = new HashMap<>();
 
-    public ItemTableView(List<Item> items) {
-        data = FXCollections.observableArrayList(items);
+    private ItemTableView(IInventoryService inventory) {
+        this.inventory = inventory;
+        data = FXCollections.observableArrayList();
         table = new TableView<>(data);
         setupTable();
+        showMoreButton = new Button("Show more");
+        showMoreButton.setMaxWidth(Double.MAX_VALUE);
+        view = new VBox(5, table, showMoreButton);
+        VBox.setVgrow(table, Priority.ALWAYS);
+    }
+
+    // A table showing the inventory's first page and following its changes. The button handler and listener
+    // are only registered once the table is fully constructed.
+    public static ItemTableView create(IInventoryService inventory) {
+        ItemTableView tableView = new ItemTableView(inventory);
+        tableView.showMoreButton.setOnAction(e -> tableView.loadNextPage());
+        tableView.reload();
+        inventory.addInventoryListener(tableView::applyChanges);
+        return tableView;
     }
     
     private void setupTable() {
@@ -58,7 +103,12 @@ public class ItemTableView {
             }
         });
 
+        TableColumn<Item, Integer> quantityCol = new TableColumn<>("Qty");
+        quantityCol.setCellValueFactory(cellData ->
+            new javafx.beans.property.SimpleIntegerProperty(quantities.getOrDefault(cellData.getValue().getId(), 1)).asObject());
+
         table.getColumns().add(typeCol);
+        table.getColumns().add(quantityCol);
         table.getColumns().add(extraCol);
         table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY_FLEX_LAST_COLUMN);
         
@@ -72,10 +122,129 @@ public class ItemTableView {
         table.getColumns().add(col);
     }
     
-    public void updateItems(List<Item> newItems) {
+    // Drops the loaded rows and shows the first page again
+    public void reload() {
         data.clear();
-        data.addAll(newItems);
-        table.refresh();
+        quantities.clear();
+        rowIndex.clear();
+        nextCursor = null;
+        showPage(inventory.getPage(InventorySortKey.INSERTION_ORDER, null, PAGE_SIZE));
+    }
+
+    public void loadNextPage() {
+        if (nextCursor != null) {
+            showPage(inventory.getPage(InventorySortKey.INSERTION_ORDER, nextCursor, PAGE_SIZE));
+        }
+    }
+
+    // The stacks currently loaded, in table order
+    public List<InventoryCount> getLoadedStacks() {
+        List<InventoryCount> stacks = new ArrayList<>(data.size());
+        for (Item item : data) {
+            stacks.add(new InventoryCount(item, quantities.getOrDefault(item.getId(), 1)));
+        }
+        return stacks;
+    }
+
+    public boolean isFullyLoaded() {
+        return nextCursor == null;
+    }
+
+    private void showPage(InventoryPage page) {
+        List<Item> rows = new ArrayList<>(page.getStacks().size());
+        for (InventoryCount stack : page.getStacks()) {
+            Item item = stack.getItem();
+            rowIndex.put(item.getId(), data.size() + rows.size());
+            quantities.put(item.getId(), stack.getCount());
+            rows.add(item);
+        }
+        data.addAll(rows);
+        nextCursor = page.getNextCursor();
+        showMoreButton.setVisible(nextCursor != null);
+        showMoreButton.setManaged(nextCursor != null);
+    }
+
+    // Applies just the deltas of an inventory event instead of reloading every row. Changes to stacks on pages
+    // not loaded yet are skipped; those pages come from the inventory as they are when the user loads them.
+    public void applyChanges(InventoryEvent event) {
+        if (!Platform.isFxApplicationThread()) {
+            Platform.runLater(() -> applyChanges(event));
+            return;
+        }
+        boolean quantityChanged = false;
+        Set<Long> removed = new HashSet<>();
+        for (InventoryChange change : event.getChanges()) {
+            Item item = change.getItem();
+            long id = item.getId();
+            switch (change.getType()) {
+                case ADDED:
+                    // New stacks go last in insertion order, so until the last page is loaded they belong to it
+                    if (!isFullyLoaded()) {
+                        break;
+                    }
+                    quantities.put(id, change.getQuantity());
+                    int position = change.getPosition();
+                    if (position < 0 || position > data.size()) {
+                        position = data.size();
+                    }
+                    data.add(position, item);
+                    rowIndex.put(id, position);
+                    break;
+                case REMOVED:
+                    if (quantities.remove(id) != null) {
+                        removed.add(id);
+                    }
+                    break;
+                case UPDATED:
+                    if (quantities.containsKey(id)) {
+                        quantities.put(id, change.getQuantity());
+                        quantityChanged = true;
+                    }
+                    break;
+            }
+        }
+        removeRows(removed);
+        if (quantityChanged) {
+            table.refresh();
+        }
+    }
+
+    // A single row is found through the index; a batch is dropped in one pass over the rows rather than one
+    // lookup and shift per item
+    private void removeRows(Set<Long> removed) {
+        if (removed.size() == 1) {
+            long id = removed.iterator().next();
+            int row = rowOf(id);
+            if (row >= 0) {
+                data.remove(row);
+            }
+            rowIndex.remove(id);
+        } else if (!removed.isEmpty()) {
+            data.removeIf(item -> removed.contains(item.getId()));
+            reindex();
+        }
+    }
+
+    private int rowOf(long id) {
+        Integer row = rowIndex.get(id);
+        if (row != null && row < data.size() && data.get(row).getId() == id) {
+            return row;
+        }
+        reindex();
+        row = rowIndex.get(id);
+        return row != null ? row : -1;
+    }
+
+    private void reindex() {
+        rowIndex.clear();
+        for (int row = 0; row < data.size(); row++) {
+            rowIndex.put(data.get(row).getId(), row);
+        }
+    }
+
+    // The table plus its "Show more" button
+    public VBox getView() {
+        return view;
     }
 
     public TableView<Item> getTableView() {
@@ -9,6 +9,8 @@ import Items.Item;
 import Items.ItemFactory;
 import Items.IItemFactory;
 import FileManagement.FileService;
+import FileManagement.InventoryJournal;
+import java.io.IOException;
 import java.util.Scanner;
 import java.util.List;
 
@@ -20,11 +22,17 @@ public class InventoryManagementSystem {
     private static IInputHandler inputHandler = new InputHandler(scanner);
     private static IItemFactory itemFactory = new ItemFactory();
     private static FileService fileService = new FileService();
+    private static InventoryJournal journal;
 
     public static void main(String[] args) {
-        // Load inventory at startup
-        List<Item> loadedItems = fileService.readItemsFromFile("inventory.dat");
-        loadedItems.forEach(item -> inventoryService.addItem(item)); // Add loaded items to the service
+        // Load inventory at startup, replaying changes journaled since the last snapshot
+        List<Item> loadedItems = InventoryJournal.recover("inventory.dat", fileService);
+        inventoryService.addAllItems(loadedItems); // Add loaded items to the service in one pass
+        try {
+            journal = InventoryJournal.open("inventory.dat", inventoryService);
+        } catch (IOException e) {
+            System.err.println("Error opening inventory journal, saving on exit only: " + e.getMessage());
+        }
 
         initializeCommands();
         runSystem();
@@ -37,7 +45,8 @@ public class InventoryManagementSystem {
         commandManager.addCommand("4", new SearchItemsCommand(inventoryService, inputHandler));
         commandManager.addCommand("5", new MakeAttackCommand(inventoryService, inputHandler));
         commandManager.addCommand("6", new ExportInventoryCommand(inventoryService));
-        commandManager.addCommand("7", new ExitCommand(inventoryService, fileService));
+        commandManager.addCommand("7", new ExitCommand(inventoryService, fileService, journal));
+        commandManager.addCommand("8", new ImportItemsCommand(inventoryService, inputHandler, itemFactory));
     }
 
     private static void runSystem() {
@@ -51,6 +60,7 @@ public class InventoryManagementSystem {
             System.out.println("5. Make Attack");
             System.out.println("6: Copy Inventory to txt file");
             System.out.println("7. Exit");
+            System.out.println("8. Import Items from csv/jsonl file");
             String command = scanner.nextLine().toLowerCase();
             commandManager.executeCommand(command);
         }
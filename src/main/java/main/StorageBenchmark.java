@@ -0,0 +1,115 @@
+package main;
+
+import FileManagement.InventoryFileFormat;
+import Items.IItemFactory;
+import Items.Item;
+import Items.ItemFactory;
+import User.User;
+import User.UserStore;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+// Compares plain and compressed storage: file sizes, write time and load time (best of a few runs).
+//   java main.StorageBenchmark [items] [users] [directory]
+public class StorageBenchmark {
+    private static final int RUNS = 5;
+    private static final String[] ADJECTIVES = {"battered", "gleaming", "ancient", "rusted", "enchanted", "cursed", "dwarven", "elven"};
+    private static final String[] NOUNS = {"longsword", "shield", "chain shirt", "lantern", "rope", "dagger", "breastplate", "potion"};
+    private static final String[] ORIGINS = {"recovered from the crypt of", "forged in the halls of", "taken from the hoard of", "bought at the market of"};
+    private static final String[] PLACES = {"Neverwinter", "Baldur's Gate", "Waterdeep", "Candlekeep", "Mithral Hall", "Luskan"};
+
+    public static void main(String[] args) throws IOException {
+        int itemCount = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int userCount = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        Path directory = args.length > 2 ? Paths.get(args[2]) : Files.createTempDirectory("dim-benchmark");
+        Files.createDirectories(directory);
+
+        List<Item> items = generateItems(itemCount);
+        System.out.println(itemCount + " items, " + userCount + " users, files in " + directory);
+        System.out.printf("%-12s %12s %10s %10s %10s%n", "inventory", "bytes", "write ms", "read ms", "map ms");
+        for (boolean compressed : new boolean[] {false, true}) {
+            Path file = directory.resolve(compressed ? "inventory-compressed.dat" : "inventory-plain.dat");
+            long write = bestOf(() -> InventoryFileFormat.write(items, file, fraction -> { }, compressed));
+            long read = bestOf(() -> InventoryFileFormat.read(file));
+            // map() decodes descriptions lazily; touch them all so the comparison covers the same work
+            long map = bestOf(() -> InventoryFileFormat.map(file).forEach(Item::getDescription));
+            System.out.printf("%-12s %,12d %10d %10d %10d%n", compressed ? "compressed" : "plain", Files.size(file), write, read, map);
+        }
+
+        System.out.printf("%-12s %12s %10s%n", "users", "bytes", "add ms");
+        for (boolean compressed : new boolean[] {false, true}) {
+            Path records = directory.resolve(compressed ? "users-compressed.records" : "users-plain.records");
+            Path index = directory.resolve(compressed ? "users-compressed.index" : "users-plain.index");
+            Files.deleteIfExists(records);
+            Files.deleteIfExists(index);
+            UserStore store = new UserStore(records.toString(), index.toString(), compressed);
+            long start = System.nanoTime();
+            for (int i = 0; i < userCount; i++) {
+                store.add(new User("adventurer" + i, "password" + i, "adventurer" + i + "@example.com"));
+            }
+            long add = (System.nanoTime() - start) / 1_000_000;
+            System.out.printf("%-12s %,12d %10d%n", compressed ? "compressed" : "plain", Files.size(records), add);
+        }
+
+        if (args.length <= 2) {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    // Descriptions are distinct but built from a small vocabulary, like a real catalog
+    private static List<Item> generateItems(int count) {
+        IItemFactory factory = new ItemFactory();
+        Random random = new Random(42);
+        List<Item> items = new ArrayList<>(count);
+        while (items.size() < count) {
+            String adjective = ADJECTIVES[random.nextInt(ADJECTIVES.length)];
+            String noun = NOUNS[random.nextInt(NOUNS.length)];
+            String description = "A " + adjective + " " + noun + " " + ORIGINS[random.nextInt(ORIGINS.length)] + " "
+                    + PLACES[random.nextInt(PLACES.length)] + ", marked with the rune " + random.nextInt(10_000) + ".";
+            double price = random.nextInt(100_000) / 100.0;
+            double weight = random.nextInt(5_000) / 100.0;
+            Item item;
+            switch (random.nextInt(3)) {
+                case 0:
+                    item = factory.createItem("Weapon", adjective + " " + noun, description, price, weight, (1 + random.nextInt(3)) + "d8 + " + random.nextInt(4), 0);
+                    break;
+                case 1:
+                    item = factory.createItem("Armor", adjective + " " + noun, description, price, weight, null, 10 + random.nextInt(10));
+                    break;
+                default:
+                    item = factory.createItem("Regular", adjective + " " + noun, description, price, weight, null, 0);
+            }
+            // Some items are stacked
+            int quantity = random.nextInt(10) == 0 ? 1 + random.nextInt(5) : 1;
+            for (int i = 0; i < quantity && items.size() < count; i++) {
+                items.add(item);
+            }
+        }
+        return items;
+    }
+
+    private static long bestOf(IOAction action) throws IOException {
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            action.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1_000_000;
+    }
+
+    private interface IOAction {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,94 @@
+package FileManagement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import Inventory.InventoryService;
+import Items.Item;
+import Items.ItemFactory;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AutosaveServiceTest {
+    @TempDir
+    Path directory;
+
+    private final ItemFactory factory = new ItemFactory();
+    // One entry per finished save: "saved" or the error message
+    private final BlockingQueue<String> saves = new LinkedBlockingQueue<>();
+    private final ISaveListener listener = new ISaveListener() {
+        @Override
+        public void onSaveProgress(double fraction) {
+        }
+
+        @Override
+        public void onSaveCompleted(IOException error) {
+            saves.add(error == null ? "saved" : error.getMessage());
+        }
+    };
+
+    @Test
+    void aBurstOfChangesIsSavedOnceAfterTheQuietPeriod() throws Exception {
+        Path file = directory.resolve("inventory.dat");
+        InventoryService inventory = new InventoryService();
+        // The test thread only waits while the saver runs, so the saver can stand in for the owner thread
+        try (AutosaveService autosave = AutosaveService.start(file.toString(), inventory, null, Runnable::run, listener)) {
+            for (int i = 0; i < 20; i++) {
+                inventory.addItem(item(i));
+                Thread.sleep(20);
+            }
+            assertTrue(autosave.isDirty());
+            // Still inside the quiet period of the last change
+            assertNull(saves.poll(1000, TimeUnit.MILLISECONDS));
+            assertFalse(Files.exists(file));
+
+            assertEquals("saved", saves.poll(5, TimeUnit.SECONDS));
+            assertNull(saves.poll(500, TimeUnit.MILLISECONDS));
+            assertFalse(autosave.isDirty());
+            assertEquals(20, InventoryFileFormat.read(file).size());
+        }
+    }
+
+    @Test
+    void saveNowSkipsTheQuietPeriod() throws Exception {
+        Path file = directory.resolve("inventory.dat");
+        InventoryService inventory = new InventoryService();
+        try (AutosaveService autosave = AutosaveService.start(file.toString(), inventory, null, Runnable::run, listener)) {
+            inventory.addItem(item(1));
+            autosave.saveNow();
+            assertEquals("saved", saves.poll(1000, TimeUnit.MILLISECONDS));
+            assertEquals(1, InventoryFileFormat.read(file).size());
+            // The debounced save of the change was replaced, not added to
+            assertNull(saves.poll(2500, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test
+    void closeFlushesUnsavedChangesAndStopsListening() throws Exception {
+        Path file = directory.resolve("inventory.dat");
+        InventoryService inventory = new InventoryService();
+        AutosaveService autosave = AutosaveService.start(file.toString(), inventory, null, Runnable::run, listener);
+        inventory.addItem(item(1));
+        inventory.addItem(item(2));
+        autosave.close();
+        assertEquals(2, InventoryFileFormat.read(file).size());
+        autosave.close();
+
+        inventory.addItem(item(3));
+        assertFalse(autosave.isDirty());
+        assertNull(saves.poll(2500, TimeUnit.MILLISECONDS));
+        assertEquals(2, InventoryFileFormat.read(file).size());
+    }
+
+    private Item item(int i) {
+        return factory.createItem("Regular", "Candle " + i, "Wax", 0.1, 0.2, null, 0);
+    }
+}
@@ -0,0 +1,193 @@
+package FileManagement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import Items.Armor;
+import Items.Item;
+import Items.ItemFactory;
+import Items.RegularItem;
+import Items.StoredItems;
+import Items.Weapon;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class InventoryFileFormatTest {
+    @TempDir
+    Path directory;
+
+    private final ItemFactory factory = new ItemFactory();
+
+    @Test
+    void binaryFilesRoundTripEveryFieldAndTemplate() throws Exception {
+        Path file = directory.resolve("inventory.dat");
+        Item sword = factory.createItem("Weapon", "Longsword", "Versatile", 15, 3, "1d8 + 1", 0);
+        Item shield = factory.createItem("Armor", "Shield", "Wooden", 10, 6, null, 2);
+        // Not a whole number of hundredths, so it is stored as a full double
+        Item dust = factory.createItem("Regular", "Dust", "Glittering", 1.0 / 3, 0.001, null, 0);
+        Item worn = StoredItems.fromTemplate(sword.getTemplate(), 0, null, "Notched", null, 9.5, 3);
+        Item plain = new RegularItem("Pebble", "Round", 0, 0.25);
+        List<Item> items = List.of(sword, sword, sword, shield, dust, worn, plain, sword);
+
+        FileService files = new FileService();
+        files.writeItemsToFile(items, file.toString());
+        assertTrue(InventoryFileFormat.isBinaryFile(file));
+        assertFalse(InventoryFileFormat.isCompressedFile(file));
+        List<Item> read = files.readItemsFromFile(file.toString());
+
+        assertSameItems(items, read);
+        // One instance per stored item, on the definitions the catalog already holds
+        assertSame(read.get(0), read.get(2));
+        assertSame(read.get(0), read.get(7));
+        assertSame(sword.getTemplate(), read.get(0).getTemplate());
+        assertSame(sword.getTemplate(), read.get(5).getTemplate());
+        assertNull(read.get(6).getTemplate());
+    }
+
+    @Test
+    void legacySerializedFilesStillLoadAndAreRewrittenInTheBinaryFormat() throws Exception {
+        Path file = directory.resolve("inventory.dat");
+        List<Item> items = List.of(factory.createItem("Weapon", "Dagger", "Small", 2, 1, "1d4", 0),
+                factory.createItem("Armor", "Leather", "Soft", 10, 10, null, 1),
+                new RegularItem("Torch", "Lit", 0.01, 1));
+        try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(file))) {
+            out.writeObject(new ArrayList<>(items));
+        }
+        FileService files = new FileService();
+        assertFalse(InventoryFileFormat.isBinaryFile(file));
+        List<Item> read = files.readItemsFromFile(file.toString());
+        assertSameItems(items, read);
+
+        files.writeItemsToFile(read, file.toString());
+        assertTrue(InventoryFileFormat.isBinaryFile(file));
+        assertSameItems(items, files.readItemsFromFile(file.toString()));
+    }
+
+    @Test
+    void truncatedFilesAreCopiedAsideBeforeTheNextSave() throws Exception {
+        Path file = directory.resolve("inventory.dat");
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            items.add(factory.createItem("Regular", "Scroll " + i, "Rolled", i, 0.1, null, 0));
+        }
+        InventoryFileFormat.write(items, file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length / 2));
+
+        List<Item> read = new FileService().readItemsFromFile(file.toString());
+        assertTrue(read.size() < items.size());
+        Path backup = directory.resolve("inventory.dat.damaged");
+        assertEquals(-1, Files.mismatch(file, backup));
+    }
+
+    @Test
+    void compressedFilesAreSmallerLoadTheSameAndStayCompressedOnRewrite() throws Exception {
+        Path plain = directory.resolve("plain.dat");
+        Path compressed = directory.resolve("compressed.dat");
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            items.add(factory.createItem(i % 2 == 0 ? "Weapon" : "Armor", "Relic " + i, "Recovered from the vault on level " + i % 10, i, 4, "1d6", i % 9));
+        }
+        InventoryFileFormat.write(items, plain, fraction -> { }, false);
+        InventoryFileFormat.write(items, compressed, fraction -> { }, true);
+
+        assertTrue(InventoryFileFormat.isCompressedFile(compressed));
+        assertFalse(InventoryFileFormat.isCompressedFile(plain));
+        assertTrue(Files.size(compressed) < Files.size(plain), Files.size(compressed) + " >= " + Files.size(plain));
+        assertSameItems(items, InventoryFileFormat.read(compressed));
+        assertSameItems(items, InventoryFileFormat.map(compressed));
+        assertSameItems(items, new FileService().readItemsFromFile(compressed.toString()));
+
+        // Without the property, saves keep the mode of the file they replace
+        if (System.getProperty(InventoryFileFormat.COMPRESS_PROPERTY) == null) {
+            new FileService().writeItemsToFile(items.subList(0, 100), compressed.toString());
+            assertTrue(InventoryFileFormat.isCompressedFile(compressed));
+            assertSameItems(items.subList(0, 100), InventoryFileFormat.read(compressed));
+        }
+    }
+
+    private static void assertSameItems(List<Item> expected, List<Item> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Item want = expected.get(i);
+            Item got = actual.get(i);
+            String at = "item " + i;
+            assertEquals(want.getClass(), got.getClass(), at);
+            assertEquals(want.getId(), got.getId(), at);
+            assertEquals(want.getName(), got.getName(), at);
+            assertEquals(want.getDescription(), got.getDescription(), at);
+            assertEquals(want.getPrice(), got.getPrice(), at);
+            assertEquals(want.getWeight(), got.getWeight(), at);
+            if (want instanceof Weapon) {
+                assertEquals(((Weapon) want).getDamageRoll(), ((Weapon) got).getDamageRoll(), at);
+            }
+            if (want instanceof Armor) {
+                assertEquals(((Armor) want).getDefense(), ((Armor) got).getDefense(), at);
+            }
+        }
+    }
+
+    @Test
+    void mappedItemsKeepTheirDescriptionsWhenTheFileIsReplaced() throws Exception {
+        Path file = directory.resolve("inventory.dat");
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            items.add(factory.createItem("Regular", "Gem " + i, "Cut in the style of workshop " + i, i, 1, null, 0));
+        }
+        InventoryFileFormat.write(items, file);
+
+        List<Item> mapped = InventoryFileFormat.map(file);
+        assertEquals("Cut in the style of workshop 7", mapped.get(7).getDescription());
+
+        // Replacing the file releases the mapping; descriptions not read yet must survive it
+        InventoryFileFormat.write(items.subList(0, 10), file);
+        for (int i = 0; i < mapped.size(); i++) {
+            assertEquals("Cut in the style of workshop " + i, mapped.get(i).getDescription());
+        }
+        assertEquals(10, InventoryFileFormat.map(file).size());
+
+        // Saving the items that were mapped from the file, as autosave does
+        InventoryFileFormat.write(mapped, file);
+        assertEquals(items.size(), InventoryFileFormat.read(file).size());
+    }
+
+    @Test
+    void mappedDescriptionsStayReadableAfterGarbageCollection() throws Exception {
+        Path file = directory.resolve("inventory.dat");
+        List<Item> items = new ArrayList<>();
+        List<String> descriptions = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            // Even items take their description from the template, odd ones override it
+            Item item = factory.createItem(i % 2 == 0 ? "Weapon" : "Regular", "Blade " + i, "Forged in batch " + i, i, 2, "1d6", 0);
+            items.add(item);
+            descriptions.add(item.getDescription());
+        }
+        InventoryFileFormat.write(items, file);
+        // Otherwise the catalog would hand the loaded items these templates, with descriptions already on the heap
+        items = null;
+        collectGarbage();
+
+        List<Item> mapped = InventoryFileFormat.map(file);
+        // Nothing but the items refers to the mapping now; the cleaner must not unmap it under them
+        collectGarbage();
+        for (int i = 0; i < mapped.size(); i++) {
+            assertEquals(descriptions.get(i), mapped.get(i).getDescription());
+        }
+    }
+
+    private static void collectGarbage() throws InterruptedException {
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package FileManagement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import Inventory.InventoryCount;
+import Inventory.InventoryService;
+import Items.Armor;
+import Items.Item;
+import Items.ItemFactory;
+import Items.Weapon;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class InventoryImporterTest {
+    @TempDir
+    Path directory;
+
+    private final ItemFactory factory = new ItemFactory();
+
+    @Test
+    void exportedCsvAndJsonLinesImportBackToTheSameStacks() throws Exception {
+        InventoryService inventory = new InventoryService();
+        // Text that needs quoting or escaping in one format or the other
+        inventory.addItem(factory.createItem("Weapon", "Sword, \"Dawn\"", "Line one\nline two", 15.25, 3, "2d6 + 1", 0));
+        inventory.addItem(factory.createItem("Armor", "Épée-proof mail", "Tab\there, back\\slash", 75, 55.5, null, 6));
+        Item rope = factory.createItem("Regular", "Rope", "50 feet", 1, 10, null, 0);
+        for (int i = 0; i < 3; i++) {
+            inventory.addItem(rope);
+        }
+        for (int i = 0; i < 600; i++) {
+            inventory.addItem(factory.createItem("Regular", "Coin " + i, "Stamped " + i, i / 100.0, 0.01, null, 0));
+        }
+
+        for (ExportFormat format : List.of(ExportFormat.CSV, ExportFormat.JSONL)) {
+            Path file = directory.resolve("inventory." + format.getExtension());
+            assertEquals(inventory.getItemStacks().size(), InventoryExporter.export(inventory, file, format, fraction -> { }), format.toString());
+            assertEquals(format, InventoryImporter.formatFor(file));
+
+            ImportResult result = InventoryImporter.importItems(file, format, factory, fraction -> { });
+            assertEquals(List.of(), result.getErrors(), format.toString());
+            assertEquals(inventory.getItemStacks().size(), result.getRowCount(), format.toString());
+            InventoryService imported = new InventoryService();
+            imported.addAllItems(result.getItems());
+            assertSameStacks(inventory.getItemStacks(), imported.getItemStacks(), format.toString());
+
+            // The background export writes the same file from a snapshot
+            Path background = directory.resolve("background." + format.getExtension());
+            InventoryExporter.exportInBackground(inventory.getItemStacks(), background, format, fraction -> { }).get();
+            assertEquals(Files.readString(file), Files.readString(background), format.toString());
+        }
+    }
+
+    @Test
+    void rowsAboveTheQuantityCapAreRejected() throws Exception {
+        Path file = directory.resolve("catalog.csv");
+        Files.writeString(file, String.join(",", ExportFormat.COLUMNS) + "\n"
+                + "Regular,,Rope,50 feet,1,10,,," + InventoryImporter.MAX_QUANTITY + "\n"
+                + "Regular,,Torch,Burns,0.01,1,,," + Integer.MAX_VALUE + "\n"
+                + "Weapon,,Dagger,Sharp,2,1,1d4,,3\n");
+
+        ImportResult result = InventoryImporter.importItems(file, ExportFormat.CSV, new ItemFactory(), fraction -> { });
+
+        assertEquals(3, result.getRowCount());
+        assertEquals(InventoryImporter.MAX_QUANTITY + 3, result.getItems().size());
+        assertEquals(1, result.getErrors().size());
+        assertTrue(result.getErrors().get(0).startsWith("Line 3: quantity"), result.getErrors().get(0));
+    }
+
+    // Imported items get new ids, so stacks are compared by their fields
+    private static void assertSameStacks(List<InventoryCount> expected, List<InventoryCount> actual, String format) {
+        assertEquals(expected.size(), actual.size(), format);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(describe(expected.get(i)), describe(actual.get(i)), format);
+        }
+    }
+
+    private static List<Object> describe(InventoryCount stack) {
+        Item item = stack.getItem();
+        List<Object> fields = new ArrayList<>(List.of(item.getClass(), item.getName(), item.getDescription(), item.getPrice(), item.getWeight(), stack.getCount()));
+        if (item instanceof Weapon) {
+            fields.add(((Weapon) item).getDamageRoll());
+        }
+        if (item instanceof Armor) {
+            fields.add(((Armor) item).getDefense());
+        }
+        return fields;
+    }
+}
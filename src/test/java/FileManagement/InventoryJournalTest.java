@@ -0,0 +1,50 @@
+package FileManagement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import Inventory.InventoryService;
+import Items.Item;
+import Items.ItemFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class InventoryJournalTest {
+    @TempDir
+    Path directory;
+
+    private final ItemFactory factory = new ItemFactory();
+
+    @Test
+    void compactionKeepsOnlyTheRecordsAfterTheMark() throws Exception {
+        String file = directory.resolve("inventory.dat").toString();
+        Path journalFile = directory.resolve("inventory.dat" + InventoryJournal.JOURNAL_SUFFIX);
+        InventoryService inventory = new InventoryService();
+        try (InventoryJournal journal = InventoryJournal.open(file, inventory)) {
+            for (int i = 0; i < 100; i++) {
+                inventory.addItem(factory.createItem("Regular", "Coin " + i, "Before the mark", 1, 1, null, 0));
+            }
+            List<Item> snapshot = inventory.getAllItems();
+            long mark = journal.mark();
+            // Arrives while the snapshot is being written
+            inventory.addItem(factory.createItem("Regular", "Late coin", "After the mark", 1, 1, null, 0));
+            journal.commit();
+            long before = Files.size(journalFile);
+
+            journal.compact(snapshot, mark, fraction -> { });
+            long after = Files.size(journalFile);
+            assertTrue(after > 0 && after < before / 50, "journal kept " + after + " of " + before + " bytes");
+
+            // The kept tail still appends and replays over the new snapshot
+            inventory.addItem(factory.createItem("Regular", "Later coin", "After the compaction", 1, 1, null, 0));
+            journal.commit();
+            assertTrue(Files.size(journalFile) > after);
+        }
+        List<Item> recovered = InventoryJournal.recover(file, new FileService());
+        assertEquals(102, recovered.size());
+        assertEquals("Later coin", recovered.get(recovered.size() - 1).getName());
+    }
+}
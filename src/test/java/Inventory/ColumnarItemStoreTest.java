@@ -0,0 +1,104 @@
+package Inventory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import Items.Armor;
+import Items.Item;
+import Items.ItemFactory;
+import Items.RegularItem;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class ColumnarItemStoreTest {
+    private final ItemFactory factory = new ItemFactory();
+
+    @Test
+    void sumsAndSortsMatchTheRowsOnBothPaths() {
+        // Below and above the parallel threshold
+        for (int rows : new int[] {1_000, 70_000}) {
+            ColumnarItemStore columns = new ColumnarItemStore();
+            double price = 0;
+            double weight = 0;
+            long quantity = 0;
+            for (int row = 0; row < rows; row++) {
+                // Few distinct prices, so the sort has long runs of ties to order by sequence
+                Item item = row % 3 == 0
+                        ? factory.createItem("Armor", "Plate " + row, "Heavy", row % 17, row % 101, null, 3)
+                        : factory.createItem("Regular", "Coin " + row, "Shiny", row % 17, row % 101, null, 0);
+                int count = 1 + row % 4;
+                columns.add(item, count, row);
+                price += item.getPrice() * count;
+                weight += item.getWeight() * count;
+                quantity += count;
+            }
+            // Moves the last row into the first, so rows are no longer in sequence order. Row 0 is one
+            // item of price and weight 0, so only the quantity changes.
+            columns.remove(columns.item(0).getId());
+            quantity -= 1;
+
+            assertEquals(quantity, columns.totalQuantity());
+            assertEquals(price, columns.sumPrice(), 1e-6);
+            assertEquals(weight, columns.sumWeight(), 1e-6);
+            Map<Class<? extends Item>, Long> byClass = columns.quantityByClass();
+            assertEquals(quantity, byClass.get(Armor.class) + byClass.get(RegularItem.class));
+
+            for (ColumnarItemStore.Column column : ColumnarItemStore.Column.values()) {
+                int[] sorted = columns.sortedRows(column);
+                assertEquals(columns.size(), sorted.length);
+                for (int i = 1; i < sorted.length; i++) {
+                    double previous = columns.value(column, sorted[i - 1]);
+                    double current = columns.value(column, sorted[i]);
+                    assertTrue(previous < current || previous == current && columns.sequence(sorted[i - 1]) < columns.sequence(sorted[i]),
+                            column + " out of order at " + i);
+                }
+            }
+        }
+    }
+
+    @Test
+    void bulkLoadRebuildsStatsAndSortedIndexesLikeSingleAdds() {
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            items.add(factory.createItem("Regular", "Gem " + i, "Cut", (i * 31) % 50, (i * 7) % 13, null, 0));
+        }
+        InventoryService bulk = new InventoryService();
+        bulk.addAllItems(items);
+        InventoryService single = new InventoryService();
+        for (Item item : items) {
+            single.addItem(item);
+        }
+
+        InventoryStats expected = single.getStats();
+        InventoryStats actual = bulk.getStats();
+        assertEquals(expected.getTotalCount(), actual.getTotalCount());
+        assertEquals(expected.getTotalPrice(), actual.getTotalPrice(), 1e-9);
+        assertEquals(expected.getTotalWeight(), actual.getTotalWeight(), 1e-9);
+        assertEquals(expected.getMinPrice(), actual.getMinPrice());
+        assertEquals(expected.getMaxWeight(), actual.getMaxWeight());
+        assertEquals(expected.getCount(RegularItem.class), actual.getCount(RegularItem.class));
+        for (InventorySortKey key : InventorySortKey.values()) {
+            assertEquals(pageThrough(single, key), pageThrough(bulk, key), key.toString());
+        }
+        assertEquals(single.getMostValuableItems(10), bulk.getMostValuableItems(10));
+
+        // Later single removals keep the rebuilt stats consistent
+        bulk.removeItemById(items.get(0).getId(), 1);
+        single.removeItemById(items.get(0).getId(), 1);
+        assertEquals(single.getStats().getTotalPrice(), bulk.getStats().getTotalPrice(), 1e-9);
+        assertEquals(pageThrough(single, InventorySortKey.PRICE), pageThrough(bulk, InventorySortKey.PRICE));
+    }
+
+    private static List<Item> pageThrough(IInventoryService inventory, InventorySortKey key) {
+        List<Item> all = new ArrayList<>();
+        String cursor = null;
+        do {
+            InventoryPage page = inventory.getPage(key, cursor, 64);
+            page.getStacks().forEach(stack -> all.add(stack.getItem()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return all;
+    }
+}
@@ -0,0 +1,174 @@
+package Inventory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import Items.Armor;
+import Items.Item;
+import Items.ItemFactory;
+import Items.Weapon;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentInventoryServiceTest {
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 2_000;
+    // Few names, so writers keep colliding on the same nameIndex keys
+    private static final String[] NAMES = {"Potion", "Torch", "Rope", "Dagger"};
+
+    private final ItemFactory factory = new ItemFactory();
+
+    @Test
+    void concurrentWritersKeepCountsSearchesAndEventOrderConsistent() throws Exception {
+        ConcurrentInventoryService inventory = new ConcurrentInventoryService();
+        Map<Long, List<InventoryChange.Type>> history = new ConcurrentHashMap<>();
+        inventory.addInventoryListener(event -> {
+            for (InventoryChange change : event.getChanges()) {
+                history.computeIfAbsent(change.getItem().getId(), id -> Collections.synchronizedList(new ArrayList<>())).add(change.getType());
+            }
+        });
+
+        // Items handed from one thread to another, so an item's ADDED and REMOVED come from different threads
+        Queue<Item> handoff = new ConcurrentLinkedQueue<>();
+        Set<Item> removed = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<Item>>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            results.add(pool.submit(() -> {
+                start.await();
+                return writeAndRead(inventory, thread, handoff, removed);
+            }));
+        }
+        start.countDown();
+        List<Item> kept = new ArrayList<>();
+        for (Future<List<Item>> result : results) {
+            kept.addAll(result.get(60, TimeUnit.SECONDS));
+        }
+        pool.shutdown();
+        kept.removeAll(removed);
+
+        List<Item> all = inventory.getAllItems();
+        assertEquals(kept.size(), all.size());
+        assertTrue(all.containsAll(kept));
+        InventoryStats stats = inventory.getStats();
+        assertEquals(kept.size(), stats.getTotalCount());
+        assertEquals(kept.size(), inventory.countItems(Item.class));
+        assertEquals(kept.stream().mapToDouble(Item::getPrice).sum(), stats.getTotalPrice(), 1e-6);
+        assertEquals(kept.stream().mapToDouble(Item::getPrice).min().orElse(0), stats.getMinPrice());
+        assertEquals(kept.stream().mapToDouble(Item::getPrice).max().orElse(0), stats.getMaxPrice());
+        for (String name : NAMES) {
+            long expected = kept.stream().filter(item -> item.getName().startsWith(name)).count();
+            assertEquals(expected, inventory.searchItem(name).size(), name);
+        }
+
+        // Every item was added and removed alternately, and the last event matches where it ended up
+        for (Map.Entry<Long, List<InventoryChange.Type>> entry : history.entrySet()) {
+            List<InventoryChange.Type> types = entry.getValue();
+            for (int i = 0; i < types.size(); i++) {
+                InventoryChange.Type expected = i % 2 == 0 ? InventoryChange.Type.ADDED : InventoryChange.Type.REMOVED;
+                assertEquals(expected, types.get(i), "event " + i + " of item " + entry.getKey());
+            }
+            boolean present = inventory.getItemById(entry.getKey()) != null;
+            assertEquals(present, types.get(types.size() - 1) == InventoryChange.Type.ADDED, "item " + entry.getKey());
+        }
+        assertEquals(THREADS * ROUNDS, history.size());
+    }
+
+    @Test
+    void indexedSearchesAndTypeLookupsMatchAFullScan() {
+        ConcurrentInventoryService inventory = new ConcurrentInventoryService();
+        List<Item> added = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Item item = i % 3 == 0 ? factory.createItem("Weapon", "Sword of " + NAMES[i % 4] + i, "Sharp", i % 40, 3, "1d8", 0)
+                    : i % 3 == 1 ? factory.createItem("Armor", "Shield of " + NAMES[i % 4] + i, "Sturdy", i % 40, 9, null, i % 5)
+                    : factory.createItem("Regular", NAMES[i % 4] + " bundle " + i, "Plain", i % 40, 1, null, 0);
+            added.add(item);
+        }
+        inventory.addAllItems(added.subList(0, 150));
+        added.subList(150, 300).forEach(inventory::addItem);
+        // Removing every stored item of some names drops them from the trigram index as well
+        inventory.removeAllItems(added.subList(0, 60));
+        inventory.removeItem(added.get(100).getName());
+
+        List<Item> all = inventory.getAllItems();
+        for (String query : new String[] {"rope", "of", "sword of torch", "Bundle 2", "x", "dagger1"}) {
+            assertEquals(scan(all, item -> item.getName().toLowerCase().contains(query.toLowerCase())), inventory.searchItem(query), query);
+        }
+        assertEquals(scan(all, item -> item instanceof Weapon), new ArrayList<Item>(inventory.getAllWeapons()));
+        assertEquals(scan(all, item -> item instanceof Armor), new ArrayList<Item>(inventory.getItemsOfType(Armor.class)));
+        assertEquals(all, inventory.getItemsOfType(Item.class));
+        for (ItemQuery query : List.of(
+                new ItemQuery().nameContains("potion"),
+                new ItemQuery().ofType(Weapon.class).priceBetween(10, 20),
+                new ItemQuery().ofType(Armor.class).minArmorClass(3),
+                new ItemQuery().nameContains("of").weightBetween(8, 10),
+                new ItemQuery().priceBetween(0, 2))) {
+            // The order depends on the access path taken, so compare the matches by id
+            assertEquals(ids(scan(all, query::matches)), ids(inventory.query(query)));
+        }
+    }
+
+    private static Set<Long> ids(List<Item> items) {
+        return items.stream().map(Item::getId).collect(Collectors.toSet());
+    }
+
+    private static List<Item> scan(List<Item> items, Predicate<Item> filter) {
+        return items.stream().filter(filter).collect(Collectors.toList());
+    }
+
+    // Adds, finds and removes items, mixing single and bulk calls; returns every item this thread created
+    private List<Item> writeAndRead(ConcurrentInventoryService inventory, int thread, Queue<Item> handoff, Set<Item> removed) {
+        List<Item> created = new ArrayList<>();
+        List<Item> batch = new ArrayList<>();
+        for (int round = 0; round < ROUNDS; round++) {
+            String name = NAMES[round % NAMES.length] + " " + thread + "-" + round;
+            Item item = factory.createItem("Regular", name, "Stress item", round % 97, 1.0 + thread, null, 0);
+            created.add(item);
+            if (round % 5 == 0) {
+                batch.add(item);
+                continue;
+            }
+            if (round % 2 == 0) {
+                // Handed over before it is added, so another thread may remove it while addItem is still running
+                handoff.add(item);
+                inventory.addItem(item);
+            } else {
+                inventory.addItem(item);
+                assertTrue(inventory.searchItem(name).contains(item), name + " not found after adding it");
+                if (round % 3 == 0) {
+                    assertTrue(inventory.removeItemById(item.getId(), 1));
+                    inventory.addItem(item);
+                }
+            }
+            Item other = handoff.poll();
+            if (other != null) {
+                while (!inventory.removeItemById(other.getId(), 1)) {
+                    Thread.onSpinWait();
+                }
+                assertTrue(inventory.searchItem(other.getName()).isEmpty(), other + " still found after removing it");
+                removed.add(other);
+            }
+        }
+        inventory.addAllItems(batch);
+        List<Item> dropped = batch.subList(0, batch.size() / 2);
+        inventory.removeAllItems(dropped);
+        removed.addAll(dropped);
+        return created;
+    }
+}
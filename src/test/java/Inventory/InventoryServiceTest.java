@@ -0,0 +1,379 @@
+package Inventory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import Items.Armor;
+import Items.Item;
+import Items.ItemFactory;
+import Items.RegularItem;
+import Items.Weapon;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class InventoryServiceTest {
+    private final ItemFactory factory = new ItemFactory();
+
+    @Test
+    void nonPositiveRemovalQuantitiesLeaveStacksUnchanged() {
+        for (IInventoryService inventory : List.of(new InventoryService(), new ConcurrentInventoryService(), new OffHeapInventoryService())) {
+            Item torch = factory.createItem("Regular", "Torch", "Burns for an hour", 0.01, 1, null, 0);
+            inventory.addAllItems(List.of(torch, torch, torch));
+
+            inventory.removeQuantity("Torch", -5);
+            inventory.removeQuantity("Torch", 0);
+            assertFalse(inventory.removeItemById(torch.getId(), -5));
+            assertFalse(inventory.removeItemById(torch.getId(), 0));
+
+            assertEquals(3, inventory.getAllItems().size(), inventory.getClass().getSimpleName());
+            assertEquals(3, inventory.getStats().getTotalCount(), inventory.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    void searchReturnsMatchesInInsertionOrder() {
+        for (IInventoryService inventory : List.of(new InventoryService(), new ConcurrentInventoryService(), new OffHeapInventoryService())) {
+            List<Item> expected = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                // Many distinct names, so the matches come from many name buckets
+                Item scroll = factory.createItem("Regular", "Scroll of " + (i * 7919 % 200), "Rolled parchment", i, 1, null, 0);
+                inventory.addItem(scroll);
+                expected.add(scroll);
+            }
+            Item removed = expected.remove(50);
+            inventory.removeItemById(removed.getId(), 1);
+
+            // Compared by id, as the off-heap service may hand out a view rather than the added instance
+            assertEquals(expected.stream().map(Item::getId).toList(),
+                    inventory.searchItem("scroll").stream().map(Item::getId).toList(), inventory.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    void exactNameLookupsAndRemovalsIgnoreCase() {
+        for (IInventoryService inventory : List.of(new InventoryService(), new ConcurrentInventoryService(), new OffHeapInventoryService())) {
+            String service = inventory.getClass().getSimpleName();
+            Item rope = factory.createItem("Regular", "Silk Rope", "50 feet", 10, 5, null, 0);
+            Item otherRope = factory.createItem("Regular", "silk rope", "Frayed", 2, 5, null, 0);
+            Item ladder = factory.createItem("Regular", "Silk Rope Ladder", "Rolled up", 25, 8, null, 0);
+            inventory.addAllItems(List.of(rope, otherRope, otherRope, ladder));
+
+            assertEquals(rope.getId(), inventory.findItemByName("SILK ROPE").getId(), service);
+            assertEquals(ladder.getId(), inventory.findItemByName("silk rope ladder").getId(), service);
+            assertNull(inventory.findItemByName("silk"), service);
+
+            // Removes from the first item of that name on, whatever the case it was added with
+            inventory.removeQuantity("Silk rope", 2);
+            assertEquals(List.of(otherRope.getId(), ladder.getId()), ids(inventory.getAllItems()), service);
+            inventory.removeItem("SILK ROPE");
+            assertNull(inventory.findItemByName("silk rope"), service);
+            assertEquals(List.of(ladder.getId()), ids(inventory.getAllItems()), service);
+        }
+    }
+
+    @Test
+    void typeViewsAndCountsFollowThePartitions() {
+        for (IInventoryService inventory : List.of(new InventoryService(), new ConcurrentInventoryService(), new OffHeapInventoryService())) {
+            String service = inventory.getClass().getSimpleName();
+            List<Item> added = batch(0, 30);
+            inventory.addAllItems(added);
+            List<Item> dropped = added.subList(0, 9);
+            inventory.removeAllItems(dropped);
+            List<Item> kept = new ArrayList<>(added.subList(9, added.size()));
+
+            // One entry per stack, as the concurrent service does not stack repeated items
+            List<Item> stacked = inventory.getItemStacks().stream().map(InventoryCount::getItem).collect(Collectors.toList());
+            List<Long> weapons = ids(stacked.stream().filter(item -> item instanceof Weapon).collect(Collectors.toList()));
+            List<Long> armor = ids(stacked.stream().filter(item -> item instanceof Armor).collect(Collectors.toList()));
+            assertEquals(ids(distinct(kept)), ids(distinct(stacked)), service);
+            assertEquals(weapons, ids(new ArrayList<Item>(inventory.getAllWeapons())), service);
+            assertEquals(armor, ids(new ArrayList<Item>(inventory.getItemsOfType(Armor.class))), service);
+            assertEquals(kept.stream().filter(item -> item instanceof Weapon).count(), inventory.countItems(Weapon.class), service);
+            assertEquals(kept.size(), inventory.countItems(Item.class), service);
+        }
+
+        // Subclasses get partitions of their own, which still count towards their supertypes
+        for (IInventoryService inventory : List.of(new InventoryService(), new ConcurrentInventoryService())) {
+            Item ration = factory.createItem("Regular", "Ration", "Dried", 1, 1, null, 0);
+            Item relic = new Relic("Idol", "Golden", 500, 2);
+            inventory.addAllItems(List.of(ration, relic, relic));
+            assertEquals(List.of(relic), distinct(new ArrayList<Item>(inventory.getItemsOfType(Relic.class))));
+            assertEquals(List.of(ration, relic), distinct(new ArrayList<Item>(inventory.getItemsOfType(RegularItem.class))));
+            assertEquals(2, inventory.countItems(Relic.class));
+            assertEquals(3, inventory.countItems(RegularItem.class));
+        }
+    }
+
+    @Test
+    void snapshotsAreReusedUntilTheNextChangeAndNeverChangeThemselves() {
+        for (IInventoryService inventory : List.of(new InventoryService(), new ConcurrentInventoryService(), new OffHeapInventoryService())) {
+            String service = inventory.getClass().getSimpleName();
+            Item lantern = factory.createItem("Regular", "Lantern", "Hooded", 5, 2, null, 0);
+            Item oil = factory.createItem("Regular", "Oil flask", "Burns", 0.1, 1, null, 0);
+            inventory.addAllItems(List.of(lantern, oil));
+
+            List<Item> items = inventory.getAllItems();
+            List<InventoryCount> stacks = inventory.getItemStacks();
+            assertThrows(UnsupportedOperationException.class, () -> items.add(oil), service);
+            assertThrows(UnsupportedOperationException.class, () -> stacks.clear(), service);
+            if (!(inventory instanceof OffHeapInventoryService)) {
+                // The heap services hand out the same copy until something changes
+                assertSame(items, inventory.getAllItems(), service);
+            }
+
+            inventory.addItem(oil);
+            inventory.removeItem("Lantern");
+            assertEquals(List.of(lantern.getId(), oil.getId()), ids(items), service);
+            assertEquals(2, stacks.size(), service);
+            assertNotSame(items, inventory.getAllItems(), service);
+            assertEquals(List.of(oil.getId(), oil.getId()), ids(inventory.getAllItems()), service);
+        }
+        InventoryService inventory = new InventoryService();
+        inventory.addItem(factory.createItem("Regular", "Chalk", "White", 0.01, 0.1, null, 0));
+        assertSame(inventory.getItemStacks(), inventory.getItemStacks());
+    }
+
+    @Test
+    void rangesAndTopItemsMatchASortedScan() {
+        for (IInventoryService inventory : List.of(new InventoryService(), new ConcurrentInventoryService(), new OffHeapInventoryService())) {
+            String service = inventory.getClass().getSimpleName();
+            Random random = new Random(7);
+            List<Item> kept = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                // Whole numbers in a narrow range, so many items tie
+                Item item = factory.createItem("Regular", "Trinket " + i, "Odd", random.nextInt(60), random.nextInt(20) / 2.0, null, 0);
+                inventory.addItem(item);
+                kept.add(item);
+            }
+            for (int i = 0; i < 100; i++) {
+                Item removed = kept.remove(random.nextInt(kept.size()));
+                inventory.removeItemById(removed.getId(), 1);
+            }
+
+            // kept is in insertion order and the sorts are stable, so ties stay in insertion order
+            List<Item> byPrice = kept.stream().sorted(Comparator.comparingDouble(Item::getPrice)).collect(Collectors.toList());
+            List<Item> byWeight = kept.stream().sorted(Comparator.comparingDouble(Item::getWeight)).collect(Collectors.toList());
+            assertEquals(ids(byPrice.stream().filter(item -> item.getPrice() >= 10 && item.getPrice() <= 25).collect(Collectors.toList())),
+                    ids(inventory.getItemsInPriceRange(10, 25)), service);
+            assertEquals(ids(byWeight.stream().filter(item -> item.getWeight() <= 3.5).collect(Collectors.toList())),
+                    ids(inventory.getItemsInWeightRange(0, 3.5)), service);
+            assertEquals(List.of(), inventory.getItemsInPriceRange(30, 20), service);
+            // Top items run the same order backwards
+            Collections.reverse(byPrice);
+            Collections.reverse(byWeight);
+            assertEquals(ids(byPrice.subList(0, 15)), ids(inventory.getMostValuableItems(15)), service);
+            assertEquals(ids(byWeight.subList(0, 15)), ids(inventory.getHeaviestItems(15)), service);
+            assertEquals(kept.size(), inventory.getMostValuableItems(1000).size(), service);
+        }
+    }
+
+    @Test
+    void pagesVisitEveryStackOnceAndFollowChangesAheadOfTheCursor() {
+        for (IInventoryService inventory : List.of(new InventoryService(), new ConcurrentInventoryService(), new OffHeapInventoryService())) {
+            String service = inventory.getClass().getSimpleName();
+            List<Item> added = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                Item item = factory.createItem("Regular", "Bead " + i, "Glass", (i * 13) % 50, (i * 7) % 9, null, 0);
+                inventory.addItem(item);
+                added.add(item);
+            }
+            assertEquals(ids(added), ids(pageThrough(inventory, InventorySortKey.INSERTION_ORDER, 7)), service);
+            assertEquals(ids(added.stream().sorted(Comparator.comparingDouble(Item::getPrice)).collect(Collectors.toList())),
+                    ids(pageThrough(inventory, InventorySortKey.PRICE, 7)), service);
+            assertEquals(ids(added.stream().sorted(Comparator.comparingDouble(Item::getWeight)).collect(Collectors.toList())),
+                    ids(pageThrough(inventory, InventorySortKey.WEIGHT, 100)), service);
+
+            // Changes behind the cursor are not seen, changes ahead of it are
+            InventoryPage first = inventory.getPage(InventorySortKey.PRICE, null, 7);
+            Item cheap = factory.createItem("Regular", "Cheap bead", "Glass", 0, 1, null, 0);
+            Item dear = factory.createItem("Regular", "Dear bead", "Gold", 500, 1, null, 0);
+            Item unseen = added.stream().filter(item -> item.getPrice() == 40).findFirst().get();
+            inventory.addItem(cheap);
+            inventory.addItem(dear);
+            inventory.removeItemById(unseen.getId(), 1);
+            List<Item> seen = new ArrayList<>();
+            first.getStacks().forEach(stack -> seen.add(stack.getItem()));
+            String cursor = first.getNextCursor();
+            while (cursor != null) {
+                InventoryPage page = inventory.getPage(InventorySortKey.PRICE, cursor, 7);
+                assertTrue(page.getStacks().size() <= 7, service);
+                page.getStacks().forEach(stack -> seen.add(stack.getItem()));
+                cursor = page.getNextCursor();
+            }
+            List<Long> seenIds = ids(seen);
+            assertEquals(100, seenIds.size(), service);
+            assertEquals(100, Set.copyOf(seenIds).size(), service);
+            assertFalse(seenIds.contains(cheap.getId()), service);
+            assertFalse(seenIds.contains(unseen.getId()), service);
+            assertEquals(dear.getId(), seenIds.get(seenIds.size() - 1), service);
+
+            assertThrows(IllegalArgumentException.class, () -> inventory.getPage(InventorySortKey.PRICE, "not a cursor", 7), service);
+            assertThrows(IllegalArgumentException.class, () -> inventory.getPage(InventorySortKey.PRICE, null, 0), service);
+        }
+    }
+
+    @Test
+    void queriesMatchAFullScanWhicheverPathIsPlanned() {
+        for (IInventoryService inventory : List.of(new InventoryService(), new ConcurrentInventoryService(), new OffHeapInventoryService())) {
+            String service = inventory.getClass().getSimpleName();
+            List<Item> added = new ArrayList<>();
+            for (int i = 0; i < 600; i++) {
+                added.add(i % 3 == 0 ? factory.createItem("Weapon", "Blade " + i, "Sharp", i % 80, 2 + i % 5, (1 + i % 2) + "d" + (4 + 2 * (i % 4)) + " + 1", 0)
+                        : i % 3 == 1 ? factory.createItem("Armor", "Mail " + i, "Sturdy", i % 80, 10 + i % 30, null, i % 7)
+                        : factory.createItem("Regular", "Blade oil " + i, "Slick", i % 80, 0.5, null, 0));
+            }
+            inventory.addAllItems(added.subList(0, 400));
+            added.subList(400, 600).forEach(inventory::addItem);
+            inventory.removeAllItems(added.subList(0, 50));
+
+            List<Item> all = inventory.getAllItems();
+            // From an empty query, through each access path, to queries that match nothing
+            for (ItemQuery query : List.of(
+                    new ItemQuery(),
+                    new ItemQuery().nameContains("BLADE 1"),
+                    new ItemQuery().nameContains("blade").ofType(Weapon.class),
+                    new ItemQuery().ofType(Armor.class),
+                    new ItemQuery().ofType(RegularItem.class).priceBetween(10, 30),
+                    new ItemQuery().priceBetween(79, 79),
+                    new ItemQuery().weightBetween(39, 40),
+                    new ItemQuery().priceBetween(0, 40).weightBetween(0, 1),
+                    new ItemQuery().damageDie(8),
+                    new ItemQuery().damageDie(10).priceBetween(0, 20),
+                    new ItemQuery().minArmorClass(5),
+                    new ItemQuery().minArmorClass(3).weightBetween(10, 15),
+                    new ItemQuery().nameContains("mail").damageDie(6),
+                    new ItemQuery().priceBetween(100, 200))) {
+                List<Item> found = inventory.query(query);
+                List<Item> expected = all.stream().filter(query::matches).collect(Collectors.toList());
+                // The order depends on the access path taken, so compare the matches by id
+                assertEquals(expected.size(), found.size(), service);
+                assertEquals(Set.copyOf(ids(expected)), Set.copyOf(ids(found)), service);
+            }
+        }
+    }
+
+    @Test
+    void bulkAddsAndRemovesIndexLikeSingleCallsWithOneEventAndOneLine() {
+        for (boolean stacking : new boolean[] {false, true}) {
+            InventoryService bulk = new InventoryService(stacking);
+            InventoryService single = new InventoryService(stacking);
+            List<Item> seed = batch(0, 40);
+            seed.forEach(bulk::addItem);
+            seed.forEach(single::addItem);
+            List<InventoryEvent> events = new ArrayList<>();
+            bulk.addInventoryListener(events::add);
+
+            // Smaller than the inventory, then larger: the second batch takes the rebuild path
+            for (List<Item> added : List.of(batch(40, 20), batch(60, 120))) {
+                String output = captureOutput(() -> bulk.addAllItems(added));
+                added.forEach(single::addItem);
+                assertEquals(added.size() + " items added to inventory." + System.lineSeparator(), output);
+                assertSameContents(single, bulk, "stacking " + stacking);
+            }
+            List<Item> dropped = new ArrayList<>(seed.subList(0, 15));
+            dropped.add(seed.get(3));
+            bulk.removeAllItems(dropped);
+            single.removeAllItems(dropped);
+            assertSameContents(single, bulk, "stacking " + stacking);
+            assertEquals(3, events.size());
+        }
+    }
+
+    // Some names repeat and some instances appear twice, so batches both create and grow stacks
+    private List<Item> batch(int from, int count) {
+        List<Item> items = new ArrayList<>();
+        for (int i = from; i < from + count; i++) {
+            Item item = i % 3 == 0 ? factory.createItem("Weapon", "Blade " + i % 25, "Edged", i % 30, 2, "1d6", 0)
+                    : i % 3 == 1 ? factory.createItem("Armor", "Helm " + i % 25, "Iron", i % 30, 4, null, 2)
+                    : factory.createItem("Regular", "Ration " + i % 25, "Dried", i % 30, 1, null, 0);
+            items.add(item);
+            if (i % 7 == 0) {
+                items.add(item);
+            }
+        }
+        return items;
+    }
+
+    private static void assertSameContents(InventoryService expected, InventoryService actual, String message) {
+        assertEquals(stacks(expected.getItemStacks()), stacks(actual.getItemStacks()), message);
+        assertEquals(expected.searchItem("blade 1"), actual.searchItem("blade 1"), message);
+        assertEquals(expected.searchItem("e"), actual.searchItem("e"), message);
+        assertEquals(expected.findItemByName("HELM 7"), actual.findItemByName("HELM 7"), message);
+        assertEquals(expected.getAllWeapons(), actual.getAllWeapons(), message);
+        assertEquals(expected.getItemsOfType(Armor.class), actual.getItemsOfType(Armor.class), message);
+        assertEquals(expected.getItemsInPriceRange(5, 12), actual.getItemsInPriceRange(5, 12), message);
+        assertEquals(expected.getHeaviestItems(7), actual.getHeaviestItems(7), message);
+        assertEquals(expected.getPage(InventorySortKey.PRICE, null, 1000).getStacks().stream().map(InventoryCount::getItem).toList(),
+                actual.getPage(InventorySortKey.PRICE, null, 1000).getStacks().stream().map(InventoryCount::getItem).toList(), message);
+        assertEquals(expected.getStats().getTotalCount(), actual.getStats().getTotalCount(), message);
+        assertEquals(expected.getStats().getTotalPrice(), actual.getStats().getTotalPrice(), 1e-9, message);
+        assertEquals(expected.countItems(Weapon.class), actual.countItems(Weapon.class), message);
+        for (InventoryCount stack : expected.getItemStacks()) {
+            assertEquals(stack.getItem(), actual.getItemById(stack.getItem().getId()), message);
+        }
+    }
+
+    // Each stack once, in first-seen order
+    private static List<Item> distinct(List<Item> items) {
+        List<Item> distinct = new ArrayList<>();
+        for (Item item : items) {
+            if (!distinct.contains(item)) {
+                distinct.add(item);
+            }
+        }
+        return distinct;
+    }
+
+    private static List<Item> pageThrough(IInventoryService inventory, InventorySortKey key, int pageSize) {
+        List<Item> all = new ArrayList<>();
+        String cursor = null;
+        do {
+            InventoryPage page = inventory.getPage(key, cursor, pageSize);
+            page.getStacks().forEach(stack -> all.add(stack.getItem()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return all;
+    }
+
+    private static List<Long> ids(List<Item> items) {
+        return items.stream().map(Item::getId).collect(Collectors.toList());
+    }
+
+    private static List<String> stacks(List<InventoryCount> stacks) {
+        return stacks.stream().map(stack -> stack.getItem().getId() + " x" + stack.getCount()).collect(Collectors.toList());
+    }
+
+    private static String captureOutput(Runnable action) {
+        PrintStream original = System.out;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output, true));
+        try {
+            action.run();
+        } finally {
+            System.setOut(original);
+        }
+        return output.toString();
+    }
+
+    // A type the services have never heard of
+    private static final class Relic extends RegularItem {
+        private static final long serialVersionUID = 1L;
+
+        private Relic(String name, String description, double price, double weight) {
+            super(name, description, price, weight);
+        }
+    }
+}
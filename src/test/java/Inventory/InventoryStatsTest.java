@@ -0,0 +1,43 @@
+package Inventory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import Items.Item;
+import Items.ItemFactory;
+import Items.Weapon;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class InventoryStatsTest {
+    private final ItemFactory factory = new ItemFactory();
+
+    @Test
+    void extremesFollowRemovalsAndTotalsReturnToZero() {
+        InventoryStats stats = new InventoryStats();
+        Item rope = factory.createItem("Regular", "Rope", "50 feet", 0.1, 10, null, 0);
+        Item sword = factory.createItem("Weapon", "Sword", "Sharp", 15, 3, "1d8", 0);
+        Item potion = factory.createItem("Regular", "Potion", "Heals", 0.7, 0.5, null, 0);
+
+        stats.itemsAdded(rope, 3);
+        stats.itemsChanged(Map.of(sword, 1, potion, 2));
+        assertEquals(6, stats.getTotalCount());
+        assertEquals(1, stats.getCount(Weapon.class));
+        assertEquals(0.1, stats.getMinPrice());
+        assertEquals(15, stats.getMaxPrice());
+        assertEquals(0.5, stats.getMinWeight());
+        assertEquals(10, stats.getMaxWeight());
+
+        // Removing part of a stack keeps its value; removing the rest drops it from min/max
+        stats.itemsRemoved(rope, 2);
+        assertEquals(0.1, stats.getMinPrice());
+        stats.itemsRemoved(rope, 1);
+        assertEquals(0.7, stats.getMinPrice());
+        assertEquals(3, stats.getMaxWeight());
+
+        stats.itemsChanged(Map.of(sword, -1, potion, -2));
+        assertEquals(0, stats.getTotalCount());
+        assertEquals(0.0, stats.getTotalPrice());
+        assertEquals(0.0, stats.getMinPrice());
+        assertEquals(0.0, stats.getMaxWeight());
+    }
+}
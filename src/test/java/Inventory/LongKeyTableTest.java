@@ -0,0 +1,41 @@
+package Inventory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import Items.Item;
+import Items.ItemFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class LongKeyTableTest {
+    @Test
+    void bothMapsAgreeWithHashMapUnderRandomPutsAndRemoves() {
+        Item item = new ItemFactory().createItem("Regular", "Pebble", "Round", 0, 1, null, 0);
+        LongIntMap ints = new LongIntMap();
+        LongItemMap items = new LongItemMap();
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            // A narrow key range keeps probe runs long and makes removals hit existing keys
+            long key = 1 + random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                ints.remove(key);
+                items.remove(key);
+                expected.remove(key);
+            } else {
+                ints.put(key, i);
+                items.put(key, item);
+                expected.put(key, i);
+            }
+        }
+        assertEquals(expected.size(), ints.size());
+        assertEquals(expected.size(), items.size());
+        for (long key = 1; key <= 5_000; key++) {
+            Integer value = expected.get(key);
+            assertEquals(value == null ? -1 : value, ints.get(key), "key " + key);
+            assertEquals(value == null ? null : item, items.get(key), "key " + key);
+        }
+    }
+}
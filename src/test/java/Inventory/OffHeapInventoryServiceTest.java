@@ -0,0 +1,162 @@
+package Inventory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import Items.Item;
+import Items.ItemFactory;
+import Items.ItemTemplate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class OffHeapInventoryServiceTest {
+    private final ItemFactory factory = new ItemFactory();
+
+    @Test
+    void namesMatchCaseInsensitivelyWithoutDecodingEveryRecord() {
+        try (OffHeapInventoryService inventory = new OffHeapInventoryService()) {
+            inventory.addItem(factory.createItem("Weapon", "Épée Longue", "Sharp", 15, 3, "1d8 + 1", 0));
+            inventory.addItem(factory.createItem("Regular", "Rope", "50 feet", 1, 10, null, 0));
+            inventory.addItem(factory.createItem("Regular", "Rope ladder", "10 rungs", 2, 12, null, 0));
+
+            assertEquals(2, inventory.searchItem("ROPE").size());
+            assertEquals(1, inventory.searchItem("épée").size());
+            assertEquals(3, inventory.searchItem("").size());
+            assertNotNull(inventory.findItemByName("rope LADDER"));
+            assertNull(inventory.findItemByName("rop"));
+
+            inventory.removeItem("rope");
+            assertEquals(List.of("Rope ladder"), names(inventory.searchItem("rope")));
+        }
+    }
+
+    @Test
+    void extremesAndCountsSurviveRemovalsAndCompaction() {
+        try (OffHeapInventoryService inventory = new OffHeapInventoryService()) {
+            List<Item> items = new ArrayList<>();
+            for (int i = 1; i <= 5000; i++) {
+                items.add(factory.createItem("Regular", "Gem " + i, "Shiny", i, i / 100.0, null, 0));
+            }
+            inventory.addAllItems(items);
+            InventoryStats stats = inventory.getStats();
+            assertEquals(1, stats.getMinPrice());
+            assertEquals(5000, stats.getMaxPrice());
+
+            // Dropping the cheapest 3000 leaves enough dead records to compact
+            inventory.removeAllItems(items.subList(0, 3000));
+            assertEquals(2000, stats.getTotalCount());
+            assertEquals(3001, stats.getMinPrice());
+            assertEquals(50, stats.getMaxWeight());
+            assertEquals("Gem 4999", inventory.findItemByName("gem 4999").getName());
+            assertEquals(1, inventory.searchItem("Gem 3001").size());
+
+            inventory.removeItemById(items.get(4999).getId(), 1);
+            assertEquals(4999, stats.getMaxPrice());
+        }
+    }
+
+    @Test
+    void rangesTopItemsAndPagesFollowTheSortedOrders() {
+        try (OffHeapInventoryService inventory = new OffHeapInventoryService()) {
+            List<Item> items = new ArrayList<>();
+            for (int i = 0; i < 3000; i++) {
+                // Few distinct values, so ties have to come back in insertion order
+                items.add(factory.createItem("Regular", "Coin " + i, "Round", (i * 37) % 101, (i * 11) % 7, null, 0));
+            }
+            // A bulk load re-sorts on the next read; single adds are then inserted into the current order
+            inventory.addAllItems(items.subList(0, 2000));
+            assertEquals(ids(sorted(items.subList(0, 2000), Comparator.comparingDouble(Item::getPrice))),
+                    ids(inventory.getItemsInPriceRange(0, 100)));
+            items.subList(2000, 3000).forEach(inventory::addItem);
+            // Enough removals to compact, which re-sorts again
+            inventory.removeAllItems(items.subList(0, 1500));
+            inventory.removeItemById(items.get(2500).getId(), 1);
+            List<Item> kept = new ArrayList<>(items.subList(1500, 3000));
+            kept.remove(items.get(2500));
+
+            // kept is in insertion order and the sort is stable, so ties stay in insertion order
+            List<Item> byPrice = sorted(kept, Comparator.comparingDouble(Item::getPrice));
+            List<Item> byWeight = sorted(kept, Comparator.comparingDouble(Item::getWeight));
+            assertEquals(ids(filter(byPrice, item -> item.getPrice() >= 20 && item.getPrice() <= 40)), ids(inventory.getItemsInPriceRange(20, 40)));
+            assertEquals(ids(filter(byWeight, item -> item.getWeight() <= 2)), ids(inventory.getItemsInWeightRange(0, 2)));
+            // Top items walk the price order backwards, like the descending views of the other services
+            List<Item> top = new ArrayList<>(byPrice.subList(byPrice.size() - 25, byPrice.size()));
+            Collections.reverse(top);
+            assertEquals(ids(top), ids(inventory.getMostValuableItems(25)));
+            assertEquals(ids(byPrice), ids(pageThrough(inventory, InventorySortKey.PRICE)));
+            assertEquals(ids(byWeight), ids(pageThrough(inventory, InventorySortKey.WEIGHT)));
+
+            ItemQuery query = new ItemQuery().priceBetween(0, 10).weightBetween(5, 6);
+            assertEquals(Set.copyOf(ids(filter(kept, query::matches))), Set.copyOf(ids(inventory.query(query))));
+        }
+    }
+
+    @Test
+    void itemsComeBackAsTheAddedInstanceOrOneSharedViewOnTheirTemplate() throws InterruptedException {
+        try (OffHeapInventoryService inventory = new OffHeapInventoryService()) {
+            Item held = factory.createItem("Weapon", "Warhammer", "Heavy", 12, 8, "1d10", 0);
+            inventory.addItem(held);
+            assertSame(held, inventory.getItemById(held.getId()));
+            assertSame(held, inventory.getMostValuableItems(1).get(0));
+
+            // Only the template is kept: once the item itself is collected, views are decoded on it
+            ItemTemplate template = factory.createItem("Armor", "Tower shield", "Tall", 7, 15, null, 4).getTemplate();
+            long id = addDropped(inventory, template);
+            for (int i = 0; i < 5; i++) {
+                System.gc();
+                Thread.sleep(20);
+            }
+            Item view = inventory.getItemById(id);
+            assertSame(template, view.getTemplate());
+            assertEquals("Tall", view.getDescription());
+            assertSame(view, inventory.findItemByName("tower shield"));
+            assertSame(view, inventory.getItemsInWeightRange(15, 15).get(0));
+        }
+    }
+
+    // Adds a fresh item on the template without keeping a reference to it
+    private static long addDropped(OffHeapInventoryService inventory, ItemTemplate template) {
+        Item item = template.newItem();
+        inventory.addItem(item);
+        return item.getId();
+    }
+
+    private static List<Item> pageThrough(IInventoryService inventory, InventorySortKey key) {
+        List<Item> all = new ArrayList<>();
+        String cursor = null;
+        do {
+            InventoryPage page = inventory.getPage(key, cursor, 128);
+            page.getStacks().forEach(stack -> all.add(stack.getItem()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return all;
+    }
+
+    private static List<Item> sorted(List<Item> items, Comparator<Item> order) {
+        return items.stream().sorted(order).collect(Collectors.toList());
+    }
+
+    private static List<Item> filter(List<Item> items, Predicate<Item> filter) {
+        return items.stream().filter(filter).collect(Collectors.toList());
+    }
+
+    private static List<Long> ids(List<Item> items) {
+        return items.stream().map(Item::getId).collect(Collectors.toList());
+    }
+
+    private static List<String> names(List<Item> items) {
+        List<String> names = new ArrayList<>();
+        for (Item item : items) {
+            names.add(item.getName());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,92 @@
+package Items;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ItemTemplateTest {
+    private final ItemFactory factory = new ItemFactory();
+
+    @Test
+    void equalDefinitionsShareOneTemplate() {
+        Item first = factory.createItem("Weapon", "Longsword", "Versatile", 15, 3, "1d8", 0);
+        Item second = factory.createItem("weapon", "Longsword", "Versatile", 15, 3, "1d8", 0);
+        assertNotSame(first, second);
+        assertNotEquals(first.getId(), second.getId());
+        assertSame(first.getTemplate(), second.getTemplate());
+        assertSame(first.getTemplate(), ItemTemplateCatalog.intern(new ItemTemplate("Weapon", "Longsword", "Versatile", 15, 3, "1d8", 0)));
+
+        // Any difference, the description included, is a different definition
+        assertNotSame(first.getTemplate(), factory.createItem("Weapon", "Longsword", "Rusty", 15, 3, "1d8", 0).getTemplate());
+        assertNotSame(first.getTemplate(), factory.createItem("Weapon", "Longsword", "Versatile", 15, 3, "1d10", 0).getTemplate());
+    }
+
+    @Test
+    void storedItemsOnlyKeepTheValuesTheyOverride() {
+        ItemTemplate template = factory.createItem("Armor", "Chain mail", "Rings of steel", 75, 55, null, 6).getTemplate();
+
+        // An equal but separate name string is dropped in favour of the template's
+        Item same = StoredItems.fromTemplate(template, 0, new String("Chain mail"), new String("Rings of steel"), null, 75, 55);
+        assertSame(template.getName(), same.getName());
+        assertSame(template.getDescription(), same.getDescription());
+        assertSame(template, same.getTemplate());
+
+        Item worn = StoredItems.fromTemplate(template, 0, null, "Dented", null, 40, 55);
+        assertEquals("Chain mail", worn.getName());
+        assertEquals("Dented", worn.getDescription());
+        assertEquals(40, worn.getPrice());
+        assertEquals(6, ((Armor) worn).getDefense());
+
+        // A deferred description is only decoded when it is asked for
+        String[] decoded = new String[1];
+        Item deferred = StoredItems.fromTemplate(template, 0, null, null, () -> decoded[0] = "Freshly oiled", 75, 55);
+        assertNull(decoded[0]);
+        assertEquals("Freshly oiled", deferred.getDescription());
+        assertEquals("Freshly oiled", decoded[0]);
+    }
+
+    @Test
+    void deserializedItemsResolveToTheSharedTemplate() throws IOException, ClassNotFoundException {
+        Item first = factory.createItem("Regular", "Rations", "One day", 0.5, 2, null, 0);
+        Item second = factory.createItem("Regular", "Rations", "One day", 0.5, 2, null, 0);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(List.of(first, second));
+        }
+        List<?> read;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            read = (List<?>) in.readObject();
+        }
+        Item copy = (Item) read.get(0);
+        assertEquals(first.getId(), copy.getId());
+        assertSame(first.getTemplate(), copy.getTemplate());
+        assertSame(first.getTemplate(), ((Item) read.get(1)).getTemplate());
+    }
+
+    @Test
+    void unusedTemplatesAreNotPinnedByTheCatalog() throws InterruptedException {
+        WeakReference<ItemTemplate> dropped = new WeakReference<>(dropItem());
+        for (int i = 0; i < 5 && dropped.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertNull(dropped.get());
+    }
+
+    // Creates an item on a template nothing else uses and returns only the template
+    private ItemTemplate dropItem() {
+        return factory.createItem("Regular", "Forgotten trinket " + System.nanoTime(), "Lost", 1, 1, null, 0).getTemplate();
+    }
+}
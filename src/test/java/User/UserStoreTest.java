@@ -0,0 +1,134 @@
+package User;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class UserStoreTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void usersAreFoundByAnyCaseAcrossReopensAndTableGrowth() throws IOException {
+        UserStore store = open();
+        // Past half of the initial 1024 slots, so the table is rebuilt at least once
+        for (int i = 0; i < 600; i++) {
+            assertTrue(store.add(new User("Adventurer" + i, "secret" + i, "a" + i + "@dungeon.org")));
+        }
+        assertFalse(store.add(new User("ADVENTURER7", "other", "b@dungeon.org")));
+        assertEquals(600, store.size());
+
+        UserStore reopened = open();
+        assertEquals(600, reopened.size());
+        for (int i = 0; i < 600; i += 37) {
+            User user = reopened.find("adventurer" + i);
+            assertNotNull(user, "adventurer" + i);
+            assertEquals("Adventurer" + i, user.getUsername());
+            assertEquals("a" + i + "@dungeon.org", user.getEmail());
+            assertTrue(user.verifyPassword("secret" + i));
+        }
+        assertNull(reopened.find("adventurer600"));
+    }
+
+    @Test
+    void aMissingOrCorruptIndexIsRebuiltFromTheRecords() throws IOException {
+        UserStore store = open();
+        for (int i = 0; i < 50; i++) {
+            store.add(new User("Mage" + i, "secret" + i, "m" + i + "@dungeon.org"));
+        }
+
+        Files.delete(index());
+        assertUsers(open(), "Mage", 50);
+
+        Files.write(index(), new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23, 24, 25});
+        assertUsers(open(), "Mage", 50);
+    }
+
+    @Test
+    void recordsAppendedAfterTheIndexWasWrittenAreIndexedOnOpen() throws IOException {
+        UserStore store = open();
+        for (int i = 0; i < 20; i++) {
+            store.add(new User("Rogue" + i, "secret" + i, "r" + i + "@dungeon.org"));
+        }
+        // As if the process died after appending these records but before their index updates landed
+        byte[] staleIndex = Files.readAllBytes(index());
+        for (int i = 20; i < 30; i++) {
+            store.add(new User("Rogue" + i, "secret" + i, "r" + i + "@dungeon.org"));
+        }
+        Files.write(index(), staleIndex);
+
+        UserStore reopened = open();
+        assertUsers(reopened, "Rogue", 30);
+        assertFalse(reopened.add(new User("rogue25", "other", "x@dungeon.org")));
+    }
+
+    @Test
+    void aTornRecordAtTheEndIsDroppedAndTheStoreStaysUsable() throws IOException {
+        UserStore store = open();
+        for (int i = 0; i < 10; i++) {
+            store.add(new User("Cleric" + i, "secret" + i, "c" + i + "@dungeon.org"));
+        }
+        long intact = Files.size(records());
+        // Half a length prefix, then a record whose payload was never fully written
+        Files.write(records(), new byte[] {0, 0, 0, 40, 0, 0, 0, 0, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        UserStore reopened = open();
+        assertEquals(intact, Files.size(records()));
+        assertUsers(reopened, "Cleric", 10);
+        assertTrue(reopened.add(new User("Cleric10", "secret10", "c10@dungeon.org")));
+        assertUsers(open(), "Cleric", 11);
+    }
+
+    @Test
+    void compressedRecordsAreSmallerAndMixWithPlainOnes() throws IOException {
+        Path plainRecords = directory.resolve("plain.records");
+        UserStore plain = new UserStore(plainRecords.toString(), directory.resolve("plain.index").toString());
+        UserStore compressed = new UserStore(records().toString(), index().toString(), true);
+        for (int i = 0; i < 100; i++) {
+            // Long, repetitive emails give Deflate something to shrink next to the random hash and salt
+            String email = "bard" + i + "@the-guild-of-wandering-minstrels-and-storytellers.dungeon.org";
+            plain.add(new User("Bard" + i, "secret" + i, email));
+            compressed.add(new User("Bard" + i, "secret" + i, email));
+        }
+        assertTrue(Files.size(records()) < Files.size(plainRecords), Files.size(records()) + " >= " + Files.size(plainRecords));
+
+        // A store opened without compression reads the deflated records and appends plain ones after them
+        UserStore reopened = open();
+        for (int i = 100; i < 110; i++) {
+            reopened.add(new User("Bard" + i, "secret" + i, "bard" + i + "@the-guild-of-wandering-minstrels-and-storytellers.dungeon.org"));
+        }
+        assertUsers(reopened, "Bard", 110);
+        assertEquals("bard7@the-guild-of-wandering-minstrels-and-storytellers.dungeon.org", reopened.find("BARD7").getEmail());
+        assertUsers(new UserStore(records().toString(), index().toString(), true), "Bard", 110);
+    }
+
+    private static void assertUsers(UserStore store, String prefix, int count) throws IOException {
+        assertEquals(count, store.size());
+        for (int i = 0; i < count; i++) {
+            User user = store.find(prefix.toLowerCase() + i);
+            assertNotNull(user, prefix + i);
+            assertTrue(user.verifyPassword("secret" + i), prefix + i);
+        }
+    }
+
+    private UserStore open() throws IOException {
+        return new UserStore(records().toString(), index().toString());
+    }
+
+    private Path records() {
+        return directory.resolve("users.records");
+    }
+
+    private Path index() {
+        return directory.resolve("users.index");
+    }
+}